@@ -0,0 +1,340 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allows to shift the compute between the process managers sharing a fair
+ * scheduler towards those improving their best fitness the fastest. The
+ * managers are the arms of a discounted UCB bandit. Every period the reward
+ * of a manager is its best fitness improvement per second of the scheduler
+ * threads it used, normalized by the largest reward seen. Its pull count is
+ * its share of the used time. The managers then get the scheduler weights in
+ * proportion to their UCB scores, but each at least the floor share, so no
+ * manager is starved. As a manager can not use more scheduler threads than
+ * it has workers, the workers are also moved between the managers: their
+ * total is kept and re-distributed in proportion to the shares, each manager
+ * keeping at least one. The managers are to use the SHARED execution type.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class BanditAllocator {
+
+    private static final Logger LOGGER = Logger.getLogger(BanditAllocator.class.getName());
+
+    //Stores the minimum scheduler weight
+    private static final double MIN_WEIGHT = 1.0e-3;
+
+    /**
+     * Stores the bandit state of a manager
+     */
+    private static final class Arm {
+
+        //Stores the manager
+        final ProcessManager m_mgr;
+        //Stores the best fitness at the last round
+        double m_best_ftn;
+        //Stores the busy time at the last round
+        long m_busy_nanos;
+        //Stores the discounted sum of rewards
+        double m_sum_rwd;
+        //Stores the discounted number of pulls
+        double m_num_pulls;
+        //Stores the current share
+        double m_share;
+
+        Arm(final ProcessManager mgr) {
+            this.m_mgr = mgr;
+            this.m_best_ftn = Double.NaN;
+            this.m_busy_nanos = mgr.get_sched_busy_nanos();
+            this.m_sum_rwd = 0.0;
+            this.m_num_pulls = 0.0;
+            this.m_share = 0.0;
+        }
+    }
+
+    //Stores the managers
+    private final List<Arm> m_arms;
+    //Stores the re-allocation period in milliseconds
+    private final long m_period;
+    //Stores the minimum share per manager
+    private final double m_floor;
+    //Stores the exploration coefficient
+    private final double m_explore;
+    //Stores the discount factor per round
+    private final double m_discount;
+    //Stores the largest reward seen, for normalization
+    private double m_max_rwd;
+    //Stores the timer or null if not started
+    private ScheduledExecutorService m_timer;
+
+    /**
+     * The basic constructor
+     *
+     * @param period the re-allocation period in milliseconds
+     * @param floor the minimum share of the scheduler threads per manager,
+     * from [0.0, 1.0/num_managers]
+     * @param explore the UCB exploration coefficient, non-negative
+     * @param discount the discount of the past rewards per round, from (0.0,
+     * 1.0]
+     */
+    public BanditAllocator(final long period, final double floor,
+            final double explore, final double discount) {
+        if ((period <= 0) || !(floor >= 0.0) || !(floor <= 1.0)
+                || !(explore >= 0.0) || !(discount > 0.0) || !(discount <= 1.0)) {
+            throw new IllegalArgumentException("Improper bandit allocator "
+                    + "parameters, period: " + period + ", floor: " + floor
+                    + ", explore: " + explore + ", discount: " + discount);
+        }
+        this.m_arms = new ArrayList<>();
+        this.m_period = period;
+        this.m_floor = floor;
+        this.m_explore = explore;
+        this.m_discount = discount;
+        this.m_max_rwd = 0.0;
+        this.m_timer = null;
+    }
+
+    /**
+     * Allows to add a manager, may be called at any time
+     *
+     * @param mgr the manager using the SHARED execution type
+     */
+    public synchronized void add(final ProcessManager mgr) {
+        m_arms.add(new Arm(mgr));
+    }
+
+    /**
+     * Allows to remove a manager, the stopped managers are removed
+     * automatically
+     *
+     * @param mgr the manager
+     */
+    public synchronized void remove(final ProcessManager mgr) {
+        m_arms.removeIf(arm -> arm.m_mgr == mgr);
+    }
+
+    /**
+     * Allows to start the periodic re-allocation
+     */
+    public synchronized void start() {
+        if (m_timer == null) {
+            m_timer = Executors.newSingleThreadScheduledExecutor(run -> {
+                final Thread th = new Thread(run);
+                th.setName("SR-Bandit-Allocator");
+                th.setDaemon(true);
+                return th;
+            });
+            m_timer.scheduleAtFixedRate(() -> {
+                try {
+                    reallocate();
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in the bandit allocator!", ex);
+                }
+            }, m_period, m_period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Allows to stop the periodic re-allocation
+     */
+    public synchronized void stop() {
+        if (m_timer != null) {
+            m_timer.shutdownNow();
+            m_timer = null;
+        }
+    }
+
+    /**
+     * Allows to get the best fitness value of the manager
+     *
+     * @param mgr the manager
+     * @return the best fitness value or NaN if there are no individuals yet
+     */
+    private static double get_best_fitness(final ProcessManager mgr) {
+        double best_ftn = Double.NaN;
+        final List<Individual> best = mgr.get_best_fit_ind();
+        if (best != null) {
+            for (Individual ind : best) {
+                final double ftn = ind.get_fitness().get_fitness();
+                if (Double.isNaN(best_ftn) || (ftn > best_ftn)) {
+                    best_ftn = ftn;
+                }
+            }
+        }
+        return best_ftn;
+    }
+
+    /**
+     * Does one round: updates the rewards and re-assigns the weights
+     */
+    public synchronized void reallocate() {
+        m_arms.removeIf(arm -> !arm.m_mgr.is_active());
+        final int num_arms = m_arms.size();
+        if (num_arms == 0) {
+            return;
+        }
+        //Collect the rewards of the round
+        final double[] rwds = new double[num_arms];
+        final double[] busy = new double[num_arms];
+        double total_busy = 0.0;
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final Arm arm = m_arms.get(idx);
+            final long busy_nanos = arm.m_mgr.get_sched_busy_nanos();
+            busy[idx] = (busy_nanos - arm.m_busy_nanos) * 1.0e-9;
+            arm.m_busy_nanos = busy_nanos;
+            total_busy += busy[idx];
+            final double best_ftn = get_best_fitness(arm.m_mgr);
+            if (!Double.isNaN(arm.m_best_ftn) && (best_ftn > arm.m_best_ftn)
+                    && (busy[idx] > 0.0)) {
+                rwds[idx] = (best_ftn - arm.m_best_ftn) / busy[idx];
+                m_max_rwd = Math.max(m_max_rwd, rwds[idx]);
+            }
+            if (!Double.isNaN(best_ftn)) {
+                arm.m_best_ftn = best_ftn;
+            }
+        }
+        if (total_busy <= 0.0) {
+            return;
+        }
+        //Update the discounted statistics, a pull is a share of the time
+        double total_pulls = 0.0;
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final Arm arm = m_arms.get(idx);
+            final double pulls = num_arms * busy[idx] / total_busy;
+            final double rwd = (m_max_rwd > 0.0) ? rwds[idx] / m_max_rwd : 0.0;
+            arm.m_sum_rwd = m_discount * arm.m_sum_rwd + pulls * rwd;
+            arm.m_num_pulls = m_discount * arm.m_num_pulls + pulls;
+            total_pulls += arm.m_num_pulls;
+        }
+        //Compute the UCB scores, the arms never pulled get the largest one
+        final double[] scores = new double[num_arms];
+        double max_score = 0.0;
+        double total_score = 0.0;
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final Arm arm = m_arms.get(idx);
+            if (arm.m_num_pulls > 0.0) {
+                scores[idx] = arm.m_sum_rwd / arm.m_num_pulls + m_explore
+                        * Math.sqrt(Math.log(Math.max(1.0, total_pulls)) / arm.m_num_pulls);
+                max_score = Math.max(max_score, scores[idx]);
+            } else {
+                scores[idx] = Double.NaN;
+            }
+        }
+        for (int idx = 0; idx < num_arms; ++idx) {
+            if (Double.isNaN(scores[idx])) {
+                scores[idx] = Math.max(max_score, 1.0);
+            }
+            total_score += scores[idx];
+        }
+        //Assign the shares with the floor
+        final double[] shares = new double[num_arms];
+        final double floor = Math.min(m_floor, 1.0 / num_arms);
+        final double free = 1.0 - num_arms * floor;
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final Arm arm = m_arms.get(idx);
+            arm.m_share = floor + ((total_score > 0.0)
+                    ? free * scores[idx] / total_score : free / num_arms);
+            shares[idx] = arm.m_share;
+            //The weights are relative, the average weight is one
+            arm.m_mgr.set_sched_weight(Math.max(arm.m_share * num_arms, MIN_WEIGHT));
+            LOGGER.log(Level.FINE, "Manager {0} -> share {1}",
+                    new Object[]{arm.m_mgr.get_mgr_id(), arm.m_share});
+        }
+        //Move the workers towards the shares
+        int total_workers = 0;
+        for (int idx = 0; idx < num_arms; ++idx) {
+            total_workers += m_arms.get(idx).m_mgr.get_num_workers();
+        }
+        final int[] targets = apportion(shares, Math.max(total_workers, num_arms));
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final ProcessManager mgr = m_arms.get(idx).m_mgr;
+            int num = mgr.get_num_workers();
+            while ((num > targets[idx]) && mgr.retire_worker()) {
+                --num;
+            }
+        }
+        for (int idx = 0; idx < num_arms; ++idx) {
+            final ProcessManager mgr = m_arms.get(idx).m_mgr;
+            int num = mgr.get_num_workers();
+            while ((num < targets[idx]) && mgr.add_worker()) {
+                ++num;
+            }
+        }
+    }
+
+    /**
+     * Allows to split the workers in proportion to the shares, each getting
+     * at least one, the remainder is given by the largest fractions
+     *
+     * @param shares the shares summing up to one
+     * @param num_workers the number of workers, not less than the number of
+     * shares
+     * @return the numbers of workers per share
+     */
+    private static int[] apportion(final double[] shares, final int num_workers) {
+        final int[] targets = new int[shares.length];
+        final double[] fracts = new double[shares.length];
+        final int free = num_workers - shares.length;
+        int left = free;
+        for (int idx = 0; idx < shares.length; ++idx) {
+            final double exact = shares[idx] * free;
+            targets[idx] = 1 + (int) Math.floor(exact);
+            fracts[idx] = exact - Math.floor(exact);
+            left -= targets[idx] - 1;
+        }
+        for (; left > 0; --left) {
+            int best = 0;
+            for (int idx = 1; idx < shares.length; ++idx) {
+                if (fracts[idx] > fracts[best]) {
+                    best = idx;
+                }
+            }
+            ++targets[best];
+            fracts[best] = -1.0;
+        }
+        return targets;
+    }
+
+    /**
+     * Allows to get the current share of the manager
+     *
+     * @param mgr the manager
+     * @return the share of the scheduler threads, zero if unknown
+     */
+    public synchronized double get_share(final ProcessManager mgr) {
+        for (Arm arm : m_arms) {
+            if (arm.m_mgr == mgr) {
+                return arm.m_share;
+            }
+        }
+        return 0.0;
+    }
+}
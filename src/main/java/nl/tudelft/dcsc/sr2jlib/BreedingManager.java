@@ -22,16 +22,26 @@
 package nl.tudelft.dcsc.sr2jlib;
 
 import nl.tudelft.dcsc.sr2jlib.grid.AreaLocker;
+import nl.tudelft.dcsc.sr2jlib.grid.CellAreaLocker;
 import nl.tudelft.dcsc.sr2jlib.grid.GridManager;
 import nl.tudelft.dcsc.sr2jlib.grid.GridObserver;
 import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+import nl.tudelft.dcsc.sr2jlib.grid.PopulationSlots;
+import nl.tudelft.dcsc.sr2jlib.grid.TileMap;
+import nl.tudelft.dcsc.sr2jlib.fitness.EvalDeadline;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fingerprint;
+import nl.tudelft.dcsc.sr2jlib.fitness.FingerprintScreen;
 import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
-import java.util.LinkedList;
+import nl.tudelft.dcsc.sr2jlib.fitness.SurrogateModel;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 import nl.tudelft.dcsc.sr2jlib.err.ErrorManager;
 
 /**
@@ -48,11 +58,25 @@ public class BreedingManager {
     private final GridManager m_grid_mgr;
     private final int m_num_dofs;
     private final int m_mgr_id;
-    private final LinkedList<Individual> m_pop_list;
+    private final PopulationSlots m_pop_slots;
     private final SelectionType m_sel_type;
     private final AreaLocker m_locker;
     private final boolean m_is_allow_dying;
     private final boolean m_is_avoid_equal;
+    private final FingerprintScreen m_dupl_screen;
+    private final AtomicLong m_num_dupl;
+    private final int m_init_batch_size;
+    private final SurrogateModel m_surrogate;
+    private final CostTradeOff m_cost_trade_off;
+    private final double m_cost_ftn_tol;
+    private final double m_cost_weight;
+    private final AtomicLong m_num_stale;
+    private TileMap m_tiles;
+    private final int m_num_col_x;
+    private final int m_num_col_y;
+    private final Object m_phase_mon;
+    //Stores the memory governor or null if there is no budget
+    private final MemoryGovernor m_governor;
 
     /**
      * The basic constructor
@@ -62,15 +86,47 @@ public class BreedingManager {
      */
     public BreedingManager(final GridObserver observer, final BreedingManagerConfig conf) {
         this.m_num_dofs = conf.m_num_dofs;
-        this.m_grid_mgr = new GridManager(observer, conf.m_size_x, conf.m_size_y);
+        this.m_grid_mgr = new GridManager(observer, conf.m_size_x, conf.m_size_y,
+                conf.m_is_place_weakest && (conf.m_sel_type == SelectionType.VALUE));
         this.m_mgr_id = conf.m_mgr_id;
         this.m_sel_type = conf.m_sel_type;
-        this.m_locker = new AreaLocker(conf);
-        this.m_pop_list = new LinkedList();
+        this.m_locker = conf.m_is_cell_locker
+                ? new CellAreaLocker(conf) : new AreaLocker(conf);
+        this.m_pop_slots = new PopulationSlots(conf.m_size_x, conf.m_size_y);
         this.m_is_allow_dying = conf.m_is_allow_dying;
         this.m_is_avoid_equal = conf.m_is_avoid_equal;
+        this.m_dupl_screen = conf.m_dupl_screen;
+        this.m_num_dupl = new AtomicLong(0);
+        this.m_init_batch_size = Math.max(1, conf.m_init_batch_size);
+        this.m_surrogate = (m_sel_type == SelectionType.VALUE) ? conf.m_surrogate : null;
+        this.m_cost_trade_off = conf.m_cost_trade_off;
+        this.m_cost_ftn_tol = conf.m_cost_ftn_tol;
+        this.m_cost_weight = conf.m_cost_weight;
+        this.m_num_stale = new AtomicLong(0);
+        this.m_tiles = null;
+        this.m_num_col_x = 2 * conf.m_ch_sp_x + 1;
+        this.m_num_col_y = 2 * conf.m_ch_sp_y + 1;
+        this.m_phase_mon = new Object();
+        this.m_governor = (conf.m_mem_budget > 0)
+                ? new MemoryGovernor(this, conf) : null;
+        //Set the evaluation cost estimation
+        Individual.set_cost_table(conf.m_mgr_id, conf.m_cost_table);
+        Individual.set_cost_measured(conf.m_mgr_id, (m_sel_type
+                == SelectionType.COST) && (conf.m_cost_table == null));
+        //Set the fitness computation deadline
+        EvalDeadline.set_timeout(conf.m_mgr_id, conf.m_eval_timeout);
         //Set the min max children count 
         Individual.set_min_max_child_cnt(conf.m_min_chld_cnt, conf.m_max_chld_cnt);
+        //Set the dofs to mutate per child
+        if (conf.m_mut_dofs != null) {
+            for (int dof : conf.m_mut_dofs) {
+                if ((dof < 0) || (dof >= conf.m_num_dofs)) {
+                    throw new IllegalArgumentException("Improper mutation dof index: "
+                            + dof + ", the number of dofs is " + conf.m_num_dofs);
+                }
+            }
+        }
+        Individual.set_mut_dofs(conf.m_mgr_id, conf.m_mut_dofs, conf.m_num_mut_dofs);
     }
 
     /**
@@ -91,8 +147,10 @@ public class BreedingManager {
         } else {
             if (m_sel_type == SelectionType.PROB) {
                 final double total = old_fitness.get_fitness() + new_fitness.get_fitness();
-                double outcome = ThreadLocalRandom.current().nextDouble(total);
+                double outcome = RandomSource.next_double(total);
                 return outcome >= old_fitness.get_fitness();
+            } else if (m_sel_type == SelectionType.COST) {
+                return does_new_win_cost(old_ind, new_ind);
             } else {
                 final String msg = "Unsupported selection type: " + m_sel_type;
                 LOGGER.log(Level.SEVERE, msg);
@@ -102,16 +160,206 @@ public class BreedingManager {
         return false;
     }
 
+    /**
+     * Allows to check if the new individual can be settled into the cell, for
+     * the value based selection the packed fitness values and sizes of the
+     * grid are compared without reading the old individual.
+     *
+     * @param pos_x x position of the cell
+     * @param pos_y y position of the cell
+     * @param new_ind the new individual
+     * @param is_new_val_ord true if the new individual's fitness is compared
+     * by value
+     * @return true if the cell is empty or its individual loses
+     */
+    private boolean is_settle_at(final int pos_x, final int pos_y,
+            final Individual new_ind, final boolean is_new_val_ord) {
+        if (m_grid_mgr.is_empty(pos_x, pos_y)) {
+            return true;
+        }
+        if (is_new_val_ord && m_grid_mgr.is_value_ordered(pos_x, pos_y)) {
+            final double old_ftn = m_grid_mgr.get_fitness(pos_x, pos_y);
+            final double new_ftn = new_ind.get_fitness().get_fitness();
+            return (old_ftn < new_ftn) || ((old_ftn == new_ftn)
+                    && (new_ind.get_size() < m_grid_mgr.get_size(pos_x, pos_y)));
+        }
+        final Individual old_ind = m_grid_mgr.get(pos_x, pos_y);
+        return (old_ind == null) || does_new_win(old_ind, new_ind);
+    }
+
+    /**
+     * Allows to check if the child can use the packed grid comparison
+     *
+     * @param child_ind the child individual
+     * @return true if the value based selection is used and the child's
+     * fitness is compared by value
+     */
+    private boolean is_packed_cmp(final Individual child_ind) {
+        return (m_sel_type == SelectionType.VALUE)
+                && Fitness.is_value_ordered(child_ind.get_fitness());
+    }
+
+    /**
+     * Allows to find the weakest cell of the area, the equally weak cells are
+     * chosen from by starting at a random row of the area
+     *
+     * @param area the area
+     * @return the flat cell index, x * size_y + y
+     */
+    private int find_weakest(final AreaLocker.Area area) {
+        final int start_x = area.get_min_x()
+                + RandomSource.next_int(area.get_elems_x());
+        return m_grid_mgr.find_weakest(area, start_x);
+    }
+
+    /**
+     * Allows to check if the new individual wins the old one taking into
+     * account their evaluation costs
+     *
+     * @param old_ind the old individual
+     * @param new_ind the new individual
+     * @return true if the new wins the old one
+     */
+    private boolean does_new_win_cost(final Individual old_ind,
+            final Individual new_ind) {
+        final double old_ftn = old_ind.get_fitness().get_fitness();
+        final double new_ftn = new_ind.get_fitness().get_fitness();
+        final double old_cost = old_ind.get_cost();
+        final double new_cost = new_ind.get_cost();
+        //Without the known costs fall back to the value based selection
+        if (Double.isNaN(old_cost) || Double.isNaN(new_cost)) {
+            return (old_ftn < new_ftn) || ((old_ftn == new_ftn)
+                    && (new_ind.get_size() < old_ind.get_size()));
+        }
+        switch (m_cost_trade_off) {
+            case LEXICOGRAPHIC:
+                if (Math.abs(new_ftn - old_ftn) > m_cost_ftn_tol) {
+                    return old_ftn < new_ftn;
+                }
+                return (new_cost < old_cost) || ((new_cost == old_cost)
+                        && (new_ind.get_size() < old_ind.get_size()));
+            case PENALTY:
+                final double old_val = old_ftn - m_cost_weight * Math.log1p(old_cost);
+                final double new_val = new_ftn - m_cost_weight * Math.log1p(new_cost);
+                return (old_val < new_val) || ((old_val == new_val)
+                        && (new_ind.get_size() < old_ind.get_size()));
+            case PARETO:
+                final boolean is_new_ge = (new_ftn >= old_ftn) && (new_cost <= old_cost);
+                final boolean is_old_ge = (old_ftn >= new_ftn) && (old_cost <= new_cost);
+                if (is_new_ge && is_old_ge) {
+                    return new_ind.get_size() < old_ind.get_size();
+                }
+                if (is_new_ge || is_old_ge) {
+                    return is_new_ge;
+                }
+                return RandomSource.next_boolean();
+            default:
+                final String msg = "Unsupported cost trade-off: " + m_cost_trade_off;
+                LOGGER.log(Level.SEVERE, msg);
+                ErrorManager.error(msg);
+                return false;
+        }
+    }
+
+    /**
+     * Allows to check if the child is semantically equivalent to some
+     * individual in the area it is to be settled into
+     *
+     * @param area the area to check
+     * @param child_ind the child individual
+     * @return true if a semantically equivalent individual is found
+     */
+    private boolean is_neighbour_dupl(final AreaLocker.Area area,
+            final Individual child_ind) {
+        final Fingerprint fprint = child_ind.get_fingerprint(m_dupl_screen);
+        if (fprint != null) {
+            for (int pos_x = area.get_min_x(); pos_x < area.get_min_x() + area.get_elems_x(); ++pos_x) {
+                for (int pos_y = area.get_min_y(); pos_y < area.get_min_y() + area.get_elems_y(); ++pos_y) {
+                    final Individual ind = m_grid_mgr.get(pos_x, pos_y);
+                    if ((ind != null) && fprint.equals(ind.get_fingerprint(m_dupl_screen))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allows to get the fitness a child has to reach in order to win against
+     * some individual in the area, for the VALUE selection type
+     *
+     * @param area the area to check
+     * @return the minimum fitness over the area, Double.NEGATIVE_INFINITY if
+     * the area has empty cells
+     */
+    private double get_win_fitness(final AreaLocker.Area area) {
+        double win_ftn = Double.POSITIVE_INFINITY;
+        for (int pos_x = area.get_min_x(); pos_x < area.get_min_x() + area.get_elems_x(); ++pos_x) {
+            for (int pos_y = area.get_min_y(); pos_y < area.get_min_y() + area.get_elems_y(); ++pos_y) {
+                if (m_grid_mgr.is_empty(pos_x, pos_y)) {
+                    return Double.NEGATIVE_INFINITY;
+                }
+                win_ftn = Math.min(win_ftn, m_grid_mgr.get_fitness(pos_x, pos_y));
+            }
+        }
+        return win_ftn;
+    }
+
+    /**
+     * Allows to get the number of children rejected as semantically
+     * equivalent to their neighbours
+     *
+     * @return the number of rejected children
+     */
+    public long get_num_dupl() {
+        return m_num_dupl.get();
+    }
+
+    /**
+     * Allows to get the best fitness value of the population
+     *
+     * @return the best fitness value or NaN if the population is empty
+     */
+    public double get_best_fitness() {
+        return m_grid_mgr.get_best_fitness();
+    }
+
+    /**
+     * Allows to get the memory governor
+     *
+     * @return the memory governor or null if there is no memory budget
+     */
+    public MemoryGovernor get_mem_governor() {
+        return m_governor;
+    }
+
+    /**
+     * Allows to get the individuals currently on the grid, without locking
+     *
+     * @return the list of individuals
+     */
+    List<Individual> get_individuals() {
+        final List<Individual> inds = new ArrayList<>();
+        for (int pos_x = 0; pos_x < m_grid_mgr.get_size_x(); ++pos_x) {
+            for (int pos_y = 0; pos_y < m_grid_mgr.get_size_y(); ++pos_y) {
+                final Individual ind = m_grid_mgr.get(pos_x, pos_y);
+                if (ind != null) {
+                    inds.add(ind);
+                }
+            }
+        }
+        return inds;
+    }
+
     /**
      * Allows to 'kill' the individual
      *
      * @param old_ind the individual to die
      */
     private void kill_individual(final Individual old_ind) {
-        synchronized (m_pop_list) {
-            m_pop_list.remove(old_ind);
-            m_grid_mgr.remove(old_ind);
-        }
+        m_pop_slots.remove(old_ind);
+        m_grid_mgr.remove(old_ind);
     }
 
     /**
@@ -128,28 +376,44 @@ public class BreedingManager {
      * Allows to filter out the individuals using the individual evaluator
      *
      * @param eval the individual evaluator
+     * @return the number of removed individuals, zero if filtering is skipped
      */
-    public void filter_individuals(final IndividualFilter eval) {
-        //Request the area locker to be paused
-        m_locker.pause();
-        if (m_locker.wait_paused(1000)) {
-            synchronized (m_pop_list) {
-                //Find all the individuals to be removed
-                final LinkedList<Individual> to_remove = new LinkedList();
-                m_pop_list.forEach((ind) -> {
-                    if (eval.evaluate(ind)) {
-                        to_remove.add(ind);
+    public int filter_individuals(final IndividualFilter eval) {
+        int num_removed = 0;
+        //Filtering is done in between the phases of the phased reproduction
+        synchronized (m_phase_mon) {
+            //Request the area locker to be paused
+            m_locker.pause();
+            if (m_tiles != null) {
+                m_tiles.pause();
+            }
+            if (m_locker.wait_paused(1000)
+                    && ((m_tiles == null) || m_tiles.wait_paused(1000))) {
+                //Find all the individuals to be removed, including
+                //the parents reproducing without the area lock
+                final List<Individual> to_remove = new ArrayList<>();
+                for (int pos_x = 0; pos_x < m_grid_mgr.get_size_x(); ++pos_x) {
+                    for (int pos_y = 0; pos_y < m_grid_mgr.get_size_y(); ++pos_y) {
+                        final Individual ind = m_grid_mgr.get(pos_x, pos_y);
+                        if ((ind != null) && eval.evaluate(ind)) {
+                            to_remove.add(ind);
+                        }
                     }
-                });
+                }
                 //Remove those individuals
                 to_remove.forEach((ind) -> {
                     kill_individual(ind);
                 });
+                num_removed = to_remove.size();
+            } else {
+                LOGGER.severe("The are locker could not be paused, filtering is skipped!");
+            }
+            m_locker.resume();
+            if (m_tiles != null) {
+                m_tiles.resume();
             }
-        } else {
-            LOGGER.severe("The are locker could not be paused, filtering is skipped!");
         }
-        m_locker.resume();
+        return num_removed;
     }
 
     /**
@@ -167,21 +431,31 @@ public class BreedingManager {
                 || does_new_win(old_ind, new_ind);
         if (is_settle) {
             //Found a free spot or a weaker individual
-            new_ind.set_pos_x(pos_x);
-            new_ind.set_pos_y(pos_y);
-            synchronized (m_pop_list) {
-                if (old_ind != null) {
-                    m_pop_list.remove(old_ind);
-                }
-                m_pop_list.add(new_ind);
-                m_grid_mgr.set(new_ind);
-            }
-            LOGGER.log(Level.FINE, "{0} -> Settled individual {1}",
-                    new Object[]{Thread.currentThread().getName(), new_ind});
+            place_individual(pos_x, pos_y, old_ind, new_ind);
         }
         return is_settle;
     }
 
+    /**
+     * Sets a new individual in place of an old one, without checking which
+     * one wins
+     *
+     * @param pos_x x position of the individual
+     * @param pos_y y position of the individual
+     * @param old_ind the old individual or null if none
+     * @param new_ind the new individual
+     */
+    private void place_individual(final int pos_x, final int pos_y,
+            final Individual old_ind, final Individual new_ind) {
+        new_ind.set_pos_x(pos_x);
+        new_ind.set_pos_y(pos_y);
+        //The grid is set first, the slot then replaces the old individual
+        m_grid_mgr.set(new_ind);
+        m_pop_slots.put(new_ind);
+        LOGGER.log(Level.FINE, "{0} -> Settled individual {1}",
+                new Object[]{Thread.currentThread().getName(), new_ind});
+    }
+
     /**
      * Tries to lock an individual at a random position on the grid.
      *
@@ -190,25 +464,26 @@ public class BreedingManager {
     public Individual aquire_individual() {
         LOGGER.log(Level.FINE, "{0} -> Start achquiring individual",
                 Thread.currentThread().getName());
-        Individual cand_ind;
-        //Find for an individual to mutate
-        synchronized (m_pop_list) {
-            LOGGER.log(Level.FINE, "{0} -> Current population size is: {1}",
-                    new Object[]{Thread.currentThread().getName(),
-                        m_pop_list.size()});
-            //Get the next individual
-            cand_ind = m_pop_list.poll();
+        LOGGER.log(Level.FINE, "{0} -> Current population size is: {1}",
+                new Object[]{Thread.currentThread().getName(),
+                    m_pop_slots.size()});
+        //Get the next individual to mutate
+        final Individual cand_ind = m_pop_slots.poll();
+        if (cand_ind == null) {
+            //The population is empty, e.g. not yet generated
+            return null;
         }
 
         LOGGER.log(Level.FINE, "{0} -> Got individual {1}, trying to lock on",
                 new Object[]{Thread.currentThread().getName(), cand_ind});
 
         //Try to lock on the individual
-        final Individual locked_ind = m_locker.lock_area(cand_ind);
+        Individual locked_ind = m_locker.lock_area(cand_ind);
 
-        //If locking failed release the individual
-        if (locked_ind != cand_ind) {
+        //If locking failed, or the individual has just been replaced, release it
+        if ((locked_ind != cand_ind) || !m_grid_mgr.has(cand_ind)) {
             release_individual(cand_ind);
+            locked_ind = null;
         }
 
         LOGGER.log(Level.FINE, "{0} -> Achquired individual {1}",
@@ -218,6 +493,93 @@ public class BreedingManager {
         return locked_ind;
     }
 
+    /**
+     * Allows to set the tile map, switching to the tiled reproduction. Must be
+     * called before the reproduction starts.
+     *
+     * @param tiles the tile map
+     */
+    public void set_tiles(final TileMap tiles) {
+        this.m_tiles = tiles;
+    }
+
+    /**
+     * Allows to re-balance the tile ownership by the number of individuals per
+     * column. Must only be called when no worker is reproducing.
+     */
+    public void rebalance_tiles() {
+        final int[] loads = new int[m_grid_mgr.get_size_x()];
+        for (int pos_x = 0; pos_x < loads.length; ++pos_x) {
+            for (int pos_y = 0; pos_y < m_grid_mgr.get_size_y(); ++pos_y) {
+                if (m_grid_mgr.get(pos_x, pos_y) != null) {
+                    ++loads[pos_x];
+                }
+            }
+        }
+        m_tiles.rebalance(loads);
+    }
+
+    /**
+     * Tries to acquire an individual at a random position in the worker's
+     * tiles. The area of an interior individual is not locked, the area of a
+     * border individual is.
+     *
+     * @param worker the worker index
+     * @return the acquired individual or null if none
+     */
+    public Individual aquire_tiled(final int worker) {
+        final int pos_x = m_tiles.get_rnd_x_pos(worker);
+        if (pos_x < 0) {
+            return null;
+        }
+        final Individual cand_ind = m_grid_mgr.get(pos_x, m_tiles.get_rnd_y_pos());
+        if (cand_ind == null) {
+            return null;
+        }
+        if (m_tiles.is_interior(worker, m_locker.get_area(cand_ind))) {
+            if (!m_tiles.enter(worker)) {
+                return null;
+            }
+        } else if (m_locker.lock_area(cand_ind) == null) {
+            return null;
+        }
+        //A border individual might have been replaced by a neighbouring worker
+        if (!m_grid_mgr.has(cand_ind)) {
+            release_tiled(worker, cand_ind);
+            return null;
+        }
+        return cand_ind;
+    }
+
+    /**
+     * Allows to release the individual acquired in the tiled mode
+     *
+     * @param worker the worker index
+     * @param ind the acquired individual or null if none
+     */
+    public void release_tiled(final int worker, final Individual ind) {
+        if (ind != null) {
+            if (m_tiles.is_interior(worker, m_locker.get_area(ind))) {
+                m_tiles.leave(worker);
+            } else {
+                m_locker.unlock_area(ind);
+            }
+        }
+    }
+
+    /**
+     * Takes the next individual to reproduce without locking its area, to be
+     * used with the optimistic reproduction.
+     *
+     * @return the individual or null if none
+     */
+    public Individual poll_individual() {
+        final Individual cand_ind = m_pop_slots.poll();
+        LOGGER.log(Level.FINE, "{0} -> Polled individual {1}",
+                new Object[]{Thread.currentThread().getName(), cand_ind});
+        return cand_ind;
+    }
+
     /**
      *
      * Allows to release the previously locked individual
@@ -226,20 +588,18 @@ public class BreedingManager {
      */
     public void release_individual(final Individual ind) {
         if (ind != null) {
-            //Return the individual to the list if it has not been deleted from the grid
-            synchronized (m_pop_list) {
-                LOGGER.log(Level.FINE, "{0} -> Current population size is: {1}",
-                        new Object[]{Thread.currentThread().getName(),
-                            m_pop_list.size()});
-                if (m_grid_mgr.has(ind)) {
-                    LOGGER.log(Level.FINE, "{0} -> Released individual {1}",
-                            new Object[]{Thread.currentThread().getName(), ind});
-                    m_pop_list.add(ind);
+            //Return the individual to the slots if it has not been deleted from the grid
+            if (m_grid_mgr.has(ind) && m_pop_slots.offer(ind)) {
+                //The individual might have been replaced or killed in the mean time
+                if (!m_grid_mgr.has(ind)) {
+                    m_pop_slots.remove(ind);
                 }
-                LOGGER.log(Level.FINE, "{0} -> New population size is: {1}",
-                        new Object[]{Thread.currentThread().getName(),
-                            m_pop_list.size()});
+                LOGGER.log(Level.FINE, "{0} -> Released individual {1}",
+                        new Object[]{Thread.currentThread().getName(), ind});
             }
+            LOGGER.log(Level.FINE, "{0} -> New population size is: {1}",
+                    new Object[]{Thread.currentThread().getName(),
+                        m_pop_slots.size()});
             //unlock the individual
             m_locker.unlock_area(ind);
         }
@@ -257,30 +617,34 @@ public class BreedingManager {
         final int init_pop_size = Math.max(1,
                 (int) (size_x * size_y * init_pop_mult));
         LOGGER.log(Level.FINE, "Started creating initial {0} individuals", init_pop_size);
-        IntStream.range(0, init_pop_size).forEachOrdered(idx -> {
-            int pos_x = 0, pos_y = 0;
-            //Create a new individual with some default, always existing position
-            Individual new_ind = new Individual(pos_x, pos_y, m_mgr_id, m_num_dofs);
-
-            //Try to lock on the individual to some area, this should eventually succeed
-            Individual locked_ind = null;
-            while (locked_ind == null) {
-                pos_x = ThreadLocalRandom.current().nextInt(0, size_x);
-                pos_y = ThreadLocalRandom.current().nextInt(0, size_y);
-                new_ind.set_pos_x(pos_x);
-                new_ind.set_pos_y(pos_y);
-                locked_ind = m_locker.lock_area(new_ind);
-            }
+        final List<Individual> new_inds = new ArrayList<>();
+        for (int start = 0; start < init_pop_size; start += m_init_batch_size) {
+            //Create new individuals with some default, always existing position
+            Individual.generate(m_mgr_id, m_num_dofs,
+                    Math.min(m_init_batch_size, init_pop_size - start), new_inds);
 
-            //Get the old individual at position
-            final Individual old_ind = m_grid_mgr.get(pos_x, pos_y);
+            new_inds.forEach(new_ind -> {
+                //Try to lock on the individual to some area, this should eventually succeed
+                int pos_x = 0, pos_y = 0;
+                Individual locked_ind = null;
+                while (locked_ind == null) {
+                    pos_x = RandomSource.next_int(0, size_x);
+                    pos_y = RandomSource.next_int(0, size_y);
+                    new_ind.set_pos_x(pos_x);
+                    new_ind.set_pos_y(pos_y);
+                    locked_ind = m_locker.lock_area(new_ind);
+                }
+
+                //Get the old individual at position
+                final Individual old_ind = m_grid_mgr.get(pos_x, pos_y);
 
-            //Settle the new individual in place of the old one
-            settle_individual(pos_x, pos_y, old_ind, new_ind);
+                //Settle the new individual in place of the old one
+                settle_individual(pos_x, pos_y, old_ind, new_ind);
 
-            //Unlock the area
-            m_locker.unlock_area(new_ind);
-        });
+                //Unlock the area
+                m_locker.unlock_area(new_ind);
+            });
+        }
         LOGGER.log(Level.FINE, "Finished creating initial {0} individuals", init_pop_size);
     }
 
@@ -292,42 +656,431 @@ public class BreedingManager {
      */
     public void reproduce_individual(final Individual parent_ind, final List<Individual> new_inds) {
         final AreaLocker.Area area = m_locker.get_area(parent_ind);
-        final int area_size = area.get_area_size();
 
         if (m_is_allow_dying && parent_ind.is_has_to_die()) {
             kill_individual(parent_ind);
         } else {
-            parent_ind.reproduce(area_size, new_inds);
-
-            LOGGER.log(Level.FINE, "{0} -> Parent {1} got {2} children",
-                    new Object[]{Thread.currentThread().getName(),
-                        parent_ind, new_inds.size()});
+            produce_children(parent_ind, area, new_inds);
 
             //Try to insert a new individual at a random location around the predecessor
             for (Individual child_ind : new_inds) {
-                LOGGER.log(Level.FINE, "{0} -> Settling child {1} of {2}",
-                        new Object[]{Thread.currentThread().getName(), child_ind, parent_ind});
-                //If the child is as fit as its parent then try settling it into the parent
-                //This shall avoid spreding of the individuals with the same fitness
-                if (m_is_avoid_equal && child_ind.is_equal(parent_ind)) {
-                    settle_individual(parent_ind.get_pos_x(),
-                            parent_ind.get_pos_y(), parent_ind, child_ind);
-                } else {
-                    //Iterate over the area and see where the new individual can be placed
-                    int attempts = area_size;
-                    while (attempts != 0) {
-                        final int pos_x = area.get_rnd_x_pos();
-                        final int pos_y = area.get_rnd_y_pos();
+                settle_child(area, parent_ind, child_ind);
+            }
+        }
+    }
+
+    /**
+     * Produces the children of the individual and computes their fitness
+     *
+     * @param parent_ind the individual to reproduce
+     * @param area the parent's area
+     * @param new_inds the container for children
+     */
+    private void produce_children(final Individual parent_ind,
+            final AreaLocker.Area area, final List<Individual> new_inds) {
+        if (m_surrogate == null) {
+            parent_ind.reproduce(area.get_area_size(), new_inds);
+        } else {
+            parent_ind.reproduce(area.get_area_size(), new_inds,
+                    m_surrogate, get_win_fitness(area));
+        }
+
+        LOGGER.log(Level.FINE, "{0} -> Parent {1} got {2} children",
+                new Object[]{Thread.currentThread().getName(),
+                    parent_ind, new_inds.size()});
+    }
+
+    /**
+     * Attempts to settle the child into the parent's area, the area must be
+     * locked.
+     *
+     * @param area the parent's area
+     * @param parent_ind the parent individual
+     * @param child_ind the child individual
+     */
+    private void settle_child(final AreaLocker.Area area,
+            final Individual parent_ind, final Individual child_ind) {
+        LOGGER.log(Level.FINE, "{0} -> Settling child {1} of {2}",
+                new Object[]{Thread.currentThread().getName(), child_ind, parent_ind});
+        //If the child duplicates its neighbours then it is not settled
+        if ((m_dupl_screen != null) && is_neighbour_dupl(area, child_ind)) {
+            LOGGER.log(Level.FINE, "{0} -> Rejected duplicate child {1} of {2}",
+                    new Object[]{Thread.currentThread().getName(), child_ind, parent_ind});
+            m_num_dupl.incrementAndGet();
+            return;
+        }
+        //If the child is as fit as its parent then try settling it into the parent
+        //This shall avoid spreding of the individuals with the same fitness
+        if (m_is_avoid_equal && child_ind.is_equal(parent_ind)
+                && m_grid_mgr.has(parent_ind)) {
+            settle_individual(parent_ind.get_pos_x(),
+                    parent_ind.get_pos_y(), parent_ind, child_ind);
+        } else {
+            //Iterate over the area and see where the new individual can be placed
+            final boolean is_packed = is_packed_cmp(child_ind);
+            if (is_packed && m_grid_mgr.is_weakest_indexed()) {
+                //Only the weakest cell of the area is to be tried
+                final int idx = find_weakest(area);
+                final int pos_x = idx / m_grid_mgr.get_size_y();
+                final int pos_y = idx % m_grid_mgr.get_size_y();
+                if (is_settle_at(pos_x, pos_y, child_ind, true)) {
+                    place_individual(pos_x, pos_y,
+                            m_grid_mgr.get(pos_x, pos_y), child_ind);
+                }
+            } else {
+                int attempts = area.get_area_size();
+                while (attempts != 0) {
+                    final int pos_x = area.get_rnd_x_pos();
+                    final int pos_y = area.get_rnd_y_pos();
+                    if (is_packed) {
+                        //Compare without de-referencing the old individual
+                        if (is_settle_at(pos_x, pos_y, child_ind, true)) {
+                            place_individual(pos_x, pos_y,
+                                    m_grid_mgr.get(pos_x, pos_y), child_ind);
+                            break;
+                        }
+                    } else {
                         final Individual old_ind = m_grid_mgr.get(pos_x, pos_y);
                         if (settle_individual(pos_x, pos_y, old_ind, child_ind)) {
                             break;
                         }
-                        attempts--;
                     }
-                    LOGGER.log(Level.FINE, "{0} -> Settling child {1} of {2} is DONE",
-                            new Object[]{Thread.currentThread().getName(), child_ind, parent_ind});
+                    attempts--;
+                }
+            }
+            LOGGER.log(Level.FINE, "{0} -> Settling child {1} of {2} is DONE",
+                    new Object[]{Thread.currentThread().getName(), child_ind, parent_ind});
+        }
+    }
+
+    /**
+     * Stores the settlement decision made for a child without the area lock
+     */
+    private static final class Settlement {
+
+        //Stores the child individual
+        final Individual m_child_ind;
+        //Stores the target x position
+        final int m_pos_x;
+        //Stores the target y position
+        final int m_pos_y;
+        //Stores the individual to be replaced or null if none
+        final Individual m_old_ind;
+        //Stores the target cell stamp the decision is based on
+        final long m_stamp;
+
+        Settlement(final Individual child_ind, final int pos_x, final int pos_y,
+                final Individual old_ind, final long stamp) {
+            this.m_child_ind = child_ind;
+            this.m_pos_x = pos_x;
+            this.m_pos_y = pos_y;
+            this.m_old_ind = old_ind;
+            this.m_stamp = stamp;
+        }
+    }
+
+    /**
+     * Decides where the child is to be settled, without the area lock
+     *
+     * @param area the parent's area
+     * @param parent_ind the parent individual
+     * @param child_ind the child individual
+     * @return the settlement decision or null if the child loses everywhere
+     */
+    private Settlement plan_child(final AreaLocker.Area area,
+            final Individual parent_ind, final Individual child_ind) {
+        if (m_dupl_screen != null) {
+            //Compute the fingerprint now to keep it out of the area lock
+            child_ind.get_fingerprint(m_dupl_screen);
+        }
+        if (m_is_avoid_equal && child_ind.is_equal(parent_ind)) {
+            final int pos_x = parent_ind.get_pos_x();
+            final int pos_y = parent_ind.get_pos_y();
+            //The stamp is read first so that any later change is detected
+            final long stamp = m_grid_mgr.get_stamp(pos_x, pos_y);
+            if (does_new_win(parent_ind, child_ind)) {
+                return new Settlement(child_ind, pos_x, pos_y, parent_ind, stamp);
+            }
+        } else {
+            final boolean is_packed = is_packed_cmp(child_ind);
+            if (is_packed && m_grid_mgr.is_weakest_indexed()) {
+                //The index is read without the lock, the stamp validates
+                final int idx = find_weakest(area);
+                final int pos_x = idx / m_grid_mgr.get_size_y();
+                final int pos_y = idx % m_grid_mgr.get_size_y();
+                final long stamp = m_grid_mgr.get_stamp(pos_x, pos_y);
+                if (is_settle_at(pos_x, pos_y, child_ind, true)) {
+                    return new Settlement(child_ind, pos_x, pos_y,
+                            m_grid_mgr.get(pos_x, pos_y), stamp);
+                }
+                return null;
+            }
+            int attempts = area.get_area_size();
+            while (attempts != 0) {
+                final int pos_x = area.get_rnd_x_pos();
+                final int pos_y = area.get_rnd_y_pos();
+                final long stamp = m_grid_mgr.get_stamp(pos_x, pos_y);
+                if (is_settle_at(pos_x, pos_y, child_ind, is_packed)) {
+                    return new Settlement(child_ind, pos_x, pos_y,
+                            m_grid_mgr.get(pos_x, pos_y), stamp);
+                }
+                attempts--;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Allows to lock the area of the individual, waits while the area is
+     * locked by others or the locker is paused.
+     *
+     * @param ind the individual
+     * @return true if locked, false if the thread was interrupted
+     */
+    private boolean wait_lock_area(final Individual ind) {
+        while (m_locker.lock_area(ind) == null) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Allows to reproduce the given individual without locking its area. The
+     * children are produced, their fitness is computed and their settlement
+     * is decided without the lock. The area is then locked only to commit the
+     * decisions, a decision is re-done under the lock if its target cell has
+     * been changed in between.
+     *
+     * @param parent_ind the individual to reproduce, as polled
+     * @param new_inds the container for children
+     */
+    public void reproduce_optimistic(final Individual parent_ind, final List<Individual> new_inds) {
+        final AreaLocker.Area area = m_locker.get_area(parent_ind);
+
+        if (m_is_allow_dying && parent_ind.is_has_to_die()) {
+            if (wait_lock_area(parent_ind)) {
+                try {
+                    //The parent might have been replaced in the mean time
+                    if (m_grid_mgr.has(parent_ind)) {
+                        kill_individual(parent_ind);
+                    }
+                } finally {
+                    m_locker.unlock_area(parent_ind);
+                }
+            }
+        } else {
+            produce_children(parent_ind, area, new_inds);
+
+            //Decide on the settlement without the lock
+            final List<Settlement> plans = new ArrayList<>();
+            for (Individual child_ind : new_inds) {
+                final Settlement plan = plan_child(area, parent_ind, child_ind);
+                if (plan != null) {
+                    plans.add(plan);
+                }
+            }
+
+            //Commit the decisions under the lock
+            if (!plans.isEmpty() && wait_lock_area(parent_ind)) {
+                try {
+                    for (Settlement plan : plans) {
+                        if ((m_dupl_screen != null) && is_neighbour_dupl(area, plan.m_child_ind)) {
+                            m_num_dupl.incrementAndGet();
+                        } else if (m_grid_mgr.get_stamp(plan.m_pos_x, plan.m_pos_y) == plan.m_stamp) {
+                            place_individual(plan.m_pos_x, plan.m_pos_y,
+                                    plan.m_old_ind, plan.m_child_ind);
+                        } else {
+                            //The decision is stale, re-do it under the lock
+                            m_num_stale.incrementAndGet();
+                            settle_child(area, parent_ind, plan.m_child_ind);
+                        }
+                    }
+                } finally {
+                    m_locker.unlock_area(parent_ind);
                 }
             }
         }
     }
+
+    /**
+     * Allows to get the number of optimistic settlement decisions which were
+     * re-done as the target cell had changed
+     *
+     * @return the number of stale decisions
+     */
+    public long get_num_stale() {
+        return m_num_stale.get();
+    }
+
+    /**
+     * Allows to get the number of cell colours for the phased reproduction,
+     * the areas of the cells of the same colour do not overlap.
+     *
+     * @return the number of colours
+     */
+    public int get_num_colours() {
+        return m_num_col_x * m_num_col_y;
+    }
+
+    /**
+     * Applies the splitmix64 finalizer to the value
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Allows to create the random generator of the cell in the generation
+     *
+     * @param seed the run seed
+     * @param gen the generation index, -1 for the initial population
+     * @param pos_x the cell x position
+     * @param pos_y the cell y position
+     * @return the random generator
+     */
+    private Random get_cell_random(final long seed, final long gen,
+            final int pos_x, final int pos_y) {
+        final long cell = ((long) pos_x) * m_grid_mgr.get_size_y() + pos_y;
+        return new Random(mix(mix(seed + gen * 0x9e3779b97f4a7c15L) + cell));
+    }
+
+    /**
+     * Represents the cell action to be run in parallel over cells
+     */
+    private interface CellAction {
+
+        /**
+         * Processes the cell
+         *
+         * @param pos_x the cell x position
+         * @param pos_y the cell y position
+         */
+        void process(final int pos_x, final int pos_y);
+    }
+
+    /**
+     * The fork-join task processing a range of cells
+     */
+    private final class CellsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        //Stores the cell positions, x and y interleaved
+        private final int[] m_cells;
+        //Stores the first cell index
+        private final int m_begin;
+        //Stores the cell index after the last
+        private final int m_end;
+        //Stores the cell action
+        private final CellAction m_action;
+
+        CellsTask(final int[] cells, final int begin, final int end,
+                final CellAction action) {
+            this.m_cells = cells;
+            this.m_begin = begin;
+            this.m_end = end;
+            this.m_action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_end - m_begin == 1) {
+                m_action.process(m_cells[2 * m_begin], m_cells[2 * m_begin + 1]);
+            } else if (m_end > m_begin) {
+                final int mid = (m_begin + m_end) >>> 1;
+                invokeAll(new CellsTask(m_cells, m_begin, mid, m_action),
+                        new CellsTask(m_cells, mid, m_end, m_action));
+            }
+        }
+    }
+
+    /**
+     * Allows to generate the initial population for the phased reproduction,
+     * each cell is populated with the given probability and its individual
+     * is generated using the cell's random generator.
+     *
+     * @param pool the fork-join pool to run in
+     * @param init_pop_mult the initial population size multiple
+     * @param seed the run seed
+     */
+    public void generate_phased(final ForkJoinPool pool,
+            final double init_pop_mult, final long seed) {
+        final int size_x = m_grid_mgr.get_size_x();
+        final int size_y = m_grid_mgr.get_size_y();
+        final int[] cells = new int[2 * size_x * size_y];
+        for (int idx = 0; idx < size_x * size_y; ++idx) {
+            cells[2 * idx] = idx / size_y;
+            cells[2 * idx + 1] = idx % size_y;
+        }
+        synchronized (m_phase_mon) {
+            pool.invoke(new CellsTask(cells, 0, size_x * size_y, (pos_x, pos_y) -> {
+                final Random rnd = get_cell_random(seed, -1, pos_x, pos_y);
+                if (rnd.nextDouble() < init_pop_mult) {
+                    RandomSource.set(rnd);
+                    try {
+                        settle_individual(pos_x, pos_y, null,
+                                new Individual(pos_x, pos_y, m_mgr_id, m_num_dofs));
+                    } finally {
+                        RandomSource.set(null);
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Allows to reproduce all the individuals of the given colour in
+     * parallel, without locking. The cells of the same colour are at least
+     * 2*ch_sp+1 cells apart in x or y so their areas do not overlap. Each cell
+     * uses its own random generator seeded by the run seed, the generation and
+     * the cell position, so the result does not depend on the scheduling.
+     *
+     * @param pool the fork-join pool to run in
+     * @param seed the run seed
+     * @param gen the generation index
+     * @param colour the colour index from [0, get_num_colours())
+     * @return the number of reproduced individuals
+     */
+    public long reproduce_phase(final ForkJoinPool pool, final long seed,
+            final long gen, final int colour) {
+        final int size_x = m_grid_mgr.get_size_x();
+        final int size_y = m_grid_mgr.get_size_y();
+        final int col_x = colour % m_num_col_x;
+        final int col_y = colour / m_num_col_x;
+        final List<Integer> cells = new ArrayList<>();
+        for (int pos_x = col_x; pos_x < size_x; pos_x += m_num_col_x) {
+            for (int pos_y = col_y; pos_y < size_y; pos_y += m_num_col_y) {
+                if (m_grid_mgr.get(pos_x, pos_y) != null) {
+                    cells.add(pos_x);
+                    cells.add(pos_y);
+                }
+            }
+        }
+        final int[] cell_arr = new int[cells.size()];
+        for (int idx = 0; idx < cell_arr.length; ++idx) {
+            cell_arr[idx] = cells.get(idx);
+        }
+        synchronized (m_phase_mon) {
+            pool.invoke(new CellsTask(cell_arr, 0, cell_arr.length / 2, (pos_x, pos_y) -> {
+                final Individual parent_ind = m_grid_mgr.get(pos_x, pos_y);
+                RandomSource.set(get_cell_random(seed, gen, pos_x, pos_y));
+                try {
+                    reproduce_individual(parent_ind, new ArrayList<>());
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in a phased reproduction!", ex);
+                } finally {
+                    RandomSource.set(null);
+                }
+            }));
+        }
+        return cell_arr.length / 2;
+    }
 }
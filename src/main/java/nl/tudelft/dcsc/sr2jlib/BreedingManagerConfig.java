@@ -21,6 +21,9 @@
  */
 package nl.tudelft.dcsc.sr2jlib;
 
+import nl.tudelft.dcsc.sr2jlib.fitness.CostTable;
+import nl.tudelft.dcsc.sr2jlib.fitness.FingerprintScreen;
+import nl.tudelft.dcsc.sr2jlib.fitness.SurrogateModel;
 import nl.tudelft.dcsc.sr2jlib.grid.AreaLockerConfig;
 
 /**
@@ -66,6 +69,109 @@ public class BreedingManagerConfig extends AreaLockerConfig {
      */
     public final int m_max_chld_cnt;
 
+    /**
+     * The fingerprint screen used to reject the children which are
+     * semantically equivalent to an individual in the area they are to be
+     * settled into, null by default meaning no rejection
+     */
+    public FingerprintScreen m_dupl_screen = null;
+
+    /**
+     * The indexes of dofs allowed to be mutated when producing a child, null
+     * by default meaning all dofs
+     */
+    public int[] m_mut_dofs = null;
+
+    /**
+     * The number of dofs, chosen at random from the allowed ones, mutated
+     * when producing a child, 0 by default meaning all allowed dofs. The
+     * other dofs are copied from the parent and the fitness computer may
+     * re-use the parent's per-dof results for them.
+     */
+    public int m_num_mut_dofs = 0;
+
+    /**
+     * The maximum number of individuals of the initial population for which
+     * the fitness is computed in one batch, see
+     * FitnessComputerExpression.compute_fitness_batch
+     */
+    public int m_init_batch_size = 64;
+
+    /**
+     * The surrogate model used to reject, without computing their fitness,
+     * the children predicted to lose against all the individuals of the area
+     * they are to be settled into, null by default meaning no rejection. Is
+     * only used with the VALUE selection type.
+     */
+    public SurrogateModel m_surrogate = null;
+
+    /**
+     * The fitness-cost trade-off used by the COST selection type
+     */
+    public CostTradeOff m_cost_trade_off = CostTradeOff.LEXICOGRAPHIC;
+
+    /**
+     * The fitness tolerance of the LEXICOGRAPHIC trade-off, the fitness
+     * values closer than that are considered equal and the cheaper individual
+     * wins
+     */
+    public double m_cost_ftn_tol = 1.0e-6;
+
+    /**
+     * The weight of the PENALTY trade-off, the fitness is penalized by the
+     * natural logarithm of the evaluation cost times the weight
+     */
+    public double m_cost_weight = 0.001;
+
+    /**
+     * The cost table used to estimate the evaluation cost, null by default
+     * meaning the measured fitness computation time is used
+     */
+    public CostTable m_cost_table = null;
+
+    /**
+     * If true then the children are created and their fitness is computed
+     * without locking the parent's area. The area is then locked only to
+     * settle the children, the settlement decisions made outside the lock
+     * are checked against the grid cell stamps and are retried if stale.
+     */
+    public boolean m_is_optimistic = false;
+
+    /**
+     * If true then the grid maintains the index of the weakest individuals
+     * and, with the VALUE selection type, a child is settled into the weakest
+     * or an empty cell of the area, or is dropped if it loses to it, instead
+     * of trying the randomly chosen cells of the area
+     */
+    public boolean m_is_place_weakest = false;
+
+    /**
+     * The fitness computation timeout per individual in milliseconds, zero by
+     * default meaning none. The individuals whose fitness computation has
+     * timed out get the floor fitness, see EvalDeadline.
+     */
+    public long m_eval_timeout = 0;
+
+    /**
+     * The population memory budget in bytes, zero by default meaning none.
+     * Once the estimated footprint of the population exceeds the budget the
+     * memory governor takes the configured actions, see MemoryGovernor.
+     */
+    public long m_mem_budget = 0;
+
+    /**
+     * The actions taken, in the given order, until the estimated footprint is
+     * below the budget again
+     */
+    public MemoryAction[] m_mem_actions = new MemoryAction[]{
+        MemoryAction.EVICT_CACHES, MemoryAction.TIGHTEN_SIZE,
+        MemoryAction.KILL_LARGEST};
+
+    /**
+     * The memory budget check period in milliseconds
+     */
+    public long m_mem_period = 1000;
+
     /**
      * The basic constructor
      *
@@ -0,0 +1,70 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+/**
+ * Defines the trade-off between the fitness and the evaluation cost used by
+ * the cost-aware selection type
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public enum CostTradeOff {
+
+    /**
+     * The higher fitness wins, the fitness values within the given tolerance
+     * are considered equal and then the lower cost wins.
+     */
+    LEXICOGRAPHIC(0, "Lexicographic"),
+    /**
+     * The fitness is penalized by the logarithm of the cost times the given
+     * weight and the higher penalized fitness wins.
+     */
+    PENALTY(1, "Penalty"),
+    /**
+     * The new individual wins if it Pareto-dominates the old one in terms of
+     * the fitness and the cost. If neither dominates the other then the
+     * winner is chosen at random, keeping the trade-off front diverse.
+     */
+    PARETO(2, "Pareto");
+
+    private final int m_idx;
+    private final String m_name;
+
+    CostTradeOff(final int idx, final String name) {
+        this.m_idx = idx;
+        this.m_name = name;
+    }
+
+    /**
+     * Allows to get the trade-off type unique index
+     *
+     * @return the trade-off type unique index
+     */
+    public int get_idx() {
+        return m_idx;
+    }
+
+    @Override
+    public String toString() {
+        return m_name;
+    }
+}
@@ -0,0 +1,82 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+/**
+ * Defines how the process manager executes its workers
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public enum ExecutionType {
+
+    /**
+     * A fixed pool of platform threads, one per worker, each worker running
+     * the reproduction loop until the end.
+     */
+    FIXED_POOL(0, "Fixed pool"),
+    /**
+     * The caller-supplied executor service, each worker submits one task per
+     * reproduction. The executor is not shut down by the manager.
+     */
+    EXECUTOR(1, "Executor"),
+    /**
+     * The fork-join pool owned by the manager, with the number of workers as
+     * parallelism, each worker submits one task per reproduction. The pool is
+     * shut down when the manager stops. A caller-supplied fork-join pool can
+     * be used with the EXECUTOR type.
+     */
+    FORK_JOIN(2, "Fork-join"),
+    /**
+     * A new virtual thread per reproduction, requires a JDK with virtual
+     * threads, otherwise the fixed pool is used. Allows blocking fitness
+     * computers without a platform thread per worker.
+     */
+    VIRTUAL(3, "Virtual threads"),
+    /**
+     * The fair scheduler shared by the process managers of the JVM, each
+     * worker submits one task per reproduction. The threads are shared among
+     * the managers in proportion to their weights.
+     */
+    SHARED(4, "Shared scheduler");
+
+    private final int m_idx;
+    private final String m_name;
+
+    ExecutionType(final int idx, final String name) {
+        this.m_idx = idx;
+        this.m_name = name;
+    }
+
+    /**
+     * Allows to get the execution type unique index
+     *
+     * @return the execution type unique index
+     */
+    public int get_idx() {
+        return m_idx;
+    }
+
+    @Override
+    public String toString() {
+        return m_name;
+    }
+}
@@ -0,0 +1,323 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The scheduler shared by many process managers of one JVM. It owns a fixed
+ * number of worker threads, by default one per processor, and runs the
+ * reproduction tasks of the registered clients. The clients are served by
+ * stride scheduling: each client has a pass value that advances by the
+ * inverse of its weight with every task run, and the next task is taken from
+ * the client with the smallest pass that has tasks queued. So, the threads
+ * are shared in proportion to the weights among the clients that have work,
+ * and no thread idles while some client has work. A joining client starts
+ * from the smallest pass among the active clients, so it neither starves the
+ * others nor gets starved.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class FairScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(FairScheduler.class.getName());
+
+    //Stores the default scheduler instance
+    private static FairScheduler DEFAULT = null;
+
+    /**
+     * Allows to get the default scheduler, created on the first call, with
+     * one thread per available processor
+     *
+     * @return the default scheduler
+     */
+    public static synchronized FairScheduler get_default() {
+        if (DEFAULT == null) {
+            DEFAULT = new FairScheduler(Runtime.getRuntime().availableProcessors());
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Is the client of the scheduler, its tasks are run by the scheduler
+     * threads in the order of submission
+     */
+    public final class Client implements Executor {
+
+        //Stores the client name
+        private final String m_name;
+        //Stores the queued tasks
+        private final ArrayDeque<Runnable> m_tasks;
+        //Stores the pass value
+        private double m_pass;
+        //Stores the stride, the inverse of the weight
+        private double m_stride;
+        //Stores the number of tasks run
+        private long m_num_runs;
+        //Stores the flag indicating the client has left
+        private boolean m_is_left;
+        //Stores the time spent running the client's tasks
+        private final AtomicLong m_busy_nanos;
+
+        Client(final String name, final double weight) {
+            this.m_name = name;
+            this.m_tasks = new ArrayDeque<>();
+            this.m_pass = 0.0;
+            this.m_stride = 1.0 / weight;
+            this.m_num_runs = 0;
+            this.m_is_left = false;
+            this.m_busy_nanos = new AtomicLong(0);
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            synchronized (m_clients) {
+                if (m_is_left || m_is_shutdown) {
+                    throw new RejectedExecutionException("The client "
+                            + m_name + " is not registered!");
+                }
+                if (m_tasks.isEmpty()) {
+                    //A client without tasks does not accumulate credit
+                    m_pass = Math.max(m_pass, get_min_pass());
+                }
+                m_tasks.add(task);
+                m_clients.notify();
+            }
+        }
+
+        /**
+         * Allows to set the client weight
+         *
+         * @param weight the weight, a positive value
+         */
+        public void set_weight(final double weight) {
+            check_weight(weight);
+            synchronized (m_clients) {
+                m_stride = 1.0 / weight;
+            }
+        }
+
+        /**
+         * Allows to get the number of tasks run for the client
+         *
+         * @return the number of tasks run
+         */
+        public long get_num_runs() {
+            synchronized (m_clients) {
+                return m_num_runs;
+            }
+        }
+
+        /**
+         * Allows to get the time the scheduler threads spent running the
+         * client's tasks, is not locking
+         *
+         * @return the busy time in nanoseconds
+         */
+        public long get_busy_nanos() {
+            return m_busy_nanos.get();
+        }
+
+        /**
+         * Allows to un-register the client, the queued tasks are dropped and
+         * the new ones are rejected
+         */
+        public void leave() {
+            synchronized (m_clients) {
+                if (!m_is_left) {
+                    m_is_left = true;
+                    m_clients.remove(this);
+                    if (!m_tasks.isEmpty()) {
+                        LOGGER.log(Level.WARNING, "The client {0} left with "
+                                + "{1} tasks queued!", new Object[]{m_name, m_tasks.size()});
+                        m_tasks.clear();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return m_name;
+        }
+    }
+
+    //Stores the registered clients, is also the scheduler monitor
+    private final List<Client> m_clients;
+    //Stores the worker threads
+    private final Thread[] m_threads;
+    //Stores the shutdown flag
+    private boolean m_is_shutdown;
+
+    /**
+     * The basic constructor, starts the daemon worker threads
+     *
+     * @param num_threads the number of worker threads
+     */
+    public FairScheduler(final int num_threads) {
+        if (num_threads <= 0) {
+            throw new IllegalArgumentException("Improper number of "
+                    + "scheduler threads: " + num_threads);
+        }
+        this.m_clients = new ArrayList<>();
+        this.m_is_shutdown = false;
+        this.m_threads = new Thread[num_threads];
+        for (int idx = 0; idx < num_threads; ++idx) {
+            m_threads[idx] = new Thread(this::run_worker);
+            m_threads[idx].setName("SR-Scheduler-" + idx);
+            m_threads[idx].setDaemon(true);
+            m_threads[idx].start();
+        }
+    }
+
+    /**
+     * Allows to check the weight value
+     *
+     * @param weight the weight
+     */
+    private static void check_weight(final double weight) {
+        if (!(weight > 0.0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Improper client weight: " + weight);
+        }
+    }
+
+    /**
+     * Allows to register a new client
+     *
+     * @param name the client name
+     * @param weight the client weight, a positive value
+     * @return the new client
+     */
+    public Client join(final String name, final double weight) {
+        check_weight(weight);
+        synchronized (m_clients) {
+            if (m_is_shutdown) {
+                throw new RejectedExecutionException("The scheduler is shut down!");
+            }
+            final Client client = new Client(name, weight);
+            client.m_pass = get_min_pass();
+            m_clients.add(client);
+            return client;
+        }
+    }
+
+    /**
+     * Allows to get the number of worker threads
+     *
+     * @return the number of worker threads
+     */
+    public int get_num_threads() {
+        return m_threads.length;
+    }
+
+    /**
+     * Allows to get the smallest pass among the clients having tasks, must
+     * be called under the monitor
+     *
+     * @return the smallest pass or zero if there are no such clients
+     */
+    private double get_min_pass() {
+        double min_pass = Double.POSITIVE_INFINITY;
+        for (Client client : m_clients) {
+            if (!client.m_tasks.isEmpty()) {
+                min_pass = Math.min(min_pass, client.m_pass);
+            }
+        }
+        return Double.isInfinite(min_pass) ? 0.0 : min_pass;
+    }
+
+    /**
+     * Allows to take the next task, waits while there are none
+     *
+     * @param task_out the array to store the next task into
+     * @return the client of the next task or null if the scheduler is shut
+     * down
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Client take_task(final Runnable[] task_out) throws InterruptedException {
+        synchronized (m_clients) {
+            while (!m_is_shutdown) {
+                Client next = null;
+                for (Client client : m_clients) {
+                    if (!client.m_tasks.isEmpty()
+                            && ((next == null) || (client.m_pass < next.m_pass))) {
+                        next = client;
+                    }
+                }
+                if (next != null) {
+                    next.m_pass += next.m_stride;
+                    ++next.m_num_runs;
+                    task_out[0] = next.m_tasks.poll();
+                    return next;
+                }
+                m_clients.wait();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Runs the tasks of the clients until the shut down
+     */
+    private void run_worker() {
+        try {
+            final Runnable[] task = new Runnable[1];
+            Client client;
+            while ((client = take_task(task)) != null) {
+                final long start_time = System.nanoTime();
+                try {
+                    task[0].run();
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in a scheduler task!", ex);
+                } finally {
+                    task[0] = null;
+                    client.m_busy_nanos.addAndGet(System.nanoTime() - start_time);
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "The scheduler thread {0} is interrupted!",
+                    Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Allows to shut down the scheduler, the queued tasks are dropped
+     */
+    public void shutdown() {
+        synchronized (m_clients) {
+            m_is_shutdown = true;
+            for (Client client : m_clients) {
+                client.m_is_left = true;
+                client.m_tasks.clear();
+            }
+            m_clients.clear();
+            m_clients.notifyAll();
+        }
+    }
+}
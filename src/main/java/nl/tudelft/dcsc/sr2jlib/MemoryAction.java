@@ -0,0 +1,74 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+/**
+ * Defines the actions taken by the memory governor once the estimated
+ * population footprint exceeds the budget, see MemoryGovernor
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public enum MemoryAction {
+
+    /**
+     * Drop the cached string representations of the expressions and the
+     * caches of the fitness computer, e.g. the compiled dof methods.
+     */
+    EVICT_CACHES(0, "Evict caches"),
+    /**
+     * Tighten the tree size limit of the newly generated and mutated trees,
+     * is relaxed back once the footprint is well below the budget.
+     */
+    TIGHTEN_SIZE(1, "Tighten tree size"),
+    /**
+     * Kill the individuals with the largest footprint, the best individual
+     * is kept.
+     */
+    KILL_LARGEST(2, "Kill largest"),
+    /**
+     * Kill the least fit individuals, the larger ones first among the equally
+     * fit, the best individual is kept.
+     */
+    KILL_WEAKEST(3, "Kill weakest");
+
+    private final int m_idx;
+    private final String m_name;
+
+    MemoryAction(final int idx, final String name) {
+        this.m_idx = idx;
+        this.m_name = name;
+    }
+
+    /**
+     * Allows to get the memory action unique index
+     *
+     * @return the memory action unique index
+     */
+    public int get_idx() {
+        return m_idx;
+    }
+
+    @Override
+    public String toString() {
+        return m_name;
+    }
+}
@@ -0,0 +1,309 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessComputerExpression;
+import nl.tudelft.dcsc.sr2jlib.fitness.FitnessManager;
+import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
+import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+
+/**
+ * Allows to keep the estimated memory footprint of the population within a
+ * byte budget. Every period the footprint of the individuals on the grid is
+ * estimated, see Individual.get_footprint. If it exceeds the budget then the
+ * configured actions are taken, in the given order, until the footprint is
+ * below the low watermark of the budget. The tree size limit is tightened at
+ * most once per period and is relaxed back once the footprint is well below
+ * the budget. Note that the grammars shared between managers share the limit.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class MemoryGovernor {
+
+    private static final Logger LOGGER = Logger.getLogger(MemoryGovernor.class.getName());
+
+    //Stores the budget fraction to get below once the budget is exceeded
+    private static final double LOW_WATERMARK = 0.9;
+    //Stores the budget fraction below which the tree size limit is relaxed
+    private static final double RELAX_WATERMARK = 0.5;
+    //Stores the factor the tree size limit is tightened with
+    private static final double TIGHTEN_FACTOR = 0.8;
+
+    //Stores the breeding manager
+    private final BreedingManager m_breeder;
+    //Stores the manager id
+    private final int m_mgr_id;
+    //Stores the number of dofs
+    private final int m_num_dofs;
+    //Stores the budget in bytes
+    private final long m_budget;
+    //Stores the actions to take
+    private final MemoryAction[] m_actions;
+    //Stores the check period in milliseconds
+    private final long m_period;
+    //Stores the last estimated footprint
+    private volatile long m_footprint;
+    //Stores the number of times the budget was exceeded
+    private volatile long m_num_overruns;
+    //Stores the number of killed individuals
+    private final AtomicLong m_num_killed;
+    //Stores the timer or null if not started
+    private ScheduledExecutorService m_timer;
+
+    /**
+     * The basic constructor
+     *
+     * @param breeder the breeding manager
+     * @param conf the configuration object
+     */
+    MemoryGovernor(final BreedingManager breeder, final BreedingManagerConfig conf) {
+        if (conf.m_mem_actions == null) {
+            throw new IllegalArgumentException("The memory actions are not set!");
+        }
+        this.m_breeder = breeder;
+        this.m_mgr_id = conf.m_mgr_id;
+        this.m_num_dofs = conf.m_num_dofs;
+        this.m_budget = conf.m_mem_budget;
+        this.m_actions = conf.m_mem_actions.clone();
+        this.m_period = Math.max(1, conf.m_mem_period);
+        this.m_footprint = 0;
+        this.m_num_overruns = 0;
+        this.m_num_killed = new AtomicLong(0);
+        this.m_timer = null;
+    }
+
+    /**
+     * Allows to start the periodic budget check
+     */
+    public synchronized void start() {
+        if (m_timer == null) {
+            m_timer = Executors.newSingleThreadScheduledExecutor(run -> {
+                final Thread th = new Thread(run);
+                th.setName("SR-Memory-" + m_mgr_id);
+                th.setDaemon(true);
+                return th;
+            });
+            m_timer.scheduleWithFixedDelay(() -> {
+                try {
+                    check();
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in the memory governor!", ex);
+                }
+            }, m_period, m_period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Allows to stop the periodic budget check
+     */
+    public synchronized void stop() {
+        if (m_timer != null) {
+            m_timer.shutdown();
+            m_timer = null;
+        }
+    }
+
+    /**
+     * Allows to estimate the footprint of the individuals
+     *
+     * @param inds the individuals
+     * @return the estimated footprint in bytes
+     */
+    private static long get_footprint(final List<Individual> inds) {
+        long footprint = 0;
+        for (Individual ind : inds) {
+            footprint += ind.get_footprint();
+        }
+        return footprint;
+    }
+
+    /**
+     * Does one budget check and takes the actions if needed, is not to be
+     * called from a worker holding an area lock
+     */
+    public synchronized void check() {
+        final List<Individual> inds = m_breeder.get_individuals();
+        long footprint = get_footprint(inds);
+        if (footprint > m_budget) {
+            ++m_num_overruns;
+            LOGGER.log(Level.WARNING, "Process Manager (id:{0}) population "
+                    + "footprint {1} exceeds the budget {2}", new Object[]{
+                        m_mgr_id, footprint, m_budget});
+            final long target = (long) (m_budget * LOW_WATERMARK);
+            for (int idx = 0; (idx < m_actions.length) && (footprint > target); ++idx) {
+                switch (m_actions[idx]) {
+                    case EVICT_CACHES:
+                        for (Individual ind : inds) {
+                            ind.evict_caches();
+                        }
+                        final FitnessComputerExpression inst = FitnessManager.inst();
+                        if (inst != null) {
+                            inst.evict_caches();
+                        }
+                        footprint = get_footprint(inds);
+                        break;
+                    case TIGHTEN_SIZE:
+                        scale_ts_limits(true);
+                        break;
+                    case KILL_LARGEST:
+                    case KILL_WEAKEST:
+                        footprint = kill(inds, footprint, target,
+                                m_actions[idx] == MemoryAction.KILL_LARGEST);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } else if (footprint < m_budget * RELAX_WATERMARK) {
+            scale_ts_limits(false);
+        }
+        m_footprint = footprint;
+    }
+
+    /**
+     * Allows to tighten or relax the tree size limits of the manager grammars
+     *
+     * @param is_tighten true to tighten, false to relax
+     */
+    private void scale_ts_limits(final boolean is_tighten) {
+        for (int dof_idx = 0; dof_idx < m_num_dofs; ++dof_idx) {
+            final Grammar grammar = Grammar.inst(m_mgr_id, dof_idx);
+            final int old_limit = grammar.get_ts_limit();
+            if (is_tighten || (old_limit < grammar.get_max_ts())) {
+                final int new_limit = grammar.set_ts_limit(is_tighten
+                        ? (int) (old_limit * TIGHTEN_FACTOR)
+                        : (int) Math.ceil(old_limit / TIGHTEN_FACTOR));
+                if (new_limit != old_limit) {
+                    LOGGER.log(Level.INFO, "Process Manager (id:{0}) dof {1} "
+                            + "tree size limit: {2} -> {3}", new Object[]{
+                                m_mgr_id, dof_idx, old_limit, new_limit});
+                }
+            }
+        }
+    }
+
+    /**
+     * Allows to kill the individuals until the footprint is below the target,
+     * the best individual is kept
+     *
+     * @param inds the individuals
+     * @param footprint the current footprint
+     * @param target the target footprint
+     * @param is_largest true to kill the largest individuals first, false to
+     * kill the least fit ones first
+     * @return the new footprint
+     */
+    private long kill(final List<Individual> inds, long footprint,
+            final long target, final boolean is_largest) {
+        final Map<Individual, Long> fps = new IdentityHashMap<>();
+        Individual best_ind = null;
+        for (Individual ind : inds) {
+            fps.put(ind, ind.get_footprint());
+            if ((best_ind == null) || (get_fitness(ind) > get_fitness(best_ind))) {
+                best_ind = ind;
+            }
+        }
+        final List<Individual> cands = new ArrayList<>(inds);
+        cands.remove(best_ind);
+        cands.sort((first, second) -> {
+            if (!is_largest) {
+                final int cmp = Double.compare(get_fitness(first), get_fitness(second));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Long.compare(fps.get(second), fps.get(first));
+        });
+        final Set<Individual> to_kill = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int idx = 0; (idx < cands.size()) && (footprint > target); ++idx) {
+            to_kill.add(cands.get(idx));
+            footprint -= fps.get(cands.get(idx));
+        }
+        if (!to_kill.isEmpty()) {
+            //Some of the chosen individuals may have been replaced already
+            final int num_killed = m_breeder.filter_individuals(to_kill::contains);
+            m_num_killed.addAndGet(num_killed);
+            LOGGER.log(Level.INFO, "Process Manager (id:{0}) killed {1} "
+                    + "individuals to fit the memory budget", new Object[]{
+                        m_mgr_id, num_killed});
+        }
+        return footprint;
+    }
+
+    /**
+     * Allows to get the fitness value of the individual
+     *
+     * @param ind the individual
+     * @return the fitness value
+     */
+    private static double get_fitness(final Individual ind) {
+        return ind.get_fitness().get_fitness();
+    }
+
+    /**
+     * Allows to get the last estimated population footprint
+     *
+     * @return the footprint in bytes
+     */
+    public long get_footprint() {
+        return m_footprint;
+    }
+
+    /**
+     * Allows to get the memory budget
+     *
+     * @return the budget in bytes
+     */
+    public long get_budget() {
+        return m_budget;
+    }
+
+    /**
+     * Allows to get the number of times the budget was found exceeded
+     *
+     * @return the number of overruns
+     */
+    public long get_num_overruns() {
+        return m_num_overruns;
+    }
+
+    /**
+     * Allows to get the number of individuals killed to fit the budget
+     *
+     * @return the number of killed individuals
+     */
+    public long get_num_killed() {
+        return m_num_killed.get();
+    }
+}
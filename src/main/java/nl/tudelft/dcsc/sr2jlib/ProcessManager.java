@@ -21,15 +21,28 @@
  */
 package nl.tudelft.dcsc.sr2jlib;
 
+import nl.tudelft.dcsc.sr2jlib.fitness.EvalDeadline;
+import nl.tudelft.dcsc.sr2jlib.grid.AsyncGridObserver;
 import nl.tudelft.dcsc.sr2jlib.grid.GridObserver;
 import nl.tudelft.dcsc.sr2jlib.grid.Individual;
+import nl.tudelft.dcsc.sr2jlib.grid.TileMap;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
@@ -43,16 +56,64 @@ public class ProcessManager {
 
     private static final Logger LOGGER = Logger.getLogger(ProcessManager.class.getName());
 
-    private boolean m_is_active;
-    private boolean m_is_stopping;
+    private volatile boolean m_is_active;
+    private volatile boolean m_is_stopping;
     private final FinishedCallback m_done_cb;
     private final GridObserver m_observer;
     private int m_num_workers;
-    private long m_num_reps;
+    //Stores the initial number of workers
+    private final int m_init_workers;
+    //Stores the running workers
+    private final List<GpWorkerTask> m_workers;
+    //Stores the index of the next worker
+    private int m_next_idx;
+    //Stores the number of reproduction attempts
+    private final LongAdder m_num_attempts;
+    //Stores the number of attempts failed to get an individual
+    private final LongAdder m_num_fails;
+    //Stores the number of reproductions reserved by the workers
+    private final AtomicLong m_num_reserved;
+    //Stores the number of granted reproductions
+    private final LongAdder m_num_reps;
+    //Stores the stop request flag
+    private volatile boolean m_is_stop_req;
     private final long m_max_num_reps;
+    private final int m_reps_chunk;
+    //Stores the executor or null for the shared scheduler
     private final ExecutorService m_executor;
+    //Stores the executor the worker tasks are submitted to
+    private Executor m_task_exec;
+    //Stores the shared scheduler or null if not used
+    private final FairScheduler m_scheduler;
+    //Stores the shared scheduler client, while running
+    private volatile FairScheduler.Client m_client;
+    //Stores the shared scheduler weight
+    private final double m_sched_weight;
+    //Stores the flag indicating that the executor is to be shut down by us
+    private final boolean m_is_own_executor;
+    //Stores the flag indicating that the workers submit a task per reproduction
+    private final boolean m_is_chained;
     private final BreedingManager m_breeder;
     private final double m_init_pop_mult;
+    private final boolean m_is_optimistic;
+    private final boolean m_is_tiled;
+    private final int m_tile_period;
+    private final Phaser m_tile_sync;
+    private final boolean m_is_phased;
+    private final int m_parallelism;
+    //Stores the own fork-join pool or null if not used
+    private final ForkJoinPool m_fj_pool;
+    private final long m_seed;
+    //Stores the termination policy or null if not used
+    private final TerminationPolicy m_termination;
+    //Stores the termination policy check period in milliseconds
+    private final long m_term_period;
+    //Stores the termination policy timer, while running
+    private ScheduledExecutorService m_term_timer;
+    //Stores the wall-clock time of the start
+    private long m_start_wall;
+    //Stores the process CPU time of the start
+    private long m_start_cpu;
 
     /**
      * The basic constructor
@@ -63,27 +124,125 @@ public class ProcessManager {
         this.m_is_active = false;
         this.m_is_stopping = false;
         this.m_done_cb = conf.m_done_cb;
-        this.m_observer = conf.m_observer;
+        this.m_observer = conf.m_is_async_obs
+                ? new AsyncGridObserver(conf.m_observer, conf.m_size_x,
+                        conf.m_size_y, conf.m_obs_capacity,
+                        conf.m_obs_batch_size, conf.m_obs_overflow)
+                : conf.m_observer;
         this.m_init_pop_mult = conf.m_init_pop_mult;
         this.m_num_workers = conf.m_num_workers;
+        this.m_is_phased = conf.m_is_phased;
+        this.m_parallelism = conf.m_num_workers;
+        this.m_seed = conf.m_seed;
+        if (m_is_phased) {
+            //The phases are driven by one worker
+            this.m_num_workers = 1;
+        }
+        this.m_init_workers = m_num_workers;
+        this.m_workers = new ArrayList<>();
+        this.m_next_idx = 0;
+        this.m_num_attempts = new LongAdder();
+        this.m_num_fails = new LongAdder();
         this.m_max_num_reps = conf.m_max_num_reps;
+        this.m_reps_chunk = Math.max(1, conf.m_reps_chunk);
+        this.m_is_optimistic = conf.m_is_optimistic;
         this.m_breeder = new BreedingManager(m_observer, conf);
+        this.m_is_tiled = conf.m_is_tiled && !m_is_phased;
+        this.m_tile_period = Math.max(1, conf.m_tile_period);
+        if (m_is_tiled) {
+            m_breeder.set_tiles(new TileMap(conf, m_num_workers));
+            //The tiles are re-balanced once all the workers have arrived
+            this.m_tile_sync = new Phaser(m_num_workers) {
+                @Override
+                protected boolean onAdvance(final int phase, final int parties) {
+                    if (parties > 0) {
+                        m_breeder.rebalance_tiles();
+                    }
+                    return parties == 0;
+                }
+            };
+        } else {
+            this.m_tile_sync = null;
+        }
 
-        this.m_num_reps = 0;
+        this.m_num_reserved = new AtomicLong(0);
+        this.m_num_reps = new LongAdder();
+        this.m_is_stop_req = false;
+        this.m_termination = conf.m_termination;
+        this.m_term_period = Math.max(1, conf.m_term_period);
+        this.m_term_timer = null;
 
+        //Tiled workers wait for each other so they need own threads, the
+        //phases, and their driver, run on the own fork-join pool
+        final ExecutionType exec_type = m_is_phased ? ExecutionType.FORK_JOIN
+                : (m_is_tiled ? ExecutionType.FIXED_POOL : conf.m_exec_type);
+        ExecutorService executor = null;
+        FairScheduler scheduler = null;
+        ForkJoinPool fj_pool = null;
+        switch (exec_type) {
+            case EXECUTOR:
+                if (conf.m_executor == null) {
+                    throw new IllegalArgumentException("The executor "
+                            + "service is not set for the " + exec_type
+                            + " execution type!");
+                }
+                executor = conf.m_executor;
+                break;
+            case FORK_JOIN:
+                fj_pool = make_fork_join_pool(conf.m_mgr_id, m_parallelism);
+                executor = fj_pool;
+                break;
+            case VIRTUAL:
+                executor = make_virtual_executor();
+                break;
+            case SHARED:
+                scheduler = (conf.m_scheduler != null)
+                        ? conf.m_scheduler : FairScheduler.get_default();
+                break;
+            default:
+                break;
+        }
+        this.m_fj_pool = fj_pool;
+        this.m_scheduler = scheduler;
+        this.m_sched_weight = conf.m_sched_weight;
+        this.m_client = null;
+        if (scheduler != null) {
+            this.m_is_own_executor = false;
+            this.m_is_chained = !m_is_phased;
+            this.m_executor = null;
+        } else {
+            this.m_is_own_executor = (executor == null) || (fj_pool != null)
+                    || (exec_type == ExecutionType.VIRTUAL);
+            this.m_is_chained = (executor != null) && !m_is_phased;
+            this.m_executor = (executor != null) ? executor
+                    : make_fixed_executor(conf.m_mgr_id, m_num_workers);
+        }
+        this.m_task_exec = m_executor;
+    }
+
+    /**
+     * Allows to create the fixed pool executor
+     *
+     * @param mgr_id the manager id
+     * @param num_workers the number of workers
+     * @return the executor with a daemon thread per worker
+     */
+    private static ThreadPoolExecutor make_fixed_executor(
+            final int mgr_id, final int num_workers) {
         final UncaughtExceptionHandler ueh = new UncaughtExceptionHandler() {
             @Override
             public void uncaughtException(Thread th, Throwable ex) {
                 LOGGER.log(Level.SEVERE, "The worker thread " + th.getName() + " has failed!", ex);
             }
         };
-        this.m_executor = Executors.newFixedThreadPool(m_num_workers, new ThreadFactory() {
+        return new ThreadPoolExecutor(num_workers, num_workers, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new ThreadFactory() {
             private int idx = 0;
 
             @Override
             public Thread newThread(Runnable r) {
                 Thread th = new Thread(r);
-                th.setName("SR-Worker-" + conf.m_mgr_id + "-" + idx);
+                th.setName("SR-Worker-" + mgr_id + "-" + idx);
                 th.setDaemon(true);
                 th.setUncaughtExceptionHandler(ueh);
                 ++idx;
@@ -92,93 +251,452 @@ public class ProcessManager {
         });
     }
 
+    /**
+     * Allows to create the own fork-join pool
+     *
+     * @param mgr_id the manager id
+     * @param parallelism the pool parallelism
+     * @return the pool with daemon worker threads
+     */
+    private static ForkJoinPool make_fork_join_pool(
+            final int mgr_id, final int parallelism) {
+        final UncaughtExceptionHandler ueh = new UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread th, Throwable ex) {
+                LOGGER.log(Level.SEVERE, "The worker thread " + th.getName() + " has failed!", ex);
+            }
+        };
+        return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                final ForkJoinWorkerThread th = ForkJoinPool.
+                        defaultForkJoinWorkerThreadFactory.newThread(pool);
+                th.setName("SR-Worker-" + mgr_id + "-" + th.getPoolIndex());
+                th.setDaemon(true);
+                return th;
+            }
+        }, ueh, false);
+    }
+
+    /**
+     * Allows to create the virtual thread per task executor, is looked up by
+     * reflection as it is only present in the newer JDKs
+     *
+     * @return the executor or null if the virtual threads are not supported
+     */
+    private static ExecutorService make_virtual_executor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "The virtual threads are not "
+                    + "supported, using the fixed pool!", ex);
+            return null;
+        }
+    }
+
     /**
      * Is the Genetic procedure worker class responsible for running GP
      * iterations
      */
     private class GpWorkerTask implements Runnable {
 
-        GpWorkerTask(final int idx) {
+        //Stores the worker index
+        private final int m_idx;
+        //Stores the number of reproductions left in the reserved chunk
+        private long m_num_left;
+        //Stores the container for children
+        private final List<Individual> m_inds;
+        //Stores the flag indicating that the initial population is generated
+        private boolean m_is_init;
+        //Stores the flag indicating that the worker is to finish
+        private volatile boolean m_is_retired;
+
+        /**
+         * The basic constructor
+         *
+         * @param idx the worker index
+         * @param is_init true if the worker does not need to generate its
+         * share of the initial population
+         */
+        GpWorkerTask(final int idx, final boolean is_init) {
             super();
+            this.m_idx = idx;
+            this.m_num_left = 0;
+            this.m_inds = new ArrayList<>();
+            this.m_is_init = is_init;
+            this.m_is_retired = false;
             LOGGER.log(Level.FINE, "Worker {0} created!", idx);
         }
 
+        /**
+         * Allows to check if the worker can still reproduce
+         *
+         * @return true if the reproduction is still allowed
+         */
+        private boolean is_can_reproduce() {
+            return !m_is_stop_req && !m_is_retired && ((m_num_left > 0)
+                    || ProcessManager.this.is_can_reproduce());
+        }
+
+        /**
+         * Request reproduction, takes it from the worker's chunk, reserving a
+         * new chunk if the current one is used up.
+         *
+         * @return true if a reproduction is granted
+         */
+        private boolean is_reproduction_allowed() {
+            if (m_num_left == 0) {
+                m_num_left = reserve_reproductions();
+            }
+            if ((m_num_left > 0) && !m_is_stop_req) {
+                --m_num_left;
+                grant_reproduction();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * Runs the reproduction in the tiled mode
+         *
+         * @param inds the container for children
+         */
+        private void run_tiled(final List<Individual> inds) {
+            //Wait for the initial population before breeding without locks
+            m_tile_sync.arriveAndAwaitAdvance();
+            long attempts = 0;
+            while (is_can_reproduce()) {
+                Individual locked_ind = null;
+                try {
+                    locked_ind = m_breeder.aquire_tiled(m_idx);
+                    if ((locked_ind != null) && is_reproduction_allowed()) {
+                        m_breeder.reproduce_individual(locked_ind, inds);
+                    }
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in a GP worker!", ex);
+                } finally {
+                    m_breeder.release_tiled(m_idx, locked_ind);
+                }
+                if (++attempts % m_tile_period == 0) {
+                    m_tile_sync.arriveAndAwaitAdvance();
+                }
+            }
+        }
+
+        /**
+         * Does one reproduction attempt on the shared grid
+         *
+         * @param inds the container for children
+         */
+        private void reproduce_shared(final List<Individual> inds) {
+            Individual locked_ind = null;
+            m_num_attempts.increment();
+            try {
+                if (m_is_optimistic) {
+                    //Get a new individual, its area is locked when settling
+                    locked_ind = m_breeder.poll_individual();
+                    if ((locked_ind != null) && is_reproduction_allowed()) {
+                        m_breeder.reproduce_optimistic(locked_ind, inds);
+                    }
+                } else {
+                    //First get a new individual
+                    locked_ind = m_breeder.aquire_individual();
+                    //Check if we can reproduce
+                    if ((locked_ind != null) && is_reproduction_allowed()) {
+                        //Reproduce individual
+                        m_breeder.reproduce_individual(locked_ind, inds);
+                    }
+                }
+            } catch (Throwable ex) {
+                LOGGER.log(Level.SEVERE, "Exception in a GP worker!", ex);
+            } finally {
+                if (locked_ind == null) {
+                    m_num_fails.increment();
+                }
+                //Unlock the individual
+                m_breeder.release_individual(locked_ind);
+            }
+        }
+
+        /**
+         * Runs the reproduction on the shared grid
+         *
+         * @param inds the container for children
+         */
+        private void run_shared(final List<Individual> inds) {
+            while (is_can_reproduce()) {
+                reproduce_shared(inds);
+            }
+        }
+
+        /**
+         * Does one step of the worker and re-submits itself for the next one,
+         * the first step generates the initial population
+         */
+        private void run_chained() {
+            try {
+                if (m_is_init) {
+                    reproduce_shared(m_inds);
+                } else {
+                    LOGGER.log(Level.INFO, "Process Manager {0} -> Worker {1} started!",
+                            new Object[]{ProcessManager.this.get_mgr_id(), m_idx});
+                    m_is_init = true;
+                    m_breeder.generate_initial(m_init_pop_mult / m_init_workers);
+                }
+                if (is_can_reproduce()) {
+                    m_task_exec.execute(this);
+                    return;
+                }
+            } catch (RejectedExecutionException ex) {
+                LOGGER.log(Level.WARNING, "The GP worker step is rejected, premature finish!", ex);
+            } catch (Throwable ex) {
+                LOGGER.log(Level.SEVERE, "Exception in a GP worker, premature finish!", ex);
+            }
+
+            //Give back the unused reproductions
+            return_reproductions(m_num_left);
+            m_num_left = 0;
+
+            //Notify that the worker is stopped, unless it is to drain
+            if (!notify_worker_finished(this, true)) {
+                try {
+                    m_task_exec.execute(this);
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    LOGGER.log(Level.WARNING, "The GP worker step is rejected, premature finish!", ex);
+                    notify_worker_finished(this, false);
+                }
+            }
+
+            LOGGER.log(Level.INFO, "Process Manager {0} -> Worker {1} finished!",
+                    new Object[]{ProcessManager.this.get_mgr_id(), m_idx});
+        }
+
         @Override
         public void run() {
+            if (m_is_chained) {
+                run_chained();
+                return;
+            }
+
             LOGGER.log(Level.INFO, "Process Manager {0} -> Thread {1} started!",
                     new Object[]{ProcessManager.this.get_mgr_id(),
                         Thread.currentThread().getName()});
 
-            final List<Individual> inds = new ArrayList();
+            //Notify that the thread is stopped, unless it is to drain
+            do {
+                try {
+                    //Generate initial population
+                    if (!m_is_init) {
+                        m_is_init = true;
+                        m_breeder.generate_initial(m_init_pop_mult / m_init_workers);
+                    }
+                    //Go on with reproduction
+                    if (m_is_tiled) {
+                        run_tiled(m_inds);
+                    } else {
+                        run_shared(m_inds);
+                    }
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in a GP worker, premature finish!", ex);
+                } finally {
+                    if (m_is_tiled) {
+                        //Do not hold back the other workers any more
+                        m_tile_sync.arriveAndDeregister();
+                    }
+                    //Give back the unused reproductions
+                    return_reproductions(m_num_left);
+                    m_num_left = 0;
+                }
+            } while (!notify_worker_finished(this, true));
+
+            LOGGER.log(Level.INFO, "Process Manager {0} -> Thread {1} finished!",
+                    new Object[]{ProcessManager.this.get_mgr_id(),
+                        Thread.currentThread().getName()});
+        }
+    }
+
+    /**
+     * Is the worker driving the phased reproduction, the driver and the
+     * phases are run on the own fork-join pool, the driver helps to run the
+     * phase tasks while waiting for them
+     */
+    private class PhasedTask implements Runnable {
+
+        @Override
+        public void run() {
+            LOGGER.log(Level.INFO, "Process Manager {0} -> Thread {1} started phases!",
+                    new Object[]{ProcessManager.this.get_mgr_id(),
+                        Thread.currentThread().getName()});
+
+            final ForkJoinPool pool = m_fj_pool;
             try {
                 //Generate initial population
-                m_breeder.generate_initial(m_init_pop_mult / m_num_workers);
-                //Go on with reproduction
-                Individual locked_ind = null;
+                m_breeder.generate_phased(pool, m_init_pop_mult, m_seed);
+                //Go on with generations of phases
+                long gen = 0;
                 while (is_can_reproduce()) {
-                    try {
-                        //First get a new individual
-                        locked_ind = m_breeder.aquire_individual();
-                        //Check if we can reproduce
-                        if ((locked_ind != null) && is_reproduction_allowed()) {
-                            //Reproduce individual
-                            m_breeder.reproduce_individual(locked_ind, inds);
-                        }
-                    } catch (Throwable ex) {
-                        LOGGER.log(Level.SEVERE, "Exception in a GP worker!", ex);
-                    } finally {
-                        //Unlock the individual
-                        m_breeder.release_individual(locked_ind);
+                    for (int colour = 0; (colour < m_breeder.get_num_colours())
+                            && is_can_reproduce(); ++colour) {
+                        add_reproductions(m_breeder.reproduce_phase(
+                                pool, m_seed, gen, colour));
                     }
+                    ++gen;
                 }
             } catch (Throwable ex) {
                 LOGGER.log(Level.SEVERE, "Exception in a GP worker, premature finish!", ex);
             }
 
-            LOGGER.log(Level.INFO, "Process Manager {0} -> Thread {1} finished!",
+            LOGGER.log(Level.INFO, "Process Manager {0} -> Thread {1} finished phases!",
                     new Object[]{ProcessManager.this.get_mgr_id(),
                         Thread.currentThread().getName()});
 
             //Notify that the thread is stopped
-            notify_worker_finished();
+            notify_worker_finished(null, false);
+        }
+    }
+
+    /**
+     * Accounts for the reproductions done in a phase, the last phase may
+     * exceed the maximum allowed number of reproductions.
+     *
+     * @param num_reps the number of reproductions
+     */
+    private void add_reproductions(final long num_reps) {
+        final long prev = m_num_reserved.getAndAccumulate(num_reps,
+                (res, add) -> Math.min(m_max_num_reps, res + add));
+        m_num_reps.add(Math.min(num_reps, m_max_num_reps - prev));
+    }
+
+    /**
+     * Allows to reserve a chunk of reproductions from the budget. The chunk
+     * gets smaller as the budget runs out, so that the workers finish at
+     * about the same time.
+     *
+     * @return the number of reserved reproductions, zero if the budget is
+     * used up or the stop is requested
+     */
+    private long reserve_reproductions() {
+        while (!m_is_stop_req) {
+            final long reserved = m_num_reserved.get();
+            final long left = m_max_num_reps - reserved;
+            if (left <= 0) {
+                break;
+            }
+            final long chunk = Math.min(m_reps_chunk,
+                    Math.max(1, left / (2L * m_parallelism)));
+            if (m_num_reserved.compareAndSet(reserved, reserved + chunk)) {
+                return chunk;
+            }
         }
+        return 0;
     }
 
     /**
-     * Request reproduction, if the maximum allowed number of reproductions is
-     * not yet reached returns true, otherwise false.
+     * Allows to return the unused reproductions to the budget
      *
-     * @return true if a reproduction is granted
+     * @param num_reps the number of unused reproductions
+     */
+    private void return_reproductions(final long num_reps) {
+        if (num_reps > 0) {
+            m_num_reserved.addAndGet(-num_reps);
+        }
+    }
+
+    /**
+     * Accounts for a granted reproduction
      */
-    private synchronized boolean is_reproduction_allowed() {
-        if (m_num_reps < m_max_num_reps) {
-            m_num_reps++;
+    private void grant_reproduction() {
+        m_num_reps.increment();
+        if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "Mutation {0}/{1}",
-                    new Object[]{m_num_reps, m_max_num_reps});
-            return true;
-        } else {
-            return false;
+                    new Object[]{m_num_reps.sum(), m_max_num_reps});
         }
     }
 
     /**
-     * Allows to check if we can still reproduce
+     * Allows to check if there are still reproductions to reserve
      *
      * @return true if the reproduction is still allowed
      */
-    private synchronized boolean is_can_reproduce() {
-        return (m_num_reps < m_max_num_reps);
+    private boolean is_can_reproduce() {
+        return !m_is_stop_req && (m_num_reserved.get() < m_max_num_reps);
     }
 
     /**
-     * Force mutations to stop
-     *
-     * @return true if a mutation is granted
+     * Force mutations to stop, the workers stop after their current
+     * reproduction
      */
-    private synchronized void request_stop() {
+    private void request_stop() {
         LOGGER.log(Level.INFO, "Requesting stop of the Process "
                 + "Manager (id:{0}) workers", this.get_mgr_id());
-        m_num_reps = m_max_num_reps;
+        m_is_stop_req = true;
+        //Abandon the ongoing fitness computations with deadlines
+        EvalDeadline.cancel_all(get_mgr_id());
+    }
+
+    /**
+     * Allows to get the number of individuals whose fitness computation has
+     * timed out, see BreedingManagerConfig.m_eval_timeout
+     *
+     * @return the number of timed out individuals
+     */
+    public long get_num_timeouts() {
+        return EvalDeadline.get_num_timeouts(get_mgr_id());
+    }
+
+    /**
+     * Allows to get the memory governor, see BreedingManagerConfig.m_mem_budget
+     *
+     * @return the memory governor or null if there is no memory budget
+     */
+    public MemoryGovernor get_mem_governor() {
+        return m_breeder.get_mem_governor();
+    }
+
+    /**
+     * Allows to get the number of reproductions granted so far, is not locking
+     *
+     * @return the number of granted reproductions
+     */
+    public long get_num_reps() {
+        return m_num_reps.sum();
+    }
+
+    /**
+     * Allows to get the maximum number of reproductions
+     *
+     * @return the maximum number of reproductions
+     */
+    public long get_max_num_reps() {
+        return m_max_num_reps;
+    }
+
+    /**
+     * Allows to set the weight of the manager in the shared scheduler, has no
+     * effect if the shared scheduler is not used or the manager is not running
+     *
+     * @param weight the weight, a positive value
+     */
+    public void set_sched_weight(final double weight) {
+        final FairScheduler.Client client = m_client;
+        if (client != null) {
+            client.set_weight(weight);
+        }
+    }
+
+    /**
+     * Allows to get the time the shared scheduler spent running the manager's
+     * tasks
+     *
+     * @return the busy time in nanoseconds, zero if the shared scheduler is
+     * not used
+     */
+    public long get_sched_busy_nanos() {
+        final FairScheduler.Client client = m_client;
+        return (client != null) ? client.get_busy_nanos() : 0L;
     }
 
     /**
@@ -210,11 +728,92 @@ public class ProcessManager {
         //Start the observer
         m_observer.start_observing();
 
+        //Join the shared scheduler
+        if (m_scheduler != null) {
+            m_client = m_scheduler.join("SR-Manager-" + get_mgr_id(), m_sched_weight);
+            m_task_exec = m_client;
+        }
+
+        //Start checking the termination policy
+        start_termination();
+
+        //Start checking the memory budget
+        if (m_breeder.get_mem_governor() != null) {
+            m_breeder.get_mem_governor().start();
+        }
+
         //Start the workers
-        IntStream.range(0, m_num_workers).forEachOrdered(
-                idx -> {
-                    m_executor.submit(new GpWorkerTask(idx));
-                });
+        if (m_is_phased) {
+            m_task_exec.execute(new PhasedTask());
+        } else {
+            IntStream.range(0, m_num_workers).forEachOrdered(
+                    idx -> {
+                        final GpWorkerTask worker = new GpWorkerTask(m_next_idx++, false);
+                        m_workers.add(worker);
+                        m_task_exec.execute(worker);
+                    });
+        }
+    }
+
+    /**
+     * Allows to start the periodic termination policy check, if set
+     */
+    private void start_termination() {
+        m_start_wall = System.nanoTime();
+        m_start_cpu = ProcessStatus.get_process_cpu_time();
+        if (m_termination != null) {
+            m_termination.reset();
+            m_term_timer = Executors.newSingleThreadScheduledExecutor(run -> {
+                final Thread th = new Thread(run);
+                th.setName("SR-Termination-" + get_mgr_id());
+                th.setDaemon(true);
+                return th;
+            });
+            m_term_timer.scheduleWithFixedDelay(() -> {
+                try {
+                    check_termination();
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in the termination policy!", ex);
+                }
+            }, m_term_period, m_term_period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Allows to get the current process status
+     *
+     * @return the process status
+     */
+    public ProcessStatus get_status() {
+        final long cpu_time = ProcessStatus.get_process_cpu_time();
+        return new ProcessStatus(get_num_reps(), m_breeder.get_best_fitness(),
+                System.nanoTime() - m_start_wall,
+                ((cpu_time < 0) || (m_start_cpu < 0)) ? -1L : cpu_time - m_start_cpu);
+    }
+
+    /**
+     * Checks the termination policy and requests stop if it is satisfied
+     */
+    private void check_termination() {
+        if (!m_is_stop_req) {
+            final ProcessStatus status = get_status();
+            if (m_termination.is_terminated(status)) {
+                LOGGER.log(Level.INFO, "Process Manager (id:{0}) termination "
+                        + "policy {1} is satisfied, {2}", new Object[]{
+                            get_mgr_id(), m_termination, status});
+                request_stop();
+            }
+        }
+    }
+
+    /**
+     * Allows to stop the periodic termination policy check
+     */
+    private synchronized void stop_termination() {
+        if (m_term_timer != null) {
+            m_term_timer.shutdown();
+            m_term_timer = null;
+        }
     }
 
     /**
@@ -222,7 +821,7 @@ public class ProcessManager {
      *
      * @return true if the manager is active, otherwise false
      */
-    public synchronized boolean is_active() {
+    public boolean is_active() {
         return m_is_active;
     }
 
@@ -232,7 +831,7 @@ public class ProcessManager {
      *
      * @return true if the manager is being stopped, otherwise false
      */
-    public synchronized boolean is_stopping() {
+    public boolean is_stopping() {
         return m_is_stopping;
     }
 
@@ -244,7 +843,10 @@ public class ProcessManager {
     private void stop_executors(final long term_time_out) {
         final int mgr_id = this.get_mgr_id();
         LOGGER.log(Level.INFO, "Started stopping the Process Manager (id:{0}) executor", mgr_id);
-        if (!m_executor.isShutdown()) {
+        if (!m_is_own_executor) {
+            //The executor is shared, wait for the workers to finish
+            await_workers(2 * term_time_out);
+        } else if (!m_executor.isShutdown()) {
             //Await termination
             try {
                 LOGGER.log(Level.INFO, "Requesting a shut down for Process Manager (id:{0})", mgr_id);
@@ -265,6 +867,31 @@ public class ProcessManager {
                 + "Manager (id:{0}) executor", mgr_id);
     }
 
+    /**
+     * Allows to wait for the workers to finish
+     *
+     * @param term_time_out the time out in seconds
+     */
+    private synchronized void await_workers(final long term_time_out) {
+        final long end_time = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(term_time_out);
+        try {
+            long wait_time = end_time - System.currentTimeMillis();
+            while ((m_num_workers > 0) && (wait_time > 0)) {
+                wait(wait_time);
+                wait_time = end_time - System.currentTimeMillis();
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "Interrupted while waiting for Process "
+                    + "Manager (id:{0}) workers", this.get_mgr_id());
+        }
+        if (m_num_workers > 0) {
+            LOGGER.log(Level.WARNING, "Process Manager (id:{0}) has {1} "
+                    + "workers still running!", new Object[]{
+                        this.get_mgr_id(), m_num_workers});
+        }
+    }
+
     /**
      * Notifies the waiting threads
      *
@@ -295,10 +922,19 @@ public class ProcessManager {
             executor.submit(() -> {
                 //Stop the GP process if it is running
                 request_stop();
+                stop_termination();
+                if (m_breeder.get_mem_governor() != null) {
+                    m_breeder.get_mem_governor().stop();
+                }
 
                 //Stop the executors
                 stop_executors(term_time_out);
 
+                //Leave the shared scheduler
+                if (m_client != null) {
+                    m_client.leave();
+                }
+
                 //The stopping is done
                 synchronized (ProcessManager.this) {
                     m_is_stopping = false;
@@ -324,24 +960,137 @@ public class ProcessManager {
     }
 
     /**
-     * Shall be called from the worker when its execution is finished
+     * Allows to add a worker to the running manager, the tiled and phased
+     * modes do not support that
+     *
+     * @return true if the worker is added
      */
-    private synchronized void notify_worker_finished() {
+    public synchronized boolean add_worker() {
+        if (!m_is_active || m_is_stopping || m_is_stop_req
+                || m_is_tiled || m_is_phased || (m_num_workers == 0)) {
+            return false;
+        }
+        ++m_num_workers;
+        //Grow the own fixed pool if needed
+        if (m_is_own_executor && (m_executor instanceof ThreadPoolExecutor)) {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) m_executor;
+            if (pool.getMaximumPoolSize() < m_num_workers) {
+                pool.setMaximumPoolSize(m_num_workers);
+                pool.setCorePoolSize(m_num_workers);
+            }
+        }
+        final GpWorkerTask worker = new GpWorkerTask(m_next_idx++, true);
+        m_workers.add(worker);
+        try {
+            m_task_exec.execute(worker);
+        } catch (RejectedExecutionException ex) {
+            LOGGER.log(Level.WARNING, "The new GP worker is rejected!", ex);
+            m_workers.remove(worker);
+            --m_num_workers;
+            return false;
+        }
+        LOGGER.log(Level.INFO, "Process Manager {0} -> added worker {1}, {2} running",
+                new Object[]{get_mgr_id(), worker.m_idx, m_num_workers});
+        return true;
+    }
+
+    /**
+     * Allows to retire the most recently added worker, it finishes after its
+     * current reproduction. The last worker is not retired.
+     *
+     * @return true if a worker is retired
+     */
+    public synchronized boolean retire_worker() {
+        for (int idx = m_workers.size() - 1; idx >= 0; --idx) {
+            final GpWorkerTask worker = m_workers.get(idx);
+            if (!worker.m_is_retired) {
+                if (get_num_workers() <= 1) {
+                    break;
+                }
+                worker.m_is_retired = true;
+                LOGGER.log(Level.INFO, "Process Manager {0} -> retired worker {1}",
+                        new Object[]{get_mgr_id(), worker.m_idx});
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allows to get the number of running workers, not counting the retired
+     * ones
+     *
+     * @return the number of workers
+     */
+    public synchronized int get_num_workers() {
+        int num_retired = 0;
+        for (GpWorkerTask worker : m_workers) {
+            if (worker.m_is_retired) {
+                ++num_retired;
+            }
+        }
+        return m_num_workers - num_retired;
+    }
+
+    /**
+     * Allows to get the number of the reproduction attempts on the shared
+     * grid, is not locking
+     *
+     * @return the number of attempts
+     */
+    public long get_num_attempts() {
+        return m_num_attempts.sum();
+    }
+
+    /**
+     * Allows to get the number of the reproduction attempts on the shared
+     * grid that failed to get an individual, mostly due to the area being
+     * locked, is not locking
+     *
+     * @return the number of failed attempts
+     */
+    public long get_num_fails() {
+        return m_num_fails.sum();
+    }
+
+    /**
+     * Shall be called from the worker when its execution is finished. The
+     * reproductions given back by a worker finishing after the others have
+     * seen the budget used up would be lost, so the last worker on the shared
+     * grid is kept to drain the budget instead of finishing.
+     *
+     * @param worker the finished worker or null for the phased driver
+     * @param is_drain true if the worker can be kept to drain the budget
+     * @return true if the worker is finished, false if it is to drain
+     */
+    private synchronized boolean notify_worker_finished(
+            final GpWorkerTask worker, final boolean is_drain) {
+        if (is_drain && (worker != null) && !m_is_tiled
+                && (m_num_workers == 1) && is_can_reproduce()) {
+            worker.m_is_retired = false;
+            LOGGER.log(Level.INFO, "Process Manager {0} -> Worker {1} drains the budget",
+                    new Object[]{get_mgr_id(), worker.m_idx});
+            return false;
+        }
+        m_workers.remove(worker);
         //Decrement the number of active workers
         --m_num_workers;
+        notifyAll();
         //Check if all workers have been stoped
         if (m_num_workers == 0) {
             this.stop(1, null);
         }
+        return true;
     }
 
     /**
-     * Allows to filter out the individuals using the individual evaluator. In
-     * order to do so a separate thread is used so this method is non-blocking.
+     * Allows to filter out the individuals using the individual evaluator. The
+     * reproduction is paused while filtering.
      *
      * @param eval the individual evaluator
+     * @return the number of removed individuals, zero if filtering is skipped
      */
-    public void filter_individuals(final IndividualFilter eval) {
-        m_breeder.filter_individuals(eval);
+    public int filter_individuals(final IndividualFilter eval) {
+        return m_breeder.filter_individuals(eval);
     }
 }
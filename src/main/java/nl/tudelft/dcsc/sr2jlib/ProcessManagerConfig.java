@@ -22,6 +22,8 @@
 package nl.tudelft.dcsc.sr2jlib;
 
 import nl.tudelft.dcsc.sr2jlib.grid.GridObserver;
+import nl.tudelft.dcsc.sr2jlib.grid.OverflowPolicy;
+import java.util.concurrent.ExecutorService;
 
 /**
  * The configuration class for the @see GeneticManager
@@ -56,6 +58,104 @@ public class ProcessManagerConfig extends BreedingManagerConfig {
      */
     public final long m_max_num_reps;
 
+    /**
+     * If true then the grid columns are split between the workers, each
+     * worker reproduces the individuals in its columns and only locks the
+     * areas of the parents on the border with another worker's columns, false
+     * by default. The optimistic reproduction is not used in this mode.
+     */
+    public boolean m_is_tiled = false;
+
+    /**
+     * The number of reproduction attempts per worker between the
+     * re-balancing of the columns ownership in the tiled mode
+     */
+    public int m_tile_period = 1000;
+
+    /**
+     * If true then the grid is reproduced in generations, each split into
+     * phases by the cell colours whose areas do not overlap. The individuals
+     * of one colour are reproduced in parallel, on the manager's own
+     * fork-join pool with the number of workers as parallelism, without
+     * locking. The execution type is then ignored. False by default.
+     */
+    public boolean m_is_phased = false;
+
+    /**
+     * The seed of the phased reproduction, the cell random generators are
+     * derived from it. With a deterministic fitness computer, and no
+     * fingerprint screen, surrogate model, measured cost, evaluation timeout
+     * or memory budget, the phased runs with the same seed are reproducible.
+     * These share state filled in the order the cells complete, or depend on
+     * timing. The DOF cache of the fitness computer only affects the speed.
+     */
+    public long m_seed = 0;
+
+    /**
+     * The maximum number of reproductions a worker reserves from the budget
+     * at once, the chunks get smaller as the budget runs out
+     */
+    public int m_reps_chunk = 64;
+
+    /**
+     * The way the workers are executed, FIXED_POOL by default. The tiled
+     * mode always uses the fixed pool as its workers wait for each other.
+     */
+    public ExecutionType m_exec_type = ExecutionType.FIXED_POOL;
+
+    /**
+     * The executor service to be used with the EXECUTOR execution type, is
+     * not shut down by the manager
+     */
+    public ExecutorService m_executor = null;
+
+    /**
+     * The scheduler to be used with the SHARED execution type, null by
+     * default meaning FairScheduler.get_default()
+     */
+    public FairScheduler m_scheduler = null;
+
+    /**
+     * The weight of the manager in the shared scheduler, the managers get the
+     * threads in proportion to their weights, but at most one per worker
+     */
+    public double m_sched_weight = 1.0;
+
+    /**
+     * The termination policy checked periodically while running, null by
+     * default meaning that only the maximum number of reproductions is used,
+     * see Terminations. The policy instance is not to be shared between
+     * managers.
+     */
+    public TerminationPolicy m_termination = null;
+
+    /**
+     * The termination policy check period in milliseconds
+     */
+    public long m_term_period = 100;
+
+    /**
+     * If true then the grid events are delivered to the observer
+     * asynchronously and in batches, by a dispatcher thread, see
+     * AsyncGridObserver
+     */
+    public boolean m_is_async_obs = false;
+
+    /**
+     * The capacity of the asynchronous observer ring buffer in events
+     */
+    public int m_obs_capacity = 4096;
+
+    /**
+     * The maximum number of events delivered to the observer at once
+     */
+    public int m_obs_batch_size = 256;
+
+    /**
+     * The policy applied once the asynchronous observer ring buffer is full
+     */
+    public OverflowPolicy m_obs_overflow = OverflowPolicy.COALESCE;
+
     /**
      * The basic constructor
      *
@@ -0,0 +1,118 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Is the snapshot of the GP process progress, as seen by the termination
+ * policies
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class ProcessStatus {
+
+    //Stores the number of granted reproductions
+    private final long m_num_reps;
+    //Stores the best fitness value on the grid
+    private final double m_best_ftn;
+    //Stores the wall-clock time since the start
+    private final long m_wall_nanos;
+    //Stores the process CPU time since the start
+    private final long m_cpu_nanos;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_reps the number of granted reproductions
+     * @param best_ftn the best fitness value on the grid or NaN if the grid
+     * is empty
+     * @param wall_nanos the wall-clock time since the start in nanoseconds
+     * @param cpu_nanos the process CPU time since the start in nanoseconds or
+     * a negative value if not supported
+     */
+    public ProcessStatus(final long num_reps, final double best_ftn,
+            final long wall_nanos, final long cpu_nanos) {
+        this.m_num_reps = num_reps;
+        this.m_best_ftn = best_ftn;
+        this.m_wall_nanos = wall_nanos;
+        this.m_cpu_nanos = cpu_nanos;
+    }
+
+    /**
+     * Allows to get the process CPU time of the JVM, if supported
+     *
+     * @return the process CPU time in nanoseconds or a negative value if not
+     * supported
+     */
+    public static long get_process_cpu_time() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return -1L;
+    }
+
+    /**
+     * Allows to get the number of granted reproductions
+     *
+     * @return the number of granted reproductions
+     */
+    public long get_num_reps() {
+        return m_num_reps;
+    }
+
+    /**
+     * Allows to get the best fitness value on the grid
+     *
+     * @return the best fitness value or NaN if the grid is empty
+     */
+    public double get_best_fitness() {
+        return m_best_ftn;
+    }
+
+    /**
+     * Allows to get the wall-clock time since the start
+     *
+     * @return the wall-clock time in nanoseconds
+     */
+    public long get_wall_nanos() {
+        return m_wall_nanos;
+    }
+
+    /**
+     * Allows to get the CPU time of the JVM process since the start
+     *
+     * @return the CPU time in nanoseconds or a negative value if not supported
+     */
+    public long get_cpu_nanos() {
+        return m_cpu_nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "reps: " + m_num_reps + ", best fitness: " + m_best_ftn
+                + ", wall: " + (m_wall_nanos / 1000000) + " ms, cpu: "
+                + (m_cpu_nanos / 1000000) + " ms";
+    }
+}
@@ -37,7 +37,13 @@ public enum SelectionType {
      * to win and a randomized selection is oned. Not very efficient for when
      * both individuals have close probability values.
      */
-    PROB(1, "Probabilistic");
+    PROB(1, "Probabilistic"),
+    /**
+     * The cost-aware selection type trading the fitness for the evaluation
+     * cost of the individuals, as configured by the cost trade-off. Keeps the
+     * individuals with expensive operators from slowing down the evolution.
+     */
+    COST(2, "Cost aware");
 
     private final int m_idx;
     private final String m_name;
@@ -0,0 +1,70 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+/**
+ * The termination policy of the GP process, is periodically evaluated by the
+ * process manager which stops once the policy is satisfied. A policy may keep
+ * state, e.g. the best fitness seen, so an instance is to be used by one
+ * manager, see Terminations for the standard policies.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public interface TerminationPolicy {
+
+    /**
+     * Is called when the process is started, allows to reset the state
+     */
+    public default void reset() {
+    }
+
+    /**
+     * Allows to check if the process is to be terminated. Is called from one
+     * thread at a time.
+     *
+     * @param status the current process status
+     * @return true if the process is to be terminated
+     */
+    public boolean is_terminated(final ProcessStatus status);
+
+    /**
+     * Allows to combine this policy with another one, terminating once both
+     * are satisfied
+     *
+     * @param other the other policy
+     * @return the combined policy
+     */
+    public default TerminationPolicy and(final TerminationPolicy other) {
+        return Terminations.all(this, other);
+    }
+
+    /**
+     * Allows to combine this policy with another one, terminating once any of
+     * them is satisfied
+     *
+     * @param other the other policy
+     * @return the combined policy
+     */
+    public default TerminationPolicy or(final TerminationPolicy other) {
+        return Terminations.any(this, other);
+    }
+}
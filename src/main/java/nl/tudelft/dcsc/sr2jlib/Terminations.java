@@ -0,0 +1,268 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the standard termination policies and their combinations
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Terminations {
+
+    /**
+     * The basic constructor
+     */
+    private Terminations() {
+    }
+
+    /**
+     * Terminates once the best fitness reaches the target
+     */
+    private static final class TargetFitness implements TerminationPolicy {
+
+        //Stores the target fitness
+        private final double m_target;
+
+        TargetFitness(final double target) {
+            this.m_target = target;
+        }
+
+        @Override
+        public boolean is_terminated(final ProcessStatus status) {
+            return status.get_best_fitness() >= m_target;
+        }
+
+        @Override
+        public String toString() {
+            return "best fitness >= " + m_target;
+        }
+    }
+
+    /**
+     * Terminates once the best fitness has not improved for a number of
+     * reproductions or an amount of time
+     */
+    private static final class Stagnation implements TerminationPolicy {
+
+        //Stores the maximum number of reproductions without improvement or -1
+        private final long m_max_reps;
+        //Stores the maximum time without improvement in nanoseconds or -1
+        private final long m_max_nanos;
+        //Stores the best fitness seen
+        private double m_best_ftn;
+        //Stores the number of reproductions when the best was seen
+        private long m_best_reps;
+        //Stores the time when the best was seen
+        private long m_best_nanos;
+
+        Stagnation(final long max_reps, final long max_nanos) {
+            this.m_max_reps = max_reps;
+            this.m_max_nanos = max_nanos;
+            reset();
+        }
+
+        @Override
+        public void reset() {
+            m_best_ftn = Double.NaN;
+            m_best_reps = 0;
+            m_best_nanos = 0;
+        }
+
+        @Override
+        public boolean is_terminated(final ProcessStatus status) {
+            final double best_ftn = status.get_best_fitness();
+            if (Double.isNaN(m_best_ftn) || (best_ftn > m_best_ftn)) {
+                if (!Double.isNaN(best_ftn)) {
+                    m_best_ftn = best_ftn;
+                    m_best_reps = status.get_num_reps();
+                    m_best_nanos = status.get_wall_nanos();
+                }
+                return false;
+            }
+            if (m_max_reps >= 0) {
+                return status.get_num_reps() - m_best_reps >= m_max_reps;
+            } else {
+                return status.get_wall_nanos() - m_best_nanos >= m_max_nanos;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (m_max_reps >= 0)
+                    ? "no improvement in " + m_max_reps + " reproductions"
+                    : "no improvement in " + (m_max_nanos / 1000000) + " ms";
+        }
+    }
+
+    /**
+     * Terminates once the wall-clock or the CPU time budget is used up
+     */
+    private static final class TimeBudget implements TerminationPolicy {
+
+        //Stores the budget in nanoseconds
+        private final long m_budget;
+        //Stores the flag indicating that the CPU time is to be used
+        private final boolean m_is_cpu;
+
+        TimeBudget(final long budget, final boolean is_cpu) {
+            this.m_budget = budget;
+            this.m_is_cpu = is_cpu;
+        }
+
+        @Override
+        public boolean is_terminated(final ProcessStatus status) {
+            if (m_is_cpu) {
+                return status.get_cpu_nanos() >= m_budget;
+            } else {
+                return status.get_wall_nanos() >= m_budget;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (m_is_cpu ? "cpu time >= " : "wall time >= ")
+                    + (m_budget / 1000000) + " ms";
+        }
+    }
+
+    /**
+     * Combines the policies by AND or OR, all of them are evaluated every
+     * time so that their states are kept up to date
+     */
+    private static final class Combination implements TerminationPolicy {
+
+        //Stores the policies
+        private final TerminationPolicy[] m_policies;
+        //Stores the flag indicating the AND combination
+        private final boolean m_is_and;
+
+        Combination(final TerminationPolicy[] policies, final boolean is_and) {
+            if (policies.length == 0) {
+                throw new IllegalArgumentException("No policies to combine!");
+            }
+            this.m_policies = policies.clone();
+            this.m_is_and = is_and;
+        }
+
+        @Override
+        public void reset() {
+            for (TerminationPolicy policy : m_policies) {
+                policy.reset();
+            }
+        }
+
+        @Override
+        public boolean is_terminated(final ProcessStatus status) {
+            boolean result = m_is_and;
+            for (TerminationPolicy policy : m_policies) {
+                final boolean is_term = policy.is_terminated(status);
+                result = m_is_and ? (result && is_term) : (result || is_term);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            final String[] names = new String[m_policies.length];
+            for (int idx = 0; idx < names.length; ++idx) {
+                names[idx] = "(" + m_policies[idx] + ")";
+            }
+            return String.join(m_is_and ? " AND " : " OR ", Arrays.asList(names));
+        }
+    }
+
+    /**
+     * Allows to terminate once the best fitness reaches the target
+     *
+     * @param target the target fitness value
+     * @return the policy
+     */
+    public static TerminationPolicy target_fitness(final double target) {
+        return new TargetFitness(target);
+    }
+
+    /**
+     * Allows to terminate once the best fitness has not improved for the
+     * given number of reproductions
+     *
+     * @param num_reps the number of reproductions
+     * @return the policy
+     */
+    public static TerminationPolicy stagnant_reps(final long num_reps) {
+        return new Stagnation(Math.max(0, num_reps), -1);
+    }
+
+    /**
+     * Allows to terminate once the best fitness has not improved for the
+     * given time
+     *
+     * @param time_ms the time in milliseconds
+     * @return the policy
+     */
+    public static TerminationPolicy stagnant_time(final long time_ms) {
+        return new Stagnation(-1, TimeUnit.MILLISECONDS.toNanos(Math.max(0, time_ms)));
+    }
+
+    /**
+     * Allows to terminate once the wall-clock time since the start is used up
+     *
+     * @param time_ms the time budget in milliseconds
+     * @return the policy
+     */
+    public static TerminationPolicy wall_clock(final long time_ms) {
+        return new TimeBudget(TimeUnit.MILLISECONDS.toNanos(time_ms), false);
+    }
+
+    /**
+     * Allows to terminate once the CPU time of the JVM process since the
+     * start is used up, never terminates if the CPU time is not supported
+     *
+     * @param time_ms the time budget in milliseconds
+     * @return the policy
+     */
+    public static TerminationPolicy cpu_time(final long time_ms) {
+        return new TimeBudget(TimeUnit.MILLISECONDS.toNanos(time_ms), true);
+    }
+
+    /**
+     * Allows to terminate once all the policies are satisfied
+     *
+     * @param policies the policies
+     * @return the combined policy
+     */
+    public static TerminationPolicy all(final TerminationPolicy... policies) {
+        return new Combination(policies, true);
+    }
+
+    /**
+     * Allows to terminate once any of the policies is satisfied
+     *
+     * @param policies the policies
+     * @return the combined policy
+     */
+    public static TerminationPolicy any(final TerminationPolicy... policies) {
+        return new Combination(policies, false);
+    }
+}
@@ -0,0 +1,256 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allows to hill-climb the number of workers of a running process manager to
+ * maximize the reproductions per second. Every period the throughput is
+ * measured: if it has improved, by more than the tolerance, the last step is
+ * repeated, if it has dropped the step is reversed, and on a plateau the
+ * number of workers is held. Only after the given number of consecutive
+ * plateau rounds a worker is retired, as it may only cost CPU, the next round
+ * then tells if it was needed. No worker is added beyond the maximum, the
+ * number of workers is then held. While the fraction of the attempts failing
+ * to get an individual, mostly due to the area locks, exceeds the maximum,
+ * or while the process CPU load is close to the full machine, a worker is
+ * retired instead of adding one.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class WorkerAutoscaler {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkerAutoscaler.class.getName());
+
+    //Stores the process CPU load above which no workers are added
+    private static final double MAX_CPU_LOAD = 0.95;
+    //Stores the default number of plateau rounds before probing downwards
+    private static final int DEF_PLATEAU_ROUNDS = 3;
+
+    //Stores the manager
+    private final ProcessManager m_mgr;
+    //Stores the measurement period in milliseconds
+    private final long m_period;
+    //Stores the minimum number of workers
+    private final int m_min_workers;
+    //Stores the maximum number of workers
+    private final int m_max_workers;
+    //Stores the relative throughput change considered significant
+    private final double m_tolerance;
+    //Stores the maximum fraction of failed attempts for adding workers
+    private final double m_max_fail_rate;
+    //Stores the number of consecutive plateau rounds before retiring a worker
+    private final int m_plateau_rounds;
+    //Stores the last step direction, +1 or -1
+    private int m_direction;
+    //Stores the number of consecutive plateau rounds
+    private int m_num_plateaus;
+    //Stores the last throughput or NaN if not measured
+    private double m_last_tput;
+    //Stores the last measurement values
+    private long m_last_time;
+    private long m_last_reps;
+    private long m_last_attempts;
+    private long m_last_fails;
+    private long m_last_cpu;
+    //Stores the timer or null if not started
+    private ScheduledExecutorService m_timer;
+
+    /**
+     * The basic constructor
+     *
+     * @param mgr the process manager to scale
+     * @param period the measurement period in milliseconds, should cover
+     * many reproductions
+     * @param min_workers the minimum number of workers, at least one
+     * @param max_workers the maximum number of workers
+     * @param tolerance the relative throughput change considered significant
+     * @param max_fail_rate the maximum fraction of failed attempts for adding
+     * workers, from [0.0, 1.0]
+     */
+    public WorkerAutoscaler(final ProcessManager mgr, final long period,
+            final int min_workers, final int max_workers,
+            final double tolerance, final double max_fail_rate) {
+        this(mgr, period, min_workers, max_workers, tolerance,
+                max_fail_rate, DEF_PLATEAU_ROUNDS);
+    }
+
+    /**
+     * The basic constructor
+     *
+     * @param mgr the process manager to scale
+     * @param period the measurement period in milliseconds, should cover
+     * many reproductions
+     * @param min_workers the minimum number of workers, at least one
+     * @param max_workers the maximum number of workers
+     * @param tolerance the relative throughput change considered significant
+     * @param max_fail_rate the maximum fraction of failed attempts for adding
+     * workers, from [0.0, 1.0]
+     * @param plateau_rounds the number of consecutive plateau rounds, at
+     * least one, after which a worker is retired
+     */
+    public WorkerAutoscaler(final ProcessManager mgr, final long period,
+            final int min_workers, final int max_workers,
+            final double tolerance, final double max_fail_rate,
+            final int plateau_rounds) {
+        if ((period <= 0) || (min_workers < 1) || (max_workers < min_workers)
+                || !(tolerance >= 0.0) || !(max_fail_rate >= 0.0)
+                || (plateau_rounds < 1)) {
+            throw new IllegalArgumentException("Improper autoscaler parameters,"
+                    + " period: " + period + ", workers: [" + min_workers
+                    + ", " + max_workers + "], tolerance: " + tolerance
+                    + ", max fail rate: " + max_fail_rate
+                    + ", plateau rounds: " + plateau_rounds);
+        }
+        this.m_mgr = mgr;
+        this.m_period = period;
+        this.m_min_workers = min_workers;
+        this.m_max_workers = max_workers;
+        this.m_tolerance = tolerance;
+        this.m_max_fail_rate = max_fail_rate;
+        this.m_plateau_rounds = plateau_rounds;
+        this.m_direction = 1;
+        this.m_num_plateaus = 0;
+        this.m_last_tput = Double.NaN;
+        this.m_timer = null;
+    }
+
+    /**
+     * Allows to take the measurement baseline
+     */
+    private void reset_measurement() {
+        m_last_time = System.nanoTime();
+        m_last_reps = m_mgr.get_num_reps();
+        m_last_attempts = m_mgr.get_num_attempts();
+        m_last_fails = m_mgr.get_num_fails();
+        m_last_cpu = ProcessStatus.get_process_cpu_time();
+    }
+
+    /**
+     * Allows to start the autoscaling, the manager is to be started
+     */
+    public synchronized void start() {
+        if (m_timer == null) {
+            reset_measurement();
+            m_timer = Executors.newSingleThreadScheduledExecutor(run -> {
+                final Thread th = new Thread(run);
+                th.setName("SR-Autoscaler-" + m_mgr.get_mgr_id());
+                th.setDaemon(true);
+                return th;
+            });
+            m_timer.scheduleAtFixedRate(() -> {
+                try {
+                    adjust();
+                } catch (Throwable ex) {
+                    LOGGER.log(Level.SEVERE, "Exception in the worker autoscaler!", ex);
+                }
+            }, m_period, m_period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Allows to stop the autoscaling, is also stopped once the manager is
+     * inactive
+     */
+    public synchronized void stop() {
+        if (m_timer != null) {
+            m_timer.shutdown();
+            m_timer = null;
+        }
+    }
+
+    /**
+     * Does one measurement and, if needed, one step
+     */
+    private synchronized void adjust() {
+        if (!m_mgr.is_active() || m_mgr.is_stopping()) {
+            stop();
+            return;
+        }
+        final long time = System.nanoTime();
+        final long reps = m_mgr.get_num_reps();
+        final long attempts = m_mgr.get_num_attempts();
+        final long fails = m_mgr.get_num_fails();
+        final long cpu = ProcessStatus.get_process_cpu_time();
+        final double secs = (time - m_last_time) * 1.0e-9;
+        final double tput = (reps - m_last_reps) / secs;
+        final double fail_rate = (attempts > m_last_attempts)
+                ? (fails - m_last_fails) / (double) (attempts - m_last_attempts) : 0.0;
+        final double cpu_load = ((cpu >= 0) && (m_last_cpu >= 0))
+                ? (cpu - m_last_cpu) * 1.0e-9 / secs
+                / Runtime.getRuntime().availableProcessors() : 0.0;
+        final int num_workers = m_mgr.get_num_workers();
+
+        //Decide on the step
+        int step = m_direction;
+        if (!Double.isNaN(m_last_tput)) {
+            if (tput > m_last_tput * (1.0 + m_tolerance)) {
+                //The last step helped, repeat it
+                m_num_plateaus = 0;
+            } else if (tput < m_last_tput * (1.0 - m_tolerance)) {
+                step = -m_direction;
+                m_num_plateaus = 0;
+            } else if (++m_num_plateaus >= m_plateau_rounds) {
+                //A long plateau, probe if fewer workers do as well
+                step = -1;
+                m_num_plateaus = 0;
+            } else {
+                //Plateau, hold the number of workers
+                step = 0;
+            }
+        }
+        if ((step > 0) && (num_workers >= m_max_workers)) {
+            //At the cap, hold the number of workers
+            step = 0;
+        } else if ((step > 0) && ((fail_rate > m_max_fail_rate)
+                || (cpu_load > MAX_CPU_LOAD))) {
+            //Overloaded, a worker less may relieve the contention
+            step = -1;
+        }
+        if ((step < 0) && (num_workers <= m_min_workers)) {
+            step = 1;
+            if ((fail_rate > m_max_fail_rate) || (cpu_load > MAX_CPU_LOAD)
+                    || (num_workers >= m_max_workers)) {
+                step = 0;
+            }
+        }
+        LOGGER.log(Level.FINE, "Process Manager {0} -> workers: {1}, reps/sec: {2}, "
+                + "fail rate: {3}, cpu load: {4}, step: {5}", new Object[]{
+                    m_mgr.get_mgr_id(), num_workers, tput, fail_rate, cpu_load, step});
+
+        //Make the step
+        if (step > 0) {
+            m_mgr.add_worker();
+            m_direction = 1;
+        } else if (step < 0) {
+            m_mgr.retire_worker();
+            m_direction = -1;
+        }
+        m_last_tput = tput;
+        reset_measurement();
+    }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.FunctExpr;
+
+/**
+ * The per-operator cost table used to estimate the evaluation cost of an
+ * individual. The cost of a function node is the cost of the first operator,
+ * in the order of insertion, whose name is contained in the node's function
+ * description as specified by the grammar, e.g. "Math.pow" or "Math.exp".
+ * The nodes not matching any operator and the terminal nodes have the default
+ * cost. The individual's cost is the sum of its nodes' costs.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class CostTable {
+
+    //Stores the operator names
+    private final String[] m_ops;
+    //Stores the operator costs
+    private final double[] m_costs;
+    //Stores the default node cost
+    private final double m_def_cost;
+    //Stores the node costs per function description
+    private final Map<String, Double> m_cache;
+
+    /**
+     * The basic constructor
+     *
+     * @param op_costs the operator names mapped to their costs, the iteration
+     * order defines the matching order
+     * @param def_cost the default node cost
+     */
+    public CostTable(final Map<String, Double> op_costs, final double def_cost) {
+        this.m_ops = new String[op_costs.size()];
+        this.m_costs = new double[op_costs.size()];
+        int idx = 0;
+        for (Map.Entry<String, Double> entry : op_costs.entrySet()) {
+            m_ops[idx] = entry.getKey();
+            m_costs[idx] = entry.getValue();
+            ++idx;
+        }
+        this.m_def_cost = def_cost;
+        this.m_cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Allows to create the cost table with the default costs of the standard
+     * Java Math operators relative to an addition
+     *
+     * @return the cost table
+     */
+    public static CostTable make_default() {
+        final Map<String, Double> op_costs = new LinkedHashMap<>();
+        op_costs.put("Math.pow", 40.0);
+        op_costs.put("Math.exp", 20.0);
+        op_costs.put("Math.log", 20.0);
+        op_costs.put("Math.sin", 15.0);
+        op_costs.put("Math.cos", 15.0);
+        op_costs.put("Math.tan", 20.0);
+        op_costs.put("Math.sqrt", 5.0);
+        return new CostTable(op_costs, 1.0);
+    }
+
+    /**
+     * Allows to get the cost of the function node
+     *
+     * @param func the function description as specified by the grammar
+     * @return the node cost
+     */
+    private double get_cost(final String func) {
+        return m_cache.computeIfAbsent(func, key -> {
+            for (int idx = 0; idx < m_ops.length; ++idx) {
+                if (key.contains(m_ops[idx])) {
+                    return m_costs[idx];
+                }
+            }
+            return m_def_cost;
+        });
+    }
+
+    /**
+     * Allows to estimate the evaluation cost of the vector function
+     *
+     * @param exps the vector function expressions
+     * @return the estimated cost
+     */
+    public double estimate(final Expression[] exps) {
+        final List<Expression> nterm = new ArrayList<>();
+        final List<Expression> term = new ArrayList<>();
+        for (Expression exp : exps) {
+            exp.get_nodes(nterm, term);
+        }
+        double cost = term.size() * m_def_cost;
+        for (Expression node : nterm) {
+            cost += get_cost(((FunctExpr) node).get_function());
+        }
+        return cost;
+    }
+}
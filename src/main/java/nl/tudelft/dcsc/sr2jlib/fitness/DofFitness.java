@@ -0,0 +1,83 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.Arrays;
+
+/**
+ * The fitness storing the per-dof loss contributions of the individual's
+ * vector function. A fitness computer returning this class allows the
+ * children, whose dofs are partially unchanged, to re-use the parent's loss
+ * contributions of the unchanged dofs.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class DofFitness extends Fitness {
+
+    //Stores the per-dof loss contributions
+    private final double[] m_losses;
+
+    /**
+     * The constructor.
+     *
+     * @param ftn the fitness value
+     * @param losses the per-dof loss contributions, not copied
+     */
+    public DofFitness(final double ftn, final double[] losses) {
+        super(ftn);
+        m_losses = losses;
+    }
+
+    /**
+     * Allows to get the number of dofs
+     *
+     * @return the number of dofs
+     */
+    public int get_num_dofs() {
+        return m_losses.length;
+    }
+
+    /**
+     * Allows to get the loss contribution of the given dof
+     *
+     * @param idx the dof index
+     * @return the dof loss contribution
+     */
+    public double get_loss(final int idx) {
+        return m_losses[idx];
+    }
+
+    /**
+     * Allows to get the loss contributions of all dofs
+     *
+     * @return the copy of the per-dof loss contributions
+     */
+    public double[] get_losses() {
+        return m_losses.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "[fitness: " + m_ftn + ", dof losses: "
+                + Arrays.toString(m_losses) + "]";
+    }
+}
@@ -0,0 +1,438 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allows to bound the fitness computation time per population manager. A
+ * computation runs with a deadline registered for its thread. The sample and
+ * simulation loops of the library call check, every CHECK_PERIOD samples, and
+ * so can the fitness computers, throwing EvalTimeoutException once the
+ * deadline has passed. A watchdog thread marks the overdue computations as
+ * cancelled and interrupts their threads, so that the blocking fitness
+ * computers are woken up too. The interrupt is cleared once the computation
+ * is over, unless the manager is stopping. A computation finished after its
+ * deadline is timed out, gets the floor fitness and is counted.
+ *
+ * A batch computation starts with the sum of its individuals' deadlines. The
+ * batch loops calling begin_item and end_item for each individual get a
+ * deadline per individual instead, and the individuals finished before a
+ * timeout keep their fitness.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class EvalDeadline {
+
+    private static final Logger LOGGER = Logger.getLogger(EvalDeadline.class.getName());
+
+    /**
+     * The number of samples between the check calls in the sample loops, a
+     * power of two
+     */
+    public static final int CHECK_PERIOD = 64;
+
+    //Stores the watchdog period in milliseconds
+    private static final long WATCHDOG_PERIOD = 10;
+
+    /**
+     * Stores the deadline of one computation
+     */
+    static final class Token {
+
+        //Stores the computing thread
+        private final Thread m_thread;
+        //Stores the population manager id
+        private final int m_mgr_id;
+        //Stores the timeout of one individual in nanoseconds
+        private final long m_timeout;
+        //Stores the deadline in System.nanoTime terms
+        private volatile long m_deadline;
+        //Stores the index of the last individual begun, -1 if none
+        private int m_item_idx;
+        //Stores the index of the individual begun when cancelled, -1 if none
+        private int m_cancel_idx;
+        //Stores the fitness of the finished individuals and their flags
+        private final Fitness[] m_item_ftns;
+        private final boolean[] m_is_item_done;
+        //Stores the cancellation flag
+        private volatile boolean m_is_cancelled;
+        //Stores the flag indicating the cancellation was before the deadline
+        private boolean m_is_stopped;
+        //Stores the flag indicating the thread was interrupted by the watchdog
+        private boolean m_is_interrupted;
+        //Stores the flag indicating the computation is over
+        private boolean m_is_done;
+
+        Token(final int mgr_id, final long timeout, final int num_inds) {
+            this.m_thread = Thread.currentThread();
+            this.m_mgr_id = mgr_id;
+            this.m_timeout = timeout;
+            this.m_deadline = System.nanoTime() + timeout * num_inds;
+            this.m_item_idx = -1;
+            this.m_cancel_idx = -1;
+            this.m_item_ftns = new Fitness[num_inds];
+            this.m_is_item_done = new boolean[num_inds];
+            this.m_is_cancelled = false;
+            this.m_is_stopped = false;
+            this.m_is_interrupted = false;
+            this.m_is_done = false;
+        }
+
+        /**
+         * Allows to cancel the computation if it is overdue
+         *
+         * @param now the current time in System.nanoTime terms
+         */
+        synchronized void expire(final long now) {
+            if (now - m_deadline > 0) {
+                cancel();
+            }
+        }
+
+        /**
+         * Allows to re-arm the deadline to the timeout of one individual
+         *
+         * @param idx the index of the individual begun, or -1 if it is the
+         * same
+         */
+        synchronized void rearm(final int idx) {
+            if (idx >= 0) {
+                m_item_idx = idx;
+            }
+            m_deadline = System.nanoTime() + m_timeout;
+        }
+
+        /**
+         * Allows to cancel the computation, interrupting its thread
+         */
+        synchronized void cancel() {
+            if (!m_is_done) {
+                if (!m_is_cancelled) {
+                    m_is_stopped = (System.nanoTime() - m_deadline <= 0);
+                    m_cancel_idx = m_item_idx;
+                }
+                m_is_cancelled = true;
+                if (!m_is_interrupted) {
+                    m_is_interrupted = true;
+                    m_thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the settings and statistics of a population manager
+     */
+    private static final class MgrData {
+
+        //Stores the timeout in nanoseconds
+        private final long m_timeout;
+        //Stores the number of timed out computations
+        private final LongAdder m_num_timeouts;
+        //Stores the flag indicating the manager is stopping
+        private volatile boolean m_is_stopping;
+
+        MgrData(final long timeout) {
+            this.m_timeout = timeout;
+            this.m_num_timeouts = new LongAdder();
+            this.m_is_stopping = false;
+        }
+    }
+
+    //Stores the deadline of the thread's current computation
+    private static final ThreadLocal<Token> CURRENT = new ThreadLocal<>();
+    //Stores the ongoing computations with deadlines
+    private static final Set<Token> ACTIVE = ConcurrentHashMap.newKeySet();
+    //Stores the per manager data
+    private static final Map<Integer, MgrData> MGR_DATA = new ConcurrentHashMap<>();
+    //Stores the watchdog or null if not started yet
+    private static ScheduledExecutorService WATCHDOG = null;
+
+    /**
+     * The basic constructor
+     */
+    private EvalDeadline() {
+    }
+
+    /**
+     * Allows to set the fitness computation timeout of the population manager
+     *
+     * @param mgr_id the population manager id
+     * @param timeout the timeout in milliseconds, zero or less for none
+     */
+    public static void set_timeout(final int mgr_id, final long timeout) {
+        if (timeout > 0) {
+            MGR_DATA.put(mgr_id, new MgrData(TimeUnit.MILLISECONDS.toNanos(timeout)));
+            start_watchdog();
+        } else {
+            MGR_DATA.remove(mgr_id);
+        }
+    }
+
+    /**
+     * Allows to get the number of timed out fitness computations of the
+     * population manager
+     *
+     * @param mgr_id the population manager id
+     * @return the number of timed out computations
+     */
+    public static long get_num_timeouts(final int mgr_id) {
+        final MgrData data = MGR_DATA.get(mgr_id);
+        return (data != null) ? data.m_num_timeouts.sum() : 0L;
+    }
+
+    /**
+     * Allows to count the timed out fitness computations of the population
+     * manager
+     *
+     * @param mgr_id the population manager id
+     * @param num_inds the number of the timed out individuals
+     */
+    static void add_timeouts(final int mgr_id, final int num_inds) {
+        final MgrData data = MGR_DATA.get(mgr_id);
+        if ((data != null) && (num_inds > 0)) {
+            data.m_num_timeouts.add(num_inds);
+        }
+    }
+
+    /**
+     * Allows to start the watchdog thread, once
+     */
+    private static synchronized void start_watchdog() {
+        if (WATCHDOG == null) {
+            WATCHDOG = Executors.newSingleThreadScheduledExecutor(run -> {
+                final Thread th = new Thread(run);
+                th.setName("SR-Eval-Watchdog");
+                th.setDaemon(true);
+                return th;
+            });
+            WATCHDOG.scheduleAtFixedRate(() -> {
+                final long now = System.nanoTime();
+                for (Token token : ACTIVE) {
+                    token.expire(now);
+                }
+            }, WATCHDOG_PERIOD, WATCHDOG_PERIOD, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Allows to start a fitness computation in the current thread
+     *
+     * @param mgr_id the population manager id
+     * @return the deadline token or null if the manager has no timeout
+     */
+    static Token begin(final int mgr_id) {
+        return begin(mgr_id, 1);
+    }
+
+    /**
+     * Allows to start a fitness computation of several individuals in the
+     * current thread, the timeout is per individual
+     *
+     * @param mgr_id the population manager id
+     * @param num_inds the number of individuals
+     * @return the deadline token or null if the manager has no timeout
+     */
+    static Token begin(final int mgr_id, final int num_inds) {
+        final MgrData data = MGR_DATA.get(mgr_id);
+        if (data == null) {
+            return null;
+        }
+        final Token token = new Token(mgr_id, data.m_timeout, Math.max(1, num_inds));
+        CURRENT.set(token);
+        ACTIVE.add(token);
+        return token;
+    }
+
+    /**
+     * Allows to end the fitness computation in the current thread
+     *
+     * @param token the token as returned by begin, may be null
+     * @param num_inds the number of individuals to count if timed out, zero
+     * if the caller counts them itself
+     * @return true if the computation has timed out or has been cancelled
+     */
+    static boolean end(final Token token, final int num_inds) {
+        if (token == null) {
+            return false;
+        }
+        CURRENT.remove();
+        ACTIVE.remove(token);
+        final boolean is_interrupted;
+        synchronized (token) {
+            token.m_is_done = true;
+            is_interrupted = token.m_is_interrupted;
+        }
+        final MgrData mgr_data = MGR_DATA.get(token.m_mgr_id);
+        if (is_interrupted && ((mgr_data == null) || !mgr_data.m_is_stopping)) {
+            //Clear the interrupt made by the watchdog, when stopping it may
+            //come along with the one of the executor shut down
+            Thread.interrupted();
+        }
+        final boolean is_timeout = token.m_is_cancelled
+                || (System.nanoTime() - token.m_deadline > 0);
+        if (is_timeout) {
+            add_timeouts(token.m_mgr_id, num_inds);
+            LOGGER.log(Level.FINE, "Fitness computation of {0} individuals timed out",
+                    num_inds);
+        }
+        return is_timeout;
+    }
+
+    /**
+     * Allows to check if the ended computation has been cancelled before its
+     * deadline, i.e. its manager is stopped
+     *
+     * @param token the ended token, may be null
+     * @return true if the computation has been cancelled before its deadline
+     */
+    static boolean is_stopped(final Token token) {
+        if (token == null) {
+            return false;
+        }
+        synchronized (token) {
+            return token.m_is_stopped;
+        }
+    }
+
+    /**
+     * Is to be called by a batch fitness computation loop before computing
+     * an individual, gives the individual a deadline of its own
+     *
+     * @param idx the individual's index in the batch
+     */
+    public static void begin_item(final int idx) {
+        final Token token = CURRENT.get();
+        if ((token != null) && (idx >= 0) && (idx < token.m_item_ftns.length)) {
+            token.rearm(idx);
+        }
+    }
+
+    /**
+     * Is to be called by a batch fitness computation loop once an individual
+     * is computed, the individual then keeps its fitness if the rest of the
+     * batch times out
+     *
+     * @param idx the individual's index in the batch
+     * @param ftn the individual's fitness
+     */
+    public static void end_item(final int idx, final Fitness ftn) {
+        final Token token = CURRENT.get();
+        if ((token != null) && (idx >= 0) && (idx < token.m_item_ftns.length)) {
+            token.m_item_ftns[idx] = ftn;
+            token.m_is_item_done[idx] = true;
+            token.rearm(-1);
+        }
+    }
+
+    /**
+     * Allows to get the index of the overrunning individual of the ended
+     * batch computation, the one begun when it was cancelled or else the
+     * last one begun
+     *
+     * @param token the ended token, may be null
+     * @return the individual's index or -1 if no individual has been begun,
+     * e.g. the shared work of the batch has overrun
+     */
+    static int get_item_idx(final Token token) {
+        if (token == null) {
+            return -1;
+        }
+        synchronized (token) {
+            return token.m_is_cancelled ? token.m_cancel_idx : token.m_item_idx;
+        }
+    }
+
+    /**
+     * Allows to check if the individual of the ended batch computation has
+     * been computed
+     *
+     * @param token the ended token, may be null
+     * @param idx the individual's index in the batch
+     * @return true if end_item has been called for the individual
+     */
+    static boolean is_item_done(final Token token, final int idx) {
+        return (token != null) && token.m_is_item_done[idx];
+    }
+
+    /**
+     * Allows to get the fitness of the individual of the ended batch
+     * computation, see is_item_done
+     *
+     * @param token the ended token
+     * @param idx the individual's index in the batch
+     * @return the individual's fitness
+     */
+    static Fitness get_item_fitness(final Token token, final int idx) {
+        return token.m_item_ftns[idx];
+    }
+
+    /**
+     * Allows to check if the current fitness computation is to be abandoned
+     *
+     * @return true if the deadline has passed or the computation is cancelled
+     */
+    public static boolean is_expired() {
+        final Token token = CURRENT.get();
+        return (token != null) && (token.m_is_cancelled
+                || (System.nanoTime() - token.m_deadline > 0));
+    }
+
+    /**
+     * Is the cancellation check point of the fitness computation
+     *
+     * @throws EvalTimeoutException if the deadline has passed or the
+     * computation is cancelled
+     */
+    public static void check() throws EvalTimeoutException {
+        if (is_expired()) {
+            throw new EvalTimeoutException("The fitness computation deadline has passed!");
+        }
+    }
+
+    /**
+     * Allows to cancel all the ongoing fitness computations of the population
+     * manager, e.g. when it is stopped
+     *
+     * @param mgr_id the population manager id
+     */
+    public static void cancel_all(final int mgr_id) {
+        final MgrData data = MGR_DATA.get(mgr_id);
+        if (data != null) {
+            data.m_is_stopping = true;
+        }
+        for (Token token : ACTIVE) {
+            if (token.m_mgr_id == mgr_id) {
+                token.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.Arrays;
+
+/**
+ * Represents the semantic fingerprint of an individual: the quantized values
+ * of its vector function components on the probe samples. The individuals
+ * with equal fingerprints are considered to be semantically equivalent.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Fingerprint {
+
+    //Stores the population manager id
+    private final int m_mgr_id;
+    //Stores the quantized values
+    private final long[] m_values;
+    //Stores the pre-computed hash code
+    private final int m_hash;
+
+    /**
+     * The basic constructor
+     *
+     * @param mgr_id the population manager id
+     * @param values the quantized values
+     */
+    Fingerprint(final int mgr_id, final long[] values) {
+        this.m_mgr_id = mgr_id;
+        this.m_values = values;
+        this.m_hash = 31 * Arrays.hashCode(values) + mgr_id;
+    }
+
+    @Override
+    public int hashCode() {
+        return m_hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Fingerprint)) {
+            return false;
+        }
+        final Fingerprint other = (Fingerprint) obj;
+        return (m_hash == other.m_hash) && (m_mgr_id == other.m_mgr_id)
+                && Arrays.equals(m_values, other.m_values);
+    }
+
+    @Override
+    public String toString() {
+        return "[fingerprint: " + Integer.toHexString(m_hash) + "]";
+    }
+}
@@ -0,0 +1,40 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+/**
+ * Is implemented by the objects caching their semantic fingerprint, e.g. the
+ * individuals, allowing the fitness screens to re-use it
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public interface FingerprintHolder {
+
+    /**
+     * Allows to get the fingerprint computed by the given screen, computes it
+     * once on the first request
+     *
+     * @param screen the fingerprint screen to compute the fingerprint with
+     * @return the fingerprint or null if it can not be computed
+     */
+    public Fingerprint get_fingerprint(final FingerprintScreen screen);
+}
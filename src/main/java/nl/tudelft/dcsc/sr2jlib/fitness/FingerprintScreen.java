@@ -0,0 +1,244 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+
+/**
+ * The semantic fingerprint fitness screen. The individual's expression trees
+ * are interpreted on a small fixed set of probe samples and the quantized
+ * outputs form the individual's fingerprint. The fingerprints of the evaluated
+ * individuals index a concurrent fitness table, so that the semantically
+ * equivalent individuals, e.g. "x1*2" and "x1+x1", reuse the fitness instead of
+ * being compiled and evaluated again. The fingerprints are cached by the
+ * individuals, see FingerprintHolder. The table is shared by the workers and
+ * filled in the order the individuals complete, so which individuals reuse a
+ * fitness depends on the thread timing and the phased runs using the screen
+ * are not reproducible.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class FingerprintScreen implements FitnessScreen {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(FingerprintScreen.class.getName());
+
+    //Stores the number of double mantissa bits
+    private static final int NUM_MANT_BITS = 52;
+    //Stores the canonical NaN bits
+    private static final long NAN_BITS = Double.doubleToLongBits(Double.NaN);
+
+    //Stores the mask for quantizing the double values
+    private final long m_mask;
+    //Stores the maximum number of fitness table entries
+    private final int m_max_size;
+    //Stores the probe samples per manager id
+    private final Map<Integer, double[][]> m_probes;
+    //Stores the fitness table
+    private final Map<Fingerprint, Fitness> m_table;
+    //Stores the number of fingerprinted individuals
+    private final AtomicLong m_num_probed;
+    //Stores the number of individuals with the fitness taken from the table
+    private final AtomicLong m_num_hits;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_bits the number of the mantissa bits kept when quantizing
+     * the probe values, from [0,52]
+     * @param max_size the maximum number of the fitness table entries, once
+     * reached the table is cleared
+     */
+    public FingerprintScreen(final int num_bits, final int max_size) {
+        final int num_drop = NUM_MANT_BITS - Math.max(0, Math.min(NUM_MANT_BITS, num_bits));
+        this.m_mask = ~((1L << num_drop) - 1L);
+        this.m_max_size = max_size;
+        this.m_probes = new ConcurrentHashMap<>();
+        this.m_table = new ConcurrentHashMap<>();
+        this.m_num_probed = new AtomicLong(0);
+        this.m_num_hits = new AtomicLong(0);
+    }
+
+    /**
+     * Allows to set the probe samples for the given manager. The individuals
+     * of the managers without probes are not fingerprinted.
+     *
+     * @param mgr_id the population manager id
+     * @param probes the probe samples, the first index is the sample index and
+     * the second is the variable index
+     */
+    public void set_probes(final int mgr_id, final double[][] probes) {
+        m_probes.put(mgr_id, probes);
+    }
+
+    /**
+     * Allows to set the probe samples for the given manager by taking evenly
+     * spaced samples from the data set.
+     *
+     * @param mgr_id the population manager id
+     * @param samples the data set samples, the first index is the sample index
+     * and the second is the variable index
+     * @param num_probes the number of probe samples to take
+     */
+    public void set_probes(final int mgr_id, final double[][] samples,
+            final int num_probes) {
+        final int num = Math.min(num_probes, samples.length);
+        final double[][] probes = new double[num][];
+        for (int idx = 0; idx < num; ++idx) {
+            probes[idx] = samples[(int) ((long) idx * samples.length / num)];
+        }
+        set_probes(mgr_id, probes);
+    }
+
+    /**
+     * Allows to quantize the value by dropping the lower mantissa bits
+     *
+     * @param value the value to quantize
+     * @return the quantized value bits
+     */
+    private long quantize(final double value) {
+        if (Double.isNaN(value)) {
+            return NAN_BITS;
+        } else {
+            //Prevent -0.0 from being different from 0.0
+            return Double.doubleToLongBits((value == 0.0) ? 0.0 : value) & m_mask;
+        }
+    }
+
+    /**
+     * Allows to compute the individual's fingerprint
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @return the fingerprint or null if the individual can not be
+     * fingerprinted
+     */
+    public Fingerprint fingerprint(final int mgr_id, final Expression[] exp_trees) {
+        Fingerprint fprint = null;
+        final double[][] probes = m_probes.get(mgr_id);
+        if (probes != null) {
+            boolean is_interp = true;
+            for (Expression exp : exp_trees) {
+                is_interp &= exp.is_interpretable();
+            }
+            if (is_interp) {
+                final long[] values = new long[exp_trees.length * probes.length];
+                int idx = 0;
+                for (Expression exp : exp_trees) {
+                    for (double[] probe : probes) {
+                        values[idx++] = quantize(exp.evaluate(probe));
+                    }
+                }
+                fprint = new Fingerprint(mgr_id, values);
+                m_num_probed.incrementAndGet();
+            }
+        }
+        return fprint;
+    }
+
+    /**
+     * Allows to get the individual's fingerprint, cached by the holder if any
+     *
+     * @param mgr_id the population manager id
+     * @param exp_trees the vector function of the individual
+     * @param holder the fingerprint holder or null if none
+     * @return the fingerprint or null if the individual can not be
+     * fingerprinted
+     */
+    private Fingerprint fingerprint(final int mgr_id,
+            final Expression[] exp_trees, final FingerprintHolder holder) {
+        return (holder != null) ? holder.get_fingerprint(this)
+                : fingerprint(mgr_id, exp_trees);
+    }
+
+    @Override
+    public Fitness screen(final int mgr_id, final Expression[] exp_trees) {
+        return screen(mgr_id, exp_trees, null);
+    }
+
+    @Override
+    public Fitness screen(final int mgr_id, final Expression[] exp_trees,
+            final FingerprintHolder holder) {
+        final Fingerprint fprint = fingerprint(mgr_id, exp_trees, holder);
+        if (fprint != null) {
+            final Fitness ftn = m_table.get(fprint);
+            if (ftn != null) {
+                LOGGER.log(Level.FINE, "Re-using fitness {0} for {1}",
+                        new Object[]{ftn, fprint});
+                m_num_hits.incrementAndGet();
+                return ftn;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void evaluated(final int mgr_id, final Expression[] exp_trees,
+            final Fitness ftn) {
+        evaluated(mgr_id, exp_trees, null, ftn);
+    }
+
+    @Override
+    public void evaluated(final int mgr_id, final Expression[] exp_trees,
+            final FingerprintHolder holder, final Fitness ftn) {
+        final Fingerprint fprint = fingerprint(mgr_id, exp_trees, holder);
+        if (fprint != null) {
+            if (m_table.size() >= m_max_size) {
+                LOGGER.log(Level.FINE, "The fitness table is full, clearing");
+                m_table.clear();
+            }
+            m_table.put(fprint, ftn);
+        }
+    }
+
+    /**
+     * Allows to get the number of fingerprinted individuals
+     *
+     * @return the number of fingerprinted individuals
+     */
+    public long get_num_probed() {
+        return m_num_probed.get();
+    }
+
+    /**
+     * Allows to get the number of individuals that re-used the fitness of a
+     * semantically equivalent individual
+     *
+     * @return the number of skipped fitness computations
+     */
+    public long get_num_hits() {
+        return m_num_hits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[probed: " + get_num_probed() + ", hits: " + get_num_hits()
+                + ", table size: " + m_table.size() + "]";
+    }
+}
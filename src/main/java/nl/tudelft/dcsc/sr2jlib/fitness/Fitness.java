@@ -28,6 +28,19 @@ package nl.tudelft.dcsc.sr2jlib.fitness;
  */
 public class Fitness {
 
+    //Stores the flags of the fitness classes ordered by the fitness values
+    private static final ClassValue<Boolean> IS_VALUE_ORDERED = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            try {
+                return (type.getMethod("is_less", Fitness.class).getDeclaringClass() == Fitness.class)
+                        && (type.getMethod("is_equal", Fitness.class).getDeclaringClass() == Fitness.class);
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+    };
+
     /**
      * Stores the fitness value
      */
@@ -42,6 +55,17 @@ public class Fitness {
         m_ftn = ftn;
     }
 
+    /**
+     * Allows to check if the fitness objects are compared by their fitness
+     * values, i.e. if its class does not override the comparison methods.
+     *
+     * @param ftn the fitness object
+     * @return true if the fitness is compared by the value
+     */
+    public static boolean is_value_ordered(final Fitness ftn) {
+        return IS_VALUE_ORDERED.get(ftn.getClass());
+    }
+
     /**
      * Get the requested fitness
      *
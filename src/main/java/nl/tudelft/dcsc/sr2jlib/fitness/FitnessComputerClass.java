@@ -23,11 +23,13 @@ package nl.tudelft.dcsc.sr2jlib.fitness;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nl.tudelft.dcsc.sr2jlib.err.ErrorManager;
 import nl.tudelft.dcsc.sr2jlib.instance.Creator;
 import nl.tudelft.dcsc.sr2jlib.instance.Loader;
+import nl.tudelft.dcsc.sr2jlib.instance.Precision;
 
 /**
  * The fitness computer interface
@@ -48,24 +50,183 @@ public abstract class FitnessComputerClass extends FitnessComputerString {
      *
      * @return an individual id.
      */
-    private static long acquire_uid() {
+    protected static long acquire_uid() {
         synchronized (UID_SYNCH) {
             return uid_cnt++;
         }
     }
 
+    //Stores the precision of the compiled individual classes
+    private volatile Precision m_prec = Precision.DOUBLE;
+    //Stores the single precision fitness from which on the individuals are
+    //re-scored in double precision
+    private volatile double m_promote_ftn = Double.POSITIVE_INFINITY;
+    //Stores the number of individuals re-scored in double precision
+    private final AtomicLong m_num_promoted = new AtomicLong(0);
+
+    /**
+     * Allows to set the precision of the compiled individual classes. In the
+     * single precision mode the individuals whose fitness is larger or equal
+     * to the promotion fitness are re-compiled and re-scored in double
+     * precision, so that the top of the population is not skewed by the
+     * round-off errors.
+     *
+     * @param prec the precision of the individual classes
+     * @param promote_ftn the fitness from which on the single precision
+     * individuals are re-scored in double precision, use
+     * Double.POSITIVE_INFINITY to disable the promotion check
+     */
+    public void set_precision(final Precision prec, final double promote_ftn) {
+        m_prec = prec;
+        m_promote_ftn = promote_ftn;
+    }
+
+    /**
+     * Allows to get the precision of the compiled individual classes
+     *
+     * @return the precision of the individual classes
+     */
+    public Precision get_precision() {
+        return m_prec;
+    }
+
+    /**
+     * Allows to get the number of individuals re-scored in double precision
+     *
+     * @return the number of promoted individuals
+     */
+    public long get_num_promoted() {
+        return m_num_promoted.get();
+    }
+
     @Override
     public final Fitness compute_fitness(
             final int mgr_id, final String[] exp_strs) {
+        return compute_fitness(mgr_id, exp_strs, null, null);
+    }
+
+    @Override
+    public final Fitness compute_fitness(final int mgr_id, final String[] exp_strs,
+            final Fitness parent_ftn, final boolean[] changed) {
+        final Precision prec = m_prec;
+        Fitness ftn = compute_fitness(mgr_id, exp_strs, prec, parent_ftn, changed);
+        //Re-score the top single precision individuals in double precision
+        if ((prec != Precision.DOUBLE) && (ftn != null)
+                && (ftn.get_fitness() >= m_promote_ftn)) {
+            m_num_promoted.incrementAndGet();
+            ftn = compute_fitness(mgr_id, exp_strs, Precision.DOUBLE, null, null);
+        }
+        return ftn;
+    }
+
+    @Override
+    public final Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[][] exp_strs, final Fitness parent_ftn,
+            final boolean[][] changed) {
+        final Precision prec = m_prec;
+        final Fitness[] ftns = compute_fitness_batch(mgr_id, exp_strs,
+                prec, parent_ftn, changed);
+        //Re-score the top single precision individuals in double precision
+        if (prec != Precision.DOUBLE) {
+            for (int idx = 0; idx < ftns.length; ++idx) {
+                if ((ftns[idx] != null) && (ftns[idx].get_fitness() >= m_promote_ftn)) {
+                    m_num_promoted.incrementAndGet();
+                    EvalDeadline.begin_item(idx);
+                    ftns[idx] = compute_fitness(mgr_id, exp_strs[idx],
+                            Precision.DOUBLE, null, null);
+                    EvalDeadline.end_item(idx, ftns[idx]);
+                }
+            }
+        }
+        return ftns;
+    }
+
+    /**
+     * Allows to compile the classes of a batch of individuals in one compiler
+     * call, in the given precision, and to compute their fitness. If the batch
+     * fails to compile then the individuals are compiled one by one, so that
+     * the failing individuals do not affect the others.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param exp_strs the serialized individuals' dof functions
+     * @param prec the precision of the individual classes
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, null for the failed ones
+     */
+    protected Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[][] exp_strs, final Precision prec,
+            final Fitness parent_ftn, final boolean[][] changed) {
+        Fitness[] ftns = new Fitness[exp_strs.length];
+        //Acquire the uids for unique individual class names
+        final long[] uids = new long[exp_strs.length];
+        for (int idx = 0; idx < uids.length; ++idx) {
+            uids[idx] = acquire_uid();
+        }
+        final String[] class_names;
+        try {
+            //Attempt compilation
+            class_names = Creator.prepare(uids, exp_strs, prec);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.log(Level.FINE, "Failed compiling a batch of individuals, "
+                    + "falling back to compiling them one by one", ex);
+            for (int idx = 0; idx < uids.length; ++idx) {
+                Loader.remove_old(Creator.get_class_name(uids[idx]));
+                EvalDeadline.begin_item(idx);
+                ftns[idx] = compute_fitness(mgr_id, exp_strs[idx], prec,
+                        parent_ftn, (changed == null) ? null : changed[idx]);
+                EvalDeadline.end_item(idx, ftns[idx]);
+            }
+            return ftns;
+        }
+        try {
+            //Comute fitness
+            ftns = compute_fitness_batch(mgr_id, class_names, parent_ftn, changed);
+        } catch (IllegalArgumentException | IllegalStateException
+                | ClassNotFoundException | IllegalAccessException
+                | InvocationTargetException ex) {
+            final String msg = "Failed to compute the fitness for a batch of "
+                    + exp_strs.length + " individuals";
+            LOGGER.log(Level.SEVERE, msg, ex);
+            ErrorManager.error(msg, ex);
+        } finally {
+            //Remove the old classes from the loader
+            for (String class_name : class_names) {
+                Loader.remove_old(class_name);
+            }
+        }
+        LOGGER.log(Level.FINE, "Generated a batch of {0} individuals, precision: {1}",
+                new Object[]{exp_strs.length, prec});
+        return ftns;
+    }
+
+    /**
+     * Allows to compile the individual class in the given precision and to
+     * compute its fitness
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_strs the serialized individual's dof functions
+     * @param prec the precision of the individual class
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness or null if failed
+     */
+    protected Fitness compute_fitness(final int mgr_id, final String[] exp_strs,
+            final Precision prec, final Fitness parent_ftn, final boolean[] changed) {
         Fitness ftn = null;
         //Acquire the uid for a unique individual class name
         final long uid = acquire_uid();
         final String class_name = Creator.get_class_name(uid);
         try {
             //Attempt compilation
-            Creator.prepare(uid, exp_strs);
+            Creator.prepare(uid, exp_strs, prec);
             //Comute fitness
-            ftn = compute_fitness(mgr_id, class_name);
+            ftn = compute_fitness(mgr_id, class_name, parent_ftn, changed);
             //Remove the old class from the loader
             Loader.remove_old(class_name);
         } catch (IllegalArgumentException | IllegalStateException
@@ -76,8 +237,8 @@ public abstract class FitnessComputerClass extends FitnessComputerString {
             LOGGER.log(Level.SEVERE, msg, ex);
             ErrorManager.error(msg, ex);
         }
-        LOGGER.log(Level.FINE, "Generated {0}: {1}, fitness: {2}",
-                new Object[]{class_name, Arrays.toString(exp_strs), ftn});
+        LOGGER.log(Level.FINE, "Generated {0}: {1}, precision: {2}, fitness: {3}",
+                new Object[]{class_name, Arrays.toString(exp_strs), prec, ftn});
         return ftn;
     }
 
@@ -103,4 +264,69 @@ public abstract class FitnessComputerClass extends FitnessComputerString {
             ClassNotFoundException, IllegalAccessException,
             InvocationTargetException;
 
+    /**
+     * Allows to compute fitness for the given child individual class and
+     * manager id, by default the fitness is computed from scratch.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param class_name the name of the class storing individual
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     * @throws IllegalStateException some illegal state
+     * @throws IllegalArgumentException an illegal argument value
+     * @throws ClassNotFoundException the individual class is not found, e.g.
+     * could not be compiled
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     */
+    public Fitness compute_fitness(final int mgr_id, final String class_name,
+            final Fitness parent_ftn, final boolean[] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        return compute_fitness(mgr_id, class_name);
+    }
+
+    /**
+     * Allows to compute fitness for a batch of individual classes in one call,
+     * by default the individuals are computed one by one.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param class_names the names of the classes storing individuals
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the classes
+     * @throws IllegalStateException some illegal state
+     * @throws IllegalArgumentException an illegal argument value
+     * @throws ClassNotFoundException the individual class is not found, e.g.
+     * could not be compiled
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     */
+    public Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[] class_names, final Fitness parent_ftn,
+            final boolean[][] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final Fitness[] ftns = new Fitness[class_names.length];
+        for (int idx = 0; idx < class_names.length; ++idx) {
+            EvalDeadline.begin_item(idx);
+            ftns[idx] = compute_fitness(mgr_id, class_names[idx], parent_ftn,
+                    (changed == null) ? null : changed[idx]);
+            EvalDeadline.end_item(idx, ftns[idx]);
+        }
+        return ftns;
+    }
+
 }
@@ -44,4 +44,63 @@ public abstract class FitnessComputerExpression {
     public abstract Fitness compute_fitness(final int mgr_id,
             final Expression[] exp_trees);
 
+    /**
+     * Allows to compute fitness for the given child individual. The parent's
+     * fitness and the changed dof flags allow to re-use the parent's per-dof
+     * information, see {@link DofFitness}, for the unchanged dofs. By default
+     * the fitness is computed from scratch.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     */
+    public Fitness compute_fitness(final int mgr_id,
+            final Expression[] exp_trees, final Fitness parent_ftn,
+            final boolean[] changed) {
+        return compute_fitness(mgr_id, exp_trees);
+    }
+
+    /**
+     * Allows to compute fitness for a batch of individuals in one call, so
+     * that the work can be shared among them, e.g. loading the data once or
+     * vectorizing over the individuals. By default the individuals are
+     * computed one by one. A loop over the individuals is to call
+     * EvalDeadline.begin_item and EvalDeadline.end_item around each one, so
+     * that a timeout only affects the overrunning individual.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param exp_trees the vector functions of the individuals given by the
+     * expression trees
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none, e.g. for the initial population
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the individuals
+     */
+    public Fitness[] compute_fitness_batch(final int mgr_id,
+            final Expression[][] exp_trees, final Fitness parent_ftn,
+            final boolean[][] changed) {
+        final Fitness[] ftns = new Fitness[exp_trees.length];
+        for (int idx = 0; idx < exp_trees.length; ++idx) {
+            EvalDeadline.begin_item(idx);
+            ftns[idx] = compute_fitness(mgr_id, exp_trees[idx], parent_ftn,
+                    (changed == null) ? null : changed[idx]);
+            EvalDeadline.end_item(idx, ftns[idx]);
+        }
+        return ftns;
+    }
+
+    /**
+     * Allows to drop the caches of the fitness computer, e.g. the compiled
+     * code, when the memory is short. Does nothing by default.
+     */
+    public void evict_caches() {
+    }
+
 }
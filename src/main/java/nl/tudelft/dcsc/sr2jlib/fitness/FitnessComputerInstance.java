@@ -23,16 +23,28 @@ package nl.tudelft.dcsc.sr2jlib.fitness;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nl.tudelft.dcsc.sr2jlib.err.ErrorManager;
 import nl.tudelft.dcsc.sr2jlib.instance.Creator;
 import nl.tudelft.dcsc.sr2jlib.instance.Loader;
+import nl.tudelft.dcsc.sr2jlib.instance.Precision;
 
 /**
  * The fitness computer class to be derived from when on needs to compute
  * fitness based on the individual implementing method.
  *
+ * The dof functions of the child individuals are compiled separately and
+ * cached by their code, so that the dofs left unchanged by mutation are not
+ * re-compiled. In this case the dof methods given to the fitness computation
+ * may originate from different classes.
+ *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
 public abstract class FitnessComputerInstance extends FitnessComputerClass {
@@ -42,6 +54,38 @@ public abstract class FitnessComputerInstance extends FitnessComputerClass {
 
     //Stores the class loader
     private final Loader m_loader = new Loader();
+    //Stores the cache of compiled dof methods
+    private final Map<String, Method> m_dof_cache = new ConcurrentHashMap<>();
+    //Stores the maximum dof method cache size
+    private volatile int m_max_cache_size = 4096;
+    //Stores the number of dof methods taken from the cache
+    private final AtomicLong m_num_reused = new AtomicLong(0);
+
+    /**
+     * Allows to set the maximum size of the compiled dof method cache, the
+     * cache is cleared once full.
+     *
+     * @param max_size the maximum cache size, zero disables caching
+     */
+    public void set_dof_cache_size(final int max_size) {
+        m_max_cache_size = max_size;
+        m_dof_cache.clear();
+    }
+
+    @Override
+    public void evict_caches() {
+        m_dof_cache.clear();
+    }
+
+    /**
+     * Allows to get the number of dof methods taken from the cache instead of
+     * being compiled.
+     *
+     * @return the number of re-used dof methods
+     */
+    public long get_num_dof_reused() {
+        return m_num_reused.get();
+    }
 
     @Override
     public final Fitness compute_fitness(
@@ -49,16 +93,18 @@ public abstract class FitnessComputerInstance extends FitnessComputerClass {
             throws IllegalStateException, IllegalArgumentException,
             ClassNotFoundException, IllegalAccessException,
             InvocationTargetException {
+        return compute_fitness(mgr_id, class_name, null, null);
+    }
+
+    @Override
+    public final Fitness compute_fitness(final int mgr_id, final String class_name,
+            final Fitness parent_ftn, final boolean[] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
         LOGGER.log(Level.FINE, "About to compute fitness for class {0}", class_name);
         try {
-            Class<?> ind_class = m_loader.loadClassNC(class_name.replaceAll("/", "."));
-            Method gnd_method = ind_class.getMethod(Creator.GET_NUM_DOFS);
-            final int num_dofs = (Integer) gnd_method.invoke(null);
-            Method[] vf = new Method[num_dofs];
-            for (int idx = 0; idx < num_dofs; ++idx) {
-                vf[idx] = ind_class.getMethod(Creator.EVALUATE + idx, double[].class);
-            }
-            return compute_fitness(mgr_id, vf);
+            return compute_fitness(mgr_id, get_methods(class_name), parent_ftn, changed);
         } catch (ClassNotFoundException | NoSuchMethodException | SecurityException ex) {
             final String msg = "Failed when loading and instantiating of " + class_name;
             LOGGER.log(Level.SEVERE, msg, ex);
@@ -68,10 +114,160 @@ public abstract class FitnessComputerInstance extends FitnessComputerClass {
         return null;
     }
 
+    @Override
+    public final Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[] class_names, final Fitness parent_ftn,
+            final boolean[][] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        try {
+            final Method[][] vfs = new Method[class_names.length][];
+            for (int idx = 0; idx < class_names.length; ++idx) {
+                vfs[idx] = get_methods(class_names[idx]);
+            }
+            return compute_fitness_batch(mgr_id, vfs, parent_ftn, changed);
+        } catch (ClassNotFoundException | NoSuchMethodException | SecurityException ex) {
+            final String msg = "Failed when loading and instantiating of "
+                    + Arrays.toString(class_names);
+            LOGGER.log(Level.SEVERE, msg, ex);
+            ErrorManager.error(msg, ex);
+        }
+
+        return new Fitness[class_names.length];
+    }
+
+    /**
+     * Allows to load the individual class and to get its dof methods
+     *
+     * @param class_name the name of the class storing individual
+     * @return the dof methods
+     * @throws ClassNotFoundException if the class is not found
+     * @throws NoSuchMethodException if the dof method is not found
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     */
+    private Method[] get_methods(final String class_name)
+            throws ClassNotFoundException, NoSuchMethodException,
+            IllegalAccessException, InvocationTargetException {
+        Class<?> ind_class = m_loader.loadClassNC(class_name.replaceAll("/", "."));
+        Method gnd_method = ind_class.getMethod(Creator.GET_NUM_DOFS);
+        final int num_dofs = (Integer) gnd_method.invoke(null);
+        Method gp_method = ind_class.getMethod(Creator.GET_PRECISION);
+        final Precision prec = Precision.valueOf((String) gp_method.invoke(null));
+        Method[] vf = new Method[num_dofs];
+        for (int idx = 0; idx < num_dofs; ++idx) {
+            vf[idx] = ind_class.getMethod(Creator.EVALUATE + idx, prec.get_args_class());
+        }
+        return vf;
+    }
+
+    @Override
+    protected Fitness compute_fitness(final int mgr_id, final String[] exp_strs,
+            final Precision prec, final Fitness parent_ftn, final boolean[] changed) {
+        //The individuals without parents are compiled as a whole
+        if ((parent_ftn == null) || (changed == null) || (m_max_cache_size <= 0)) {
+            return super.compute_fitness(mgr_id, exp_strs, prec, parent_ftn, changed);
+        }
+        try {
+            return compute_fitness(mgr_id, get_dof_methods(
+                    new String[][]{exp_strs}, prec)[0], parent_ftn, changed);
+        } catch (IllegalArgumentException | IllegalStateException
+                | ClassNotFoundException | IllegalAccessException
+                | InvocationTargetException | NoSuchMethodException
+                | SecurityException ex) {
+            final String msg = "Failed to compute the individual fitness for: "
+                    + Arrays.toString(exp_strs);
+            LOGGER.log(Level.SEVERE, msg, ex);
+            ErrorManager.error(msg, ex);
+        }
+        return null;
+    }
+
+    @Override
+    protected Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[][] exp_strs, final Precision prec,
+            final Fitness parent_ftn, final boolean[][] changed) {
+        //The individuals without parents are compiled as a whole
+        if ((parent_ftn == null) || (changed == null) || (m_max_cache_size <= 0)) {
+            return super.compute_fitness_batch(mgr_id, exp_strs, prec, parent_ftn, changed);
+        }
+        try {
+            return compute_fitness_batch(mgr_id, get_dof_methods(exp_strs, prec),
+                    parent_ftn, changed);
+        } catch (IllegalArgumentException | IllegalStateException
+                | ClassNotFoundException | IllegalAccessException
+                | InvocationTargetException | NoSuchMethodException
+                | SecurityException ex) {
+            final String msg = "Failed to compute the fitness for a batch of "
+                    + exp_strs.length + " individuals";
+            LOGGER.log(Level.SEVERE, msg, ex);
+            ErrorManager.error(msg, ex);
+        }
+        return new Fitness[exp_strs.length];
+    }
+
+    /**
+     * Allows to get the dof methods for the given vector functions, the dof
+     * functions which are not cached are compiled into a single class.
+     *
+     * @param exp_strs the serialized individuals' dof functions
+     * @param prec the precision of the dof functions
+     * @return the dof methods per individual
+     * @throws IllegalArgumentException if the dof functions failed to compile
+     * @throws ClassNotFoundException if the compiled class is not found
+     * @throws NoSuchMethodException if the dof method is not found
+     */
+    private Method[][] get_dof_methods(final String[][] exp_strs, final Precision prec)
+            throws IllegalArgumentException, ClassNotFoundException,
+            NoSuchMethodException {
+        final Method[][] vfs = new Method[exp_strs.length][];
+        final List<int[]> missing = new ArrayList<>();
+        for (int iidx = 0; iidx < exp_strs.length; ++iidx) {
+            vfs[iidx] = new Method[exp_strs[iidx].length];
+            for (int idx = 0; idx < exp_strs[iidx].length; ++idx) {
+                vfs[iidx][idx] = m_dof_cache.get(prec.name() + exp_strs[iidx][idx]);
+                if (vfs[iidx][idx] == null) {
+                    missing.add(new int[]{iidx, idx});
+                } else {
+                    m_num_reused.incrementAndGet();
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            final String[] functs = new String[missing.size()];
+            for (int idx = 0; idx < functs.length; ++idx) {
+                functs[idx] = exp_strs[missing.get(idx)[0]][missing.get(idx)[1]];
+            }
+            final String class_name = Creator.prepare(acquire_uid(), functs, prec);
+            try {
+                Class<?> dof_class = m_loader.loadClassNC(class_name.replaceAll("/", "."));
+                if (m_dof_cache.size() + functs.length > m_max_cache_size) {
+                    m_dof_cache.clear();
+                }
+                for (int idx = 0; idx < functs.length; ++idx) {
+                    final Method method = dof_class.getMethod(
+                            Creator.EVALUATE + idx, prec.get_args_class());
+                    vfs[missing.get(idx)[0]][missing.get(idx)[1]] = method;
+                    m_dof_cache.put(prec.name() + functs[idx], method);
+                }
+            } finally {
+                Loader.remove_old(class_name);
+            }
+        }
+        return vfs;
+    }
+
     /**
      *
      * Allows to compute fitness for the given individual vector function
-     * methods and manager id
+     * methods and manager id. The methods take a double[] argument and return
+     * a double value unless the single precision is set, see
+     * {@link #set_precision(Precision, double)}, in which case they take a
+     * float[] argument and return a float value. Note that the promoted
+     * individuals are computed in double precision, see {@link SampleStore}.
      *
      * @param mgr_id the population manager id from which the individual is
      * originated
@@ -92,4 +288,73 @@ public abstract class FitnessComputerInstance extends FitnessComputerClass {
             throws IllegalStateException, IllegalArgumentException,
             ClassNotFoundException, IllegalAccessException,
             InvocationTargetException;
+
+    /**
+     * Allows to compute fitness for the given child individual vector
+     * function methods and manager id. The loss contributions of the
+     * unchanged dofs can be taken from the parent's fitness if it is an
+     * instance of {@link DofFitness}. By default the fitness is computed from
+     * scratch.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param vf an array of individual class methods representing the vector
+     * function
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     * @throws IllegalStateException some illegal state
+     * @throws IllegalArgumentException an illegal argument value
+     * @throws ClassNotFoundException the individual class is not found, e.g.
+     * could not be compiled
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     */
+    public Fitness compute_fitness(final int mgr_id, final Method[] vf,
+            final Fitness parent_ftn, final boolean[] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        return compute_fitness(mgr_id, vf);
+    }
+
+    /**
+     * Allows to compute fitness for a batch of individual vector functions in
+     * one call, by default the individuals are computed one by one.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param vfs the arrays of individual class methods representing the
+     * vector functions
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the vector functions
+     * @throws IllegalStateException some illegal state
+     * @throws IllegalArgumentException an illegal argument value
+     * @throws ClassNotFoundException the individual class is not found, e.g.
+     * could not be compiled
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     */
+    public Fitness[] compute_fitness_batch(final int mgr_id, final Method[][] vfs,
+            final Fitness parent_ftn, final boolean[][] changed)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        final Fitness[] ftns = new Fitness[vfs.length];
+        for (int idx = 0; idx < vfs.length; ++idx) {
+            EvalDeadline.begin_item(idx);
+            ftns[idx] = compute_fitness(mgr_id, vfs[idx], parent_ftn,
+                    (changed == null) ? null : changed[idx]);
+            EvalDeadline.end_item(idx, ftns[idx]);
+        }
+        return ftns;
+    }
 }
@@ -0,0 +1,349 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.err.ErrorManager;
+import nl.tudelft.dcsc.sr2jlib.instance.Creator;
+import nl.tudelft.dcsc.sr2jlib.instance.Loader;
+import nl.tudelft.dcsc.sr2jlib.instance.Precision;
+
+/**
+ * The fitness computer class to be derived from when the individual's vector
+ * function is a state-transition map or a vector field of a dynamical system
+ * and the fitness is computed from its simulated trajectories. The system is
+ * simulated from all the initial states in lock-step, either as a
+ * discrete-time map x' = f(x) or as a continuous-time model dx/dt = f(x)
+ * integrated with the fixed-step fourth order Runge-Kutta method. The vector
+ * function is called through its generated evaluate(args, res) method without
+ * boxing and the trajectory buffers are re-used between the rollouts of the
+ * same thread. A trajectory is stopped early once its state diverges, i.e.
+ * becomes NaN, infinite or exceeds the divergence bound in absolute value.
+ *
+ * The individual classes are to be compiled in double precision.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public abstract class FitnessComputerRollout extends FitnessComputerClass {
+
+    /**
+     * The simulation type
+     */
+    public enum RolloutType {
+        /**
+         * The discrete-time map x' = f(x)
+         */
+        DISCRETE,
+        /**
+         * The continuous-time model dx/dt = f(x) with the fixed-step RK4
+         */
+        RK4
+    }
+
+    /**
+     * The per-thread simulation buffers
+     */
+    private static final class Buffers {
+
+        //Stores the trajectories per initial state, step and dof
+        double[][][] m_trajs = new double[0][0][0];
+        //Stores the trajectory lengths
+        int[] m_lengths = new int[0];
+        //Stores the active flags per initial state
+        boolean[] m_is_active = new boolean[0];
+        //Stores the vector function arguments
+        double[] m_args = new double[0];
+        //Stores the Runge-Kutta stages and the intermediate state
+        double[] m_k1 = new double[0];
+        double[] m_k2 = new double[0];
+        double[] m_k3 = new double[0];
+        double[] m_k4 = new double[0];
+        double[] m_tmp = new double[0];
+
+        /**
+         * Allows to make sure the buffers are large enough
+         *
+         * @param num_inits the number of initial states
+         * @param num_steps the number of simulation steps
+         * @param num_dofs the number of dofs
+         * @param num_args the number of vector function arguments
+         */
+        void ensure(final int num_inits, final int num_steps,
+                final int num_dofs, final int num_args) {
+            if ((m_trajs.length != num_inits) || (m_trajs[0].length != num_steps + 1)
+                    || (m_trajs[0][0].length != num_dofs)) {
+                m_trajs = new double[num_inits][num_steps + 1][num_dofs];
+                m_lengths = new int[num_inits];
+                m_is_active = new boolean[num_inits];
+            }
+            if (m_k1.length != num_dofs) {
+                m_k1 = new double[num_dofs];
+                m_k2 = new double[num_dofs];
+                m_k3 = new double[num_dofs];
+                m_k4 = new double[num_dofs];
+                m_tmp = new double[num_dofs];
+            }
+            if (m_args.length != num_args) {
+                m_args = new double[num_args];
+            }
+        }
+    }
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(FitnessComputerRollout.class.getName());
+    //Stores the type of the vector function evaluation method
+    private static final MethodType EVALUATE_TYPE = MethodType.methodType(
+            void.class, double[].class, double[].class);
+
+    //Stores the class loader
+    private final Loader m_loader = new Loader();
+    //Stores the per-thread buffers
+    private final ThreadLocal<Buffers> m_buffers = ThreadLocal.withInitial(Buffers::new);
+    //Stores the simulation type
+    private final RolloutType m_type;
+    //Stores the initial states
+    private final double[][] m_init_states;
+    //Stores the number of simulation steps
+    private final int m_num_steps;
+    //Stores the simulation time step
+    private final double m_dt;
+    //Stores the divergence bound
+    private final double m_div_bound;
+
+    /**
+     * The basic constructor
+     *
+     * @param type the simulation type
+     * @param init_states the initial states, the first index is the initial
+     * state index and the second is the dof index, not copied
+     * @param num_steps the number of simulation steps
+     * @param dt the simulation time step, only used for RK4
+     * @param div_bound the absolute state value from which on the trajectory
+     * is considered divergent, use Double.POSITIVE_INFINITY for no bound
+     * @throws IllegalArgumentException if there are no initial states or the
+     * number of steps is not positive
+     */
+    public FitnessComputerRollout(final RolloutType type,
+            final double[][] init_states, final int num_steps,
+            final double dt, final double div_bound)
+            throws IllegalArgumentException {
+        if ((init_states.length == 0) || (num_steps <= 0)) {
+            throw new IllegalArgumentException("The rollout requires at least "
+                    + "one initial state and one step, got: " + init_states.length
+                    + " initial states and " + num_steps + " steps");
+        }
+        this.m_type = type;
+        this.m_init_states = init_states;
+        this.m_num_steps = num_steps;
+        this.m_dt = dt;
+        this.m_div_bound = div_bound;
+    }
+
+    @Override
+    public final Fitness compute_fitness(final int mgr_id, final String class_name)
+            throws IllegalStateException, IllegalArgumentException,
+            ClassNotFoundException, IllegalAccessException,
+            InvocationTargetException {
+        LOGGER.log(Level.FINE, "About to simulate class {0}", class_name);
+        try {
+            final Class<?> ind_class = m_loader.loadClassNC(class_name.replaceAll("/", "."));
+            final Method gnd_method = ind_class.getMethod(Creator.GET_NUM_DOFS);
+            final int num_dofs = (Integer) gnd_method.invoke(null);
+            final Method gp_method = ind_class.getMethod(Creator.GET_PRECISION);
+            if (Precision.valueOf((String) gp_method.invoke(null)) != Precision.DOUBLE) {
+                throw new IllegalStateException("The rollout requires double precision!");
+            }
+            final MethodHandle vf = MethodHandles.publicLookup().findStatic(
+                    ind_class, Creator.EVALUATE, EVALUATE_TYPE);
+            final Buffers bufs = m_buffers.get();
+            bufs.ensure(m_init_states.length, m_num_steps, num_dofs,
+                    get_num_args(num_dofs));
+            simulate(vf, bufs, num_dofs);
+            return compute_fitness(mgr_id, bufs.m_trajs, bufs.m_lengths);
+        } catch (ClassNotFoundException | NoSuchMethodException | SecurityException ex) {
+            final String msg = "Failed when loading and instantiating of " + class_name;
+            LOGGER.log(Level.SEVERE, msg, ex);
+            ErrorManager.error(msg, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Allows to simulate the vector function from all initial states
+     *
+     * @param vf the vector function evaluation method
+     * @param bufs the simulation buffers
+     * @param num_dofs the number of dofs
+     * @throws InvocationTargetException if the vector function failed
+     */
+    private void simulate(final MethodHandle vf, final Buffers bufs,
+            final int num_dofs) throws InvocationTargetException {
+        final double[][][] trajs = bufs.m_trajs;
+        int num_active = 0;
+        for (int sidx = 0; sidx < m_init_states.length; ++sidx) {
+            System.arraycopy(m_init_states[sidx], 0, trajs[sidx][0], 0, num_dofs);
+            bufs.m_is_active[sidx] = !is_divergent(trajs[sidx][0]);
+            bufs.m_lengths[sidx] = bufs.m_is_active[sidx] ? 1 : 0;
+            num_active += bufs.m_is_active[sidx] ? 1 : 0;
+        }
+        for (int step = 1; (step <= m_num_steps) && (num_active > 0); ++step) {
+            EvalDeadline.check();
+            final double time = (step - 1) * m_dt;
+            for (int sidx = 0; sidx < m_init_states.length; ++sidx) {
+                if (bufs.m_is_active[sidx]) {
+                    final double[] state = trajs[sidx][step - 1];
+                    final double[] next = trajs[sidx][step];
+                    if (m_type == RolloutType.DISCRETE) {
+                        evaluate(vf, bufs, time, state, next);
+                    } else {
+                        rk4_step(vf, bufs, time, state, next);
+                    }
+                    if (is_divergent(next)) {
+                        bufs.m_is_active[sidx] = false;
+                        --num_active;
+                    } else {
+                        bufs.m_lengths[sidx] = step + 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Allows to make a single RK4 step
+     *
+     * @param vf the vector function evaluation method
+     * @param bufs the simulation buffers
+     * @param time the current time
+     * @param state the current state
+     * @param next the next state
+     * @throws InvocationTargetException if the vector function failed
+     */
+    private void rk4_step(final MethodHandle vf, final Buffers bufs,
+            final double time, final double[] state, final double[] next)
+            throws InvocationTargetException {
+        final double half_dt = 0.5 * m_dt;
+        final double[] tmp = bufs.m_tmp;
+        evaluate(vf, bufs, time, state, bufs.m_k1);
+        for (int idx = 0; idx < tmp.length; ++idx) {
+            tmp[idx] = state[idx] + half_dt * bufs.m_k1[idx];
+        }
+        evaluate(vf, bufs, time + half_dt, tmp, bufs.m_k2);
+        for (int idx = 0; idx < tmp.length; ++idx) {
+            tmp[idx] = state[idx] + half_dt * bufs.m_k2[idx];
+        }
+        evaluate(vf, bufs, time + half_dt, tmp, bufs.m_k3);
+        for (int idx = 0; idx < tmp.length; ++idx) {
+            tmp[idx] = state[idx] + m_dt * bufs.m_k3[idx];
+        }
+        evaluate(vf, bufs, time + m_dt, tmp, bufs.m_k4);
+        for (int idx = 0; idx < next.length; ++idx) {
+            next[idx] = state[idx] + (m_dt / 6.0) * (bufs.m_k1[idx]
+                    + 2.0 * bufs.m_k2[idx] + 2.0 * bufs.m_k3[idx] + bufs.m_k4[idx]);
+        }
+    }
+
+    /**
+     * Allows to evaluate the vector function in the given state
+     *
+     * @param vf the vector function evaluation method
+     * @param bufs the simulation buffers
+     * @param time the current time
+     * @param state the state
+     * @param res the result
+     * @throws InvocationTargetException if the vector function failed
+     */
+    private void evaluate(final MethodHandle vf, final Buffers bufs,
+            final double time, final double[] state, final double[] res)
+            throws InvocationTargetException {
+        set_args(time, state, bufs.m_args);
+        try {
+            vf.invokeExact(bufs.m_args, res);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Allows to check if the state is divergent
+     *
+     * @param state the state
+     * @return true if the state is NaN, infinite or out of the bound
+     */
+    private boolean is_divergent(final double[] state) {
+        for (double value : state) {
+            //The negated check also catches NaN values
+            if (!(Math.abs(value) <= m_div_bound) || Double.isInfinite(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allows to get the number of the vector function arguments, by default
+     * equal to the number of dofs. Override together with
+     * {@link #set_args(double, double[], double[])} to supply additional
+     * arguments such as time or external inputs.
+     *
+     * @param num_dofs the number of dofs
+     * @return the number of arguments
+     */
+    protected int get_num_args(final int num_dofs) {
+        return num_dofs;
+    }
+
+    /**
+     * Allows to set the vector function arguments for the given time and
+     * state, by default the arguments are the state.
+     *
+     * @param time the simulation time, the step index times the time step
+     * @param state the current state
+     * @param args the arguments to be set
+     */
+    protected void set_args(final double time, final double[] state,
+            final double[] args) {
+        System.arraycopy(state, 0, args, 0, state.length);
+    }
+
+    /**
+     * Allows to compute fitness from the simulated trajectories. The
+     * trajectory buffers are re-used and thus must not be stored.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param trajs the trajectories, the first index is the initial state
+     * index, the second is the step index and the third is the dof index
+     * @param lengths the number of valid states per trajectory, including the
+     * initial state, smaller than the number of steps plus one if the
+     * trajectory has diverged
+     * @return individual's fitness
+     */
+    public abstract Fitness compute_fitness(final int mgr_id,
+            final double[][][] trajs, final int[] lengths);
+}
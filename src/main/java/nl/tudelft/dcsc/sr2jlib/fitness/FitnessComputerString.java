@@ -31,15 +31,42 @@ import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
  */
 public abstract class FitnessComputerString extends FitnessComputerExpression {
 
+    /**
+     * Allows to serialize the vector function
+     *
+     * @param exp_trees the vector function expression trees
+     * @return the array of serialized expressions
+     */
+    private static String[] serialize(final Expression[] exp_trees) {
+        final String exp_strs[] = new String[exp_trees.length];
+        for (int idx = 0; idx < exp_trees.length; ++idx) {
+            exp_strs[idx] = exp_trees[idx].serialize();
+        }
+        return exp_strs;
+    }
+
     @Override
     public final Fitness compute_fitness(
             final int mgr_id, final Expression[] exp_trees) {
-        //Get the array of serialized expressions
-        final String exp_strs[] = new String[exp_trees.length];
+        return compute_fitness(mgr_id, serialize(exp_trees));
+    }
+
+    @Override
+    public final Fitness compute_fitness(final int mgr_id,
+            final Expression[] exp_trees, final Fitness parent_ftn,
+            final boolean[] changed) {
+        return compute_fitness(mgr_id, serialize(exp_trees), parent_ftn, changed);
+    }
+
+    @Override
+    public final Fitness[] compute_fitness_batch(final int mgr_id,
+            final Expression[][] exp_trees, final Fitness parent_ftn,
+            final boolean[][] changed) {
+        final String[][] exp_strs = new String[exp_trees.length][];
         for (int idx = 0; idx < exp_trees.length; ++idx) {
-            exp_strs[idx] = exp_trees[idx].serialize();
+            exp_strs[idx] = serialize(exp_trees[idx]);
         }
-        return compute_fitness(mgr_id, exp_strs);
+        return compute_fitness_batch(mgr_id, exp_strs, parent_ftn, changed);
     }
 
     /**
@@ -53,4 +80,49 @@ public abstract class FitnessComputerString extends FitnessComputerExpression {
      */
     public abstract Fitness compute_fitness(
             final int mgr_id, final String[] exp_strs);
+
+    /**
+     * Allows to compute fitness for the given child individual, by default
+     * the fitness is computed from scratch.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_strs the vector function of the individual given by the
+     * expression trees
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     */
+    public Fitness compute_fitness(final int mgr_id, final String[] exp_strs,
+            final Fitness parent_ftn, final boolean[] changed) {
+        return compute_fitness(mgr_id, exp_strs);
+    }
+
+    /**
+     * Allows to compute fitness for a batch of individuals in one call, by
+     * default the individuals are computed one by one.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param exp_strs the vector functions of the individuals given by the
+     * serialized expressions
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none, e.g. for the initial population
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the individuals
+     */
+    public Fitness[] compute_fitness_batch(final int mgr_id,
+            final String[][] exp_strs, final Fitness parent_ftn,
+            final boolean[][] changed) {
+        final Fitness[] ftns = new Fitness[exp_strs.length];
+        for (int idx = 0; idx < exp_strs.length; ++idx) {
+            EvalDeadline.begin_item(idx);
+            ftns[idx] = compute_fitness(mgr_id, exp_strs[idx], parent_ftn,
+                    (changed == null) ? null : changed[idx]);
+            EvalDeadline.end_item(idx, ftns[idx]);
+        }
+        return ftns;
+    }
 }
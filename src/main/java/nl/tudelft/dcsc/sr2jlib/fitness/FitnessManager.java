@@ -17,6 +17,11 @@
  */
 package nl.tudelft.dcsc.sr2jlib.fitness;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+
 /**
  * The singleton class for storing the fitness computer instance
  *
@@ -32,6 +37,12 @@ public class FitnessManager {
     //Stores the fitness computer instance
     private static FitnessComputerExpression m_inst = null;
 
+    /**
+     * The fitness value given to the individuals whose fitness computation
+     * has timed out, see EvalDeadline
+     */
+    public static final double FLOOR_FITNESS = 0.0;
+
     /**
      * Allows to set the instance of the fitness computer.
      *
@@ -49,5 +60,257 @@ public class FitnessManager {
     public static FitnessComputerExpression inst() {
         return m_inst;
     }
-    
+
+    //Stores the fitness screens consulted before computing fitness
+    private static final List<FitnessScreen> m_screens = new CopyOnWriteArrayList<>();
+
+    /**
+     * Allows to add a fitness screen, the screens are consulted in the order
+     * of adding them.
+     *
+     * @param screen the screen to be added
+     */
+    public static void add_screen(final FitnessScreen screen) {
+        m_screens.add(screen);
+    }
+
+    /**
+     * Allows to remove all the fitness screens
+     */
+    public static void clear_screens() {
+        m_screens.clear();
+    }
+
+    /**
+     * Allows to compute the individual's fitness. First the fitness screens
+     * are consulted and if none of them assigns the fitness then it is
+     * computed by the fitness computer instance, after which the screens are
+     * notified about the computed fitness.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @return individual's fitness
+     */
+    public static Fitness compute_fitness(final int mgr_id,
+            final Expression[] exp_trees) {
+        return compute_fitness(mgr_id, exp_trees, null, null);
+    }
+
+    /**
+     * Allows to compute the child individual's fitness. First the fitness
+     * screens are consulted and if none of them assigns the fitness then it
+     * is computed by the fitness computer instance, which may re-use the
+     * parent's fitness information for the unchanged dofs, after which the
+     * screens are notified about the computed fitness.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     */
+    public static Fitness compute_fitness(final int mgr_id,
+            final Expression[] exp_trees, final Fitness parent_ftn,
+            final boolean[] changed) {
+        return compute_fitness(mgr_id, exp_trees, null, parent_ftn, changed);
+    }
+
+    /**
+     * Allows to compute the child individual's fitness, see
+     * compute_fitness(int, Expression[], Fitness, boolean[])
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param holder the fingerprint holder of the individual or null if none
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @return individual's fitness
+     */
+    public static Fitness compute_fitness(final int mgr_id,
+            final Expression[] exp_trees, final FingerprintHolder holder,
+            final Fitness parent_ftn, final boolean[] changed) {
+        for (FitnessScreen screen : m_screens) {
+            final Fitness ftn = screen.screen(mgr_id, exp_trees, holder);
+            if (ftn != null) {
+                return ftn;
+            }
+        }
+        //Compute within the deadline, if any
+        final boolean[] is_timeout = new boolean[1];
+        final Fitness ftn = compute_timed(mgr_id, exp_trees,
+                parent_ftn, changed, is_timeout);
+        if (!is_timeout[0] && (ftn != null)) {
+            for (FitnessScreen screen : m_screens) {
+                screen.evaluated(mgr_id, exp_trees, holder, ftn);
+            }
+        }
+        return ftn;
+    }
+
+    /**
+     * Allows to compute the individual's fitness within its deadline, if any
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param parent_ftn the parent's fitness or null if unknown
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent or null if unknown
+     * @param is_timeout the array to store, as its first element, the flag
+     * indicating that the computation has timed out
+     * @return individual's fitness, the floor fitness if timed out
+     */
+    private static Fitness compute_timed(final int mgr_id,
+            final Expression[] exp_trees, final Fitness parent_ftn,
+            final boolean[] changed, final boolean[] is_timeout) {
+        final EvalDeadline.Token token = EvalDeadline.begin(mgr_id);
+        Fitness ftn = null;
+        try {
+            ftn = m_inst.compute_fitness(mgr_id, exp_trees, parent_ftn, changed);
+        } catch (RuntimeException ex) {
+            //Any failure of an abandoned computation, e.g. when interrupted
+            if ((token == null) || !EvalDeadline.is_expired()) {
+                throw ex;
+            }
+        } finally {
+            is_timeout[0] = EvalDeadline.end(token, 1);
+        }
+        return is_timeout[0] ? new Fitness(FLOOR_FITNESS) : ftn;
+    }
+
+    /**
+     * Allows to compute the fitness of a batch of individuals. The fitness
+     * screens are consulted for each individual and the remaining ones are
+     * computed by the fitness computer instance in one batch call, after
+     * which the screens are notified about the computed fitness. If the batch
+     * times out and its computer reports the individuals, see
+     * EvalDeadline.begin_item, then the finished individuals keep their
+     * fitness, the overrunning one gets the floor fitness and the ones not
+     * begun are computed one by one. Otherwise the entire batch gets the
+     * floor fitness.
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param exp_trees the vector functions of the individuals given by the
+     * expression trees
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the individuals
+     */
+    public static Fitness[] compute_fitness_batch(final int mgr_id,
+            final Expression[][] exp_trees, final Fitness parent_ftn,
+            final boolean[][] changed) {
+        return compute_fitness_batch(mgr_id, exp_trees, null, parent_ftn, changed);
+    }
+
+    /**
+     * Allows to compute the fitness of a batch of individuals, see
+     * compute_fitness_batch(int, Expression[][], Fitness, boolean[][])
+     *
+     * @param mgr_id the population manager id from which the individuals are
+     * originated
+     * @param exp_trees the vector functions of the individuals given by the
+     * expression trees
+     * @param holders the fingerprint holders of the individuals or null if
+     * none
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if unknown
+     * @return the individuals' fitness, in the order of the individuals
+     */
+    public static Fitness[] compute_fitness_batch(final int mgr_id,
+            final Expression[][] exp_trees, final FingerprintHolder[] holders,
+            final Fitness parent_ftn, final boolean[][] changed) {
+        final Fitness[] ftns = new Fitness[exp_trees.length];
+        final List<Integer> idxs = new ArrayList<>();
+        for (int idx = 0; idx < exp_trees.length; ++idx) {
+            for (FitnessScreen screen : m_screens) {
+                ftns[idx] = screen.screen(mgr_id, exp_trees[idx],
+                        (holders == null) ? null : holders[idx]);
+                if (ftns[idx] != null) {
+                    break;
+                }
+            }
+            if (ftns[idx] == null) {
+                idxs.add(idx);
+            }
+        }
+        if (!idxs.isEmpty()) {
+            final Expression[][] batch = new Expression[idxs.size()][];
+            final boolean[][] batch_chg = (changed == null) ? null : new boolean[idxs.size()][];
+            for (int bidx = 0; bidx < batch.length; ++bidx) {
+                batch[bidx] = exp_trees[idxs.get(bidx)];
+                if (batch_chg != null) {
+                    batch_chg[bidx] = changed[idxs.get(bidx)];
+                }
+            }
+            //Compute within the deadline, if any, which is per individual
+            final EvalDeadline.Token token = EvalDeadline.begin(mgr_id, batch.length);
+            Fitness[] batch_ftns = null;
+            boolean is_timeout;
+            try {
+                batch_ftns = m_inst.compute_fitness_batch(
+                        mgr_id, batch, parent_ftn, batch_chg);
+            } catch (RuntimeException ex) {
+                //Any failure of an abandoned computation, e.g. when interrupted
+                if ((token == null) || !EvalDeadline.is_expired()) {
+                    throw ex;
+                }
+            } finally {
+                //The timed out individuals are counted below
+                is_timeout = EvalDeadline.end(token, 0);
+            }
+            final boolean[] is_timeouts = new boolean[batch.length];
+            final int item_idx = EvalDeadline.get_item_idx(token);
+            if (is_timeout && (EvalDeadline.is_stopped(token) || (item_idx < 0))) {
+                //The manager is stopped or the finished individuals are not
+                //known, give up on the entire batch
+                EvalDeadline.add_timeouts(mgr_id, batch.length);
+                for (int bidx = 0; bidx < batch.length; ++bidx) {
+                    ftns[idxs.get(bidx)] = new Fitness(FLOOR_FITNESS);
+                }
+                return ftns;
+            } else if (is_timeout) {
+                //Keep the finished individuals, floor the overrunning one
+                //and compute the not begun ones, one deadline each
+                final boolean[] is_ind_timeout = new boolean[1];
+                batch_ftns = new Fitness[batch.length];
+                for (int bidx = 0; bidx < batch.length; ++bidx) {
+                    if (EvalDeadline.is_item_done(token, bidx)) {
+                        batch_ftns[bidx] = EvalDeadline.get_item_fitness(token, bidx);
+                    } else if (bidx == item_idx) {
+                        EvalDeadline.add_timeouts(mgr_id, 1);
+                        batch_ftns[bidx] = new Fitness(FLOOR_FITNESS);
+                        is_timeouts[bidx] = true;
+                    } else {
+                        batch_ftns[bidx] = compute_timed(mgr_id, batch[bidx], parent_ftn,
+                                (batch_chg == null) ? null : batch_chg[bidx], is_ind_timeout);
+                        is_timeouts[bidx] = is_ind_timeout[0];
+                    }
+                }
+            }
+            for (int bidx = 0; bidx < batch.length; ++bidx) {
+                ftns[idxs.get(bidx)] = batch_ftns[bidx];
+                if ((batch_ftns[bidx] != null) && !is_timeouts[bidx]) {
+                    for (FitnessScreen screen : m_screens) {
+                        screen.evaluated(mgr_id, batch[bidx], (holders == null)
+                                ? null : holders[idxs.get(bidx)], batch_ftns[bidx]);
+                    }
+                }
+            }
+        }
+        return ftns;
+    }
 }
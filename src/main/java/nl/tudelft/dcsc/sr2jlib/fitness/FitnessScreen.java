@@ -0,0 +1,98 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+
+/**
+ * The fitness screen interface allowing to assign fitness to an individual
+ * without computing it, e.g. in case the individual is known to be invalid.
+ * The screens are registered with the fitness manager and are consulted before
+ * the fitness computer instance.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public interface FitnessScreen {
+
+    /**
+     * Allows to screen the individual before its fitness is computed. Must be
+     * thread safe as is called from multiple reproduction threads.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @return the fitness to be assigned to the individual without computing
+     * it, or null if the fitness is to be computed
+     */
+    public Fitness screen(final int mgr_id, final Expression[] exp_trees);
+
+    /**
+     * Is called once the fitness of an individual not assigned by any of the
+     * screens has been computed. Must be thread safe as is called from
+     * multiple reproduction threads.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param ftn the computed fitness
+     */
+    public default void evaluated(final int mgr_id,
+            final Expression[] exp_trees, final Fitness ftn) {
+    }
+
+    /**
+     * Allows to screen the individual before its fitness is computed, see
+     * screen(int, Expression[]). The screens using the fingerprints take the
+     * one cached by the holder.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param holder the fingerprint holder of the individual or null if none
+     * @return the fitness to be assigned to the individual without computing
+     * it, or null if the fitness is to be computed
+     */
+    public default Fitness screen(final int mgr_id,
+            final Expression[] exp_trees, final FingerprintHolder holder) {
+        return screen(mgr_id, exp_trees);
+    }
+
+    /**
+     * Is called once the fitness of an individual has been computed, see
+     * evaluated(int, Expression[], Fitness). The screens using the
+     * fingerprints take the one cached by the holder.
+     *
+     * @param mgr_id the population manager id from which the individual is
+     * originated
+     * @param exp_trees the vector function of the individual given by the
+     * expression trees
+     * @param holder the fingerprint holder of the individual or null if none
+     * @param ftn the computed fitness
+     */
+    public default void evaluated(final int mgr_id, final Expression[] exp_trees,
+            final FingerprintHolder holder, final Fitness ftn) {
+        evaluated(mgr_id, exp_trees, ftn);
+    }
+}
@@ -0,0 +1,189 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
+
+/**
+ * The interval-arithmetic fitness screen. Given the per-variable value ranges
+ * of the data set it evaluates the individual's expressions over intervals. If
+ * some vector function component can only produce NaN or infinite values, or
+ * optionally if all of the components are constant, then the individual gets
+ * the floor fitness without being compiled and evaluated.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class IntervalScreen implements FitnessScreen {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(IntervalScreen.class.getName());
+
+    //Stores the fitness assigned to the rejected individuals
+    private final Fitness m_floor_ftn;
+    //Stores the flag indicating whether constant individuals are rejected
+    private final boolean m_is_rej_const;
+    //Stores the variable ranges per manager id
+    private final Map<Integer, Interval[]> m_var_ranges;
+    //Stores the number of screened individuals
+    private final AtomicLong m_num_screened;
+    //Stores the number of individuals rejected as invalid
+    private final AtomicLong m_num_invalid;
+    //Stores the number of individuals rejected as constant
+    private final AtomicLong m_num_const;
+
+    /**
+     * The basic constructor
+     *
+     * @param floor_ftn the fitness value assigned to the rejected individuals
+     * @param is_rej_const if true then the individuals with all vector function
+     * components being constant are rejected
+     */
+    public IntervalScreen(final double floor_ftn, final boolean is_rej_const) {
+        this.m_floor_ftn = new Fitness(floor_ftn);
+        this.m_is_rej_const = is_rej_const;
+        this.m_var_ranges = new ConcurrentHashMap<>();
+        this.m_num_screened = new AtomicLong(0);
+        this.m_num_invalid = new AtomicLong(0);
+        this.m_num_const = new AtomicLong(0);
+    }
+
+    /**
+     * Allows to set the variable ranges for the given manager. The
+     * individuals of the managers without ranges are not screened.
+     *
+     * @param mgr_id the population manager id
+     * @param mins the minimum variable values, indexed by the variable index
+     * @param maxs the maximum variable values, indexed by the variable index
+     * @throws IllegalArgumentException if the arrays are of different lengths
+     */
+    public void set_var_ranges(final int mgr_id, final double[] mins,
+            final double[] maxs) throws IllegalArgumentException {
+        if (mins.length != maxs.length) {
+            throw new IllegalArgumentException("The number of minimum values: "
+                    + mins.length + " differs from the number of maximum values: "
+                    + maxs.length);
+        }
+        final Interval[] ranges = new Interval[mins.length];
+        for (int idx = 0; idx < mins.length; ++idx) {
+            ranges[idx] = Interval.make(mins[idx], maxs[idx], false);
+        }
+        m_var_ranges.put(mgr_id, ranges);
+    }
+
+    /**
+     * Allows to set the variable ranges for the given manager from the data
+     * set samples. The individuals of the managers without ranges are not
+     * screened.
+     *
+     * @param mgr_id the population manager id
+     * @param samples the data set samples, the first index is the sample index
+     * and the second is the variable index
+     */
+    public void set_var_ranges(final int mgr_id, final double[][] samples) {
+        final int num_vars = (samples.length == 0) ? 0 : samples[0].length;
+        final Interval[] ranges = new Interval[num_vars];
+        for (int idx = 0; idx < num_vars; ++idx) {
+            ranges[idx] = Interval.of_samples(samples, idx);
+        }
+        m_var_ranges.put(mgr_id, ranges);
+    }
+
+    @Override
+    public Fitness screen(final int mgr_id, final Expression[] exp_trees) {
+        final Interval[] ranges = m_var_ranges.get(mgr_id);
+        if (ranges == null) {
+            return null;
+        }
+        m_num_screened.incrementAndGet();
+
+        boolean is_all_const = true;
+        for (Expression exp : exp_trees) {
+            if (exp.is_interpretable()) {
+                final Interval value = exp.evaluate(ranges);
+                if (value.is_invalid()) {
+                    LOGGER.log(Level.FINE, "Rejecting invalid individual, range: {0}", value);
+                    m_num_invalid.incrementAndGet();
+                    return m_floor_ftn;
+                }
+                is_all_const &= value.is_const() && !value.is_may_nan();
+            } else {
+                is_all_const = false;
+            }
+        }
+
+        if (m_is_rej_const && is_all_const) {
+            LOGGER.log(Level.FINE, "Rejecting constant individual");
+            m_num_const.incrementAndGet();
+            return m_floor_ftn;
+        }
+
+        return null;
+    }
+
+    /**
+     * Allows to get the number of screened individuals
+     *
+     * @return the number of screened individuals
+     */
+    public long get_num_screened() {
+        return m_num_screened.get();
+    }
+
+    /**
+     * Allows to get the number of individuals rejected as invalid
+     *
+     * @return the number of individuals rejected as invalid
+     */
+    public long get_num_invalid() {
+        return m_num_invalid.get();
+    }
+
+    /**
+     * Allows to get the number of individuals rejected as constant
+     *
+     * @return the number of individuals rejected as constant
+     */
+    public long get_num_const() {
+        return m_num_const.get();
+    }
+
+    /**
+     * Allows to get the number of fitness computations skipped
+     *
+     * @return the number of rejected individuals
+     */
+    public long get_num_skipped() {
+        return m_num_invalid.get() + m_num_const.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[screened: " + get_num_screened() + ", invalid: "
+                + get_num_invalid() + ", constant: " + get_num_const() + "]";
+    }
+}
@@ -0,0 +1,195 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import nl.tudelft.dcsc.sr2jlib.instance.Precision;
+
+/**
+ * Stores the data set samples in the precision of the compiled individual
+ * classes. Each sample is kept as a separate array which can be passed as an
+ * argument to the dof functions as is, so in the single precision mode the
+ * samples are evaluated from float[] arrays halving the memory traffic. The
+ * double precision samples are always kept as they are needed for re-scoring
+ * the promoted individuals, see
+ * {@link FitnessComputerClass#set_precision(Precision, double)}. The variable
+ * columns are stored separately for the column oriented fitness computations.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class SampleStore {
+
+    //Stores the precision
+    private final Precision m_prec;
+    //Stores the number of variables
+    private final int m_num_vars;
+    //Stores the double samples
+    private final double[][] m_dsamples;
+    //Stores the float samples, null in the double precision mode
+    private final float[][] m_fsamples;
+    //Stores the double columns
+    private final double[][] m_dcolumns;
+    //Stores the float columns, null in the double precision mode
+    private final float[][] m_fcolumns;
+
+    /**
+     * The basic constructor
+     *
+     * @param prec the precision to store the samples in
+     * @param samples the samples array, the first index is the sample index
+     * and the second is the variable index
+     */
+    public SampleStore(final Precision prec, final double[][] samples) {
+        this.m_prec = prec;
+        this.m_num_vars = (samples.length > 0) ? samples[0].length : 0;
+        this.m_dsamples = new double[samples.length][];
+        this.m_dcolumns = new double[m_num_vars][samples.length];
+        for (int sidx = 0; sidx < samples.length; ++sidx) {
+            m_dsamples[sidx] = samples[sidx].clone();
+            for (int vidx = 0; vidx < m_num_vars; ++vidx) {
+                m_dcolumns[vidx][sidx] = samples[sidx][vidx];
+            }
+        }
+        if (prec == Precision.DOUBLE) {
+            this.m_fsamples = null;
+            this.m_fcolumns = null;
+        } else {
+            this.m_fsamples = new float[samples.length][m_num_vars];
+            this.m_fcolumns = new float[m_num_vars][samples.length];
+            for (int sidx = 0; sidx < samples.length; ++sidx) {
+                for (int vidx = 0; vidx < m_num_vars; ++vidx) {
+                    m_fsamples[sidx][vidx] = (float) samples[sidx][vidx];
+                    m_fcolumns[vidx][sidx] = m_fsamples[sidx][vidx];
+                }
+            }
+        }
+    }
+
+    /**
+     * Allows to get the precision of the stored samples
+     *
+     * @return the precision
+     */
+    public Precision get_precision() {
+        return m_prec;
+    }
+
+    /**
+     * Allows to get the number of samples
+     *
+     * @return the number of samples
+     */
+    public int get_num_samples() {
+        return m_dsamples.length;
+    }
+
+    /**
+     * Allows to get the number of variables per sample
+     *
+     * @return the number of variables
+     */
+    public int get_num_vars() {
+        return m_num_vars;
+    }
+
+    /**
+     * Allows to get the sample to be passed to the dof functions of the given
+     * precision, must not be modified.
+     *
+     * @param prec the precision of the dof functions
+     * @param sidx the sample index
+     * @return the double[] or float[] sample array
+     * @throws IllegalStateException if the single precision sample is
+     * requested from the double precision store
+     */
+    public Object get_args(final Precision prec, final int sidx)
+            throws IllegalStateException {
+        if (prec == Precision.DOUBLE) {
+            return m_dsamples[sidx];
+        } else if (m_fsamples != null) {
+            return m_fsamples[sidx];
+        } else {
+            throw new IllegalStateException("The sample store is not single precision!");
+        }
+    }
+
+    /**
+     * Allows to get the double precision variable column, must not be
+     * modified.
+     *
+     * @param vidx the variable index
+     * @return the column
+     */
+    public double[] get_dcolumn(final int vidx) {
+        return m_dcolumns[vidx];
+    }
+
+    /**
+     * Allows to get the single precision variable column, must not be
+     * modified.
+     *
+     * @param vidx the variable index
+     * @return the column or null in the double precision mode
+     */
+    public float[] get_fcolumn(final int vidx) {
+        return (m_fcolumns != null) ? m_fcolumns[vidx] : null;
+    }
+
+    /**
+     * Allows to get the sample value
+     *
+     * @param sidx the sample index
+     * @param vidx the variable index
+     * @return the value
+     */
+    public double get_value(final int sidx, final int vidx) {
+        return m_dsamples[sidx][vidx];
+    }
+
+    /**
+     * Allows to evaluate the dof function on the given sample, the sample
+     * precision is chosen based on the dof function argument type.
+     *
+     * @param dof_fn the dof function of the individual class
+     * @param sidx the sample index
+     * @return the function value
+     * @throws IllegalStateException if the single precision dof function is
+     * evaluated on the double precision store
+     * @throws IllegalAccessException illegal access to individual class methods
+     * (should not be happening)
+     * @throws InvocationTargetException failed calling individual class methods
+     * (should not be happening)
+     * @throws EvalTimeoutException if the fitness computation deadline has
+     * passed, see EvalDeadline
+     */
+    public double evaluate(final Method dof_fn, final int sidx)
+            throws IllegalStateException, IllegalAccessException,
+            InvocationTargetException {
+        if ((sidx & (EvalDeadline.CHECK_PERIOD - 1)) == 0) {
+            EvalDeadline.check();
+        }
+        final Precision prec = (dof_fn.getParameterTypes()[0] == float[].class)
+                ? Precision.FLOAT : Precision.DOUBLE;
+        return ((Number) dof_fn.invoke(null, get_args(prec, sidx))).doubleValue();
+    }
+}
@@ -0,0 +1,445 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.fitness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
+import nl.tudelft.dcsc.sr2jlib.grammar.expr.FunctExpr;
+
+/**
+ * The surrogate fitness model used to pre-screen children before their full
+ * fitness computation. The model is an online linear regression, trained by
+ * recursive least squares with forgetting, predicting the child's fitness from
+ * cheap features: the parent's fitness, the tree sizes, the operator histogram
+ * and the difference between the child and the parent outputs on a small set
+ * of probe samples. A child is rejected without computing its fitness if it
+ * is predicted, with the given confidence margin, to lose against all the
+ * individuals of the area it is to be settled into.
+ *
+ * A fraction of the children to be rejected is evaluated anyway in order to
+ * estimate the false-reject rate, i.e. the fraction of rejected children that
+ * would have won. Once the estimated rate exceeds the allowed maximum the
+ * rejection is suspended until the estimate falls below it again.
+ *
+ * The audit choice is drawn from the RandomSource, yet the model is shared by
+ * the workers and trained in the order the children complete, so the
+ * decisions depend on the thread timing and the phased runs using the model
+ * are not reproducible.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class SurrogateModel {
+
+    /**
+     * The surrogate pre-screening decision
+     */
+    public enum Decision {
+        /**
+         * The child is to be evaluated
+         */
+        EVALUATE,
+        /**
+         * The child is predicted to lose but is evaluated to check the
+         * prediction
+         */
+        AUDIT,
+        /**
+         * The child is rejected without evaluation
+         */
+        REJECT
+    }
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(SurrogateModel.class.getName());
+
+    //Stores the number of the non-histogram features
+    private static final int NUM_BASE_FEATURES = 6;
+    //Stores the initial diagonal value of the inverse covariance matrix
+    private static final double INIT_COVAR = 1000.0;
+    //Stores the covariance trace from which on the matrix is re-set
+    private static final double MAX_COVAR_TRACE = 1.0e8;
+    //Stores the residual variance smoothing factor
+    private static final double RES_ALPHA = 0.01;
+    //Stores the minimum number of audits to estimate the false-reject rate
+    private static final int MIN_NUM_AUDITS = 20;
+
+    //Stores the number of operator histogram buckets
+    private final int m_num_buckets;
+    //Stores the number of the model features
+    private final int m_num_feats;
+    //Stores the confidence margin in residual standard deviations
+    private final double m_conf;
+    //Stores the fraction of children to be rejected that are evaluated
+    private final double m_audit_rate;
+    //Stores the maximum allowed false-reject rate
+    private final double m_max_false_rej;
+    //Stores the number of training samples before rejecting
+    private final int m_min_train;
+    //Stores the forgetting factor
+    private final double m_forget;
+    //Stores the probe samples per manager id
+    private final Map<Integer, double[][]> m_probes;
+
+    //Stores the model weights
+    private final double[] m_weights;
+    //Stores the inverse covariance matrix
+    private final double[][] m_covar;
+    //Stores the smoothed residual variance
+    private double m_res_var;
+    //Stores the number of training samples
+    private long m_num_trained;
+    //Stores the sum of absolute prediction errors
+    private double m_sum_abs_err;
+
+    //Stores the number of screened children
+    private final AtomicLong m_num_screened;
+    //Stores the number of rejected children
+    private final AtomicLong m_num_rejected;
+    //Stores the number of audited children
+    private final AtomicLong m_num_audited;
+    //Stores the number of audited children that would have won
+    private final AtomicLong m_num_false_rej;
+
+    /**
+     * The basic constructor
+     *
+     * @param num_buckets the number of operator histogram buckets
+     * @param conf the confidence margin, in the residual standard deviations,
+     * added to the predicted fitness before comparing it with the area
+     * @param audit_rate the fraction, from [0,1], of the children to be
+     * rejected that are evaluated in order to estimate the false-reject rate
+     * @param max_false_rej the maximum allowed false-reject rate from [0,1]
+     * @param min_train the number of training samples before rejecting
+     * @param forget the forgetting factor from (0,1], smaller values adapt to
+     * the changing population faster
+     */
+    public SurrogateModel(final int num_buckets, final double conf,
+            final double audit_rate, final double max_false_rej,
+            final int min_train, final double forget) {
+        this.m_num_buckets = Math.max(0, num_buckets);
+        this.m_num_feats = NUM_BASE_FEATURES + m_num_buckets;
+        this.m_conf = conf;
+        this.m_audit_rate = audit_rate;
+        this.m_max_false_rej = max_false_rej;
+        this.m_min_train = min_train;
+        this.m_forget = forget;
+        this.m_probes = new ConcurrentHashMap<>();
+        this.m_weights = new double[m_num_feats];
+        this.m_covar = new double[m_num_feats][m_num_feats];
+        reset_covar();
+        this.m_res_var = 1.0;
+        this.m_num_trained = 0;
+        this.m_sum_abs_err = 0.0;
+        this.m_num_screened = new AtomicLong(0);
+        this.m_num_rejected = new AtomicLong(0);
+        this.m_num_audited = new AtomicLong(0);
+        this.m_num_false_rej = new AtomicLong(0);
+    }
+
+    /**
+     * Allows to set the probe samples for the given manager. The probe
+     * features of the managers without probes are zero.
+     *
+     * @param mgr_id the population manager id
+     * @param probes the probe samples, the first index is the sample index and
+     * the second is the variable index
+     */
+    public void set_probes(final int mgr_id, final double[][] probes) {
+        m_probes.put(mgr_id, probes);
+    }
+
+    /**
+     * Allows to re-set the inverse covariance matrix
+     */
+    private void reset_covar() {
+        for (int row = 0; row < m_num_feats; ++row) {
+            for (int col = 0; col < m_num_feats; ++col) {
+                m_covar[row][col] = (row == col) ? INIT_COVAR : 0.0;
+            }
+        }
+    }
+
+    /**
+     * Allows to compute the child's features
+     *
+     * @param mgr_id the population manager id
+     * @param child the child's vector function expressions
+     * @param parent the parent's vector function expressions
+     * @param parent_ftn the parent's fitness
+     * @return the features
+     */
+    public double[] features(final int mgr_id, final Expression[] child,
+            final Expression[] parent, final Fitness parent_ftn) {
+        final double[] feats = new double[m_num_feats];
+        feats[0] = 1.0;
+        feats[1] = parent_ftn.get_fitness();
+        int child_size = 0;
+        int parent_size = 0;
+        for (int idx = 0; idx < child.length; ++idx) {
+            child_size += child[idx].get_size();
+            parent_size += parent[idx].get_size();
+        }
+        feats[2] = Math.log(1.0 + child_size);
+        feats[3] = feats[2] - Math.log(1.0 + parent_size);
+        set_probe_features(mgr_id, child, parent, feats);
+        set_histogram_features(child, feats);
+        return feats;
+    }
+
+    /**
+     * Allows to set the features comparing the child and the parent outputs
+     * on the probe samples
+     *
+     * @param mgr_id the population manager id
+     * @param child the child's vector function expressions
+     * @param parent the parent's vector function expressions
+     * @param feats the features to set
+     */
+    private void set_probe_features(final int mgr_id, final Expression[] child,
+            final Expression[] parent, final double[] feats) {
+        final double[][] probes = m_probes.get(mgr_id);
+        if (probes != null) {
+            double sum_diff = 0.0;
+            int num_valid = 0;
+            int num_invalid = 0;
+            for (int idx = 0; idx < child.length; ++idx) {
+                if (child[idx].is_interpretable() && parent[idx].is_interpretable()) {
+                    for (double[] probe : probes) {
+                        final double cval = child[idx].evaluate(probe);
+                        final double pval = parent[idx].evaluate(probe);
+                        if (Double.isFinite(cval)) {
+                            if (Double.isFinite(pval)) {
+                                sum_diff += Math.abs(cval - pval);
+                                ++num_valid;
+                            }
+                        } else {
+                            ++num_invalid;
+                        }
+                    }
+                }
+            }
+            feats[4] = (num_valid > 0) ? Math.log1p(sum_diff / num_valid) : 0.0;
+            feats[5] = (num_valid + num_invalid > 0)
+                    ? ((double) num_invalid) / (num_valid + num_invalid) : 0.0;
+        }
+    }
+
+    /**
+     * Allows to set the normalized operator histogram features
+     *
+     * @param child the child's vector function expressions
+     * @param feats the features to set
+     */
+    private void set_histogram_features(final Expression[] child, final double[] feats) {
+        if (m_num_buckets > 0) {
+            final List<Expression> nterm = new ArrayList<>();
+            final List<Expression> term = new ArrayList<>();
+            for (Expression exp : child) {
+                exp.get_nodes(nterm, term);
+            }
+            for (Expression node : nterm) {
+                final int hash = ((FunctExpr) node).get_function().hashCode();
+                feats[NUM_BASE_FEATURES + Math.floorMod(hash, m_num_buckets)] += 1.0;
+            }
+            final double total = nterm.size() + term.size();
+            for (int idx = NUM_BASE_FEATURES; idx < m_num_feats; ++idx) {
+                feats[idx] /= total;
+            }
+        }
+    }
+
+    /**
+     * Allows to predict the fitness
+     *
+     * @param feats the features
+     * @return the predicted fitness
+     */
+    public synchronized double predict(final double[] feats) {
+        double pred = 0.0;
+        for (int idx = 0; idx < m_num_feats; ++idx) {
+            pred += m_weights[idx] * feats[idx];
+        }
+        return pred;
+    }
+
+    /**
+     * Allows to decide whether the child is to be evaluated
+     *
+     * @param feats the child's features
+     * @param win_ftn the fitness the child has to reach in order to win
+     * against some individual in the area, Double.NEGATIVE_INFINITY if the
+     * child can always be settled
+     * @return the decision
+     */
+    public Decision decide(final double[] feats, final double win_ftn) {
+        m_num_screened.incrementAndGet();
+        final double pred;
+        final double sigma;
+        synchronized (this) {
+            if (m_num_trained < m_min_train) {
+                return Decision.EVALUATE;
+            }
+            pred = predict(feats);
+            sigma = Math.sqrt(m_res_var);
+        }
+        if (pred + m_conf * sigma >= win_ftn) {
+            return Decision.EVALUATE;
+        }
+        if (is_suspended() || (RandomSource.next_double() < m_audit_rate)) {
+            m_num_audited.incrementAndGet();
+            return Decision.AUDIT;
+        }
+        m_num_rejected.incrementAndGet();
+        return Decision.REJECT;
+    }
+
+    /**
+     * Allows to check if the rejection is suspended due to the false-reject
+     * rate exceeding the maximum
+     *
+     * @return true if the rejection is suspended
+     */
+    private boolean is_suspended() {
+        return (m_num_audited.get() >= MIN_NUM_AUDITS)
+                && (get_false_reject_rate() > m_max_false_rej);
+    }
+
+    /**
+     * Allows to train the model on the evaluated child
+     *
+     * @param feats the child's features
+     * @param ftn the child's computed fitness
+     * @param decision the pre-screening decision made for the child
+     * @param win_ftn the fitness the child had to reach in order to win
+     */
+    public void train(final double[] feats, final Fitness ftn,
+            final Decision decision, final double win_ftn) {
+        final double value = ftn.get_fitness();
+        if (decision == Decision.AUDIT && (value >= win_ftn)) {
+            m_num_false_rej.incrementAndGet();
+        }
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        synchronized (this) {
+            final double[] pfeats = new double[m_num_feats];
+            double denom = m_forget;
+            for (int row = 0; row < m_num_feats; ++row) {
+                for (int col = 0; col < m_num_feats; ++col) {
+                    pfeats[row] += m_covar[row][col] * feats[col];
+                }
+                denom += feats[row] * pfeats[row];
+            }
+            final double error = value - predict(feats);
+            double trace = 0.0;
+            for (int row = 0; row < m_num_feats; ++row) {
+                final double gain = pfeats[row] / denom;
+                m_weights[row] += gain * error;
+                for (int col = 0; col < m_num_feats; ++col) {
+                    m_covar[row][col] = (m_covar[row][col] - gain * pfeats[col]) / m_forget;
+                }
+                trace += m_covar[row][row];
+            }
+            if (!(trace <= MAX_COVAR_TRACE)) {
+                LOGGER.log(Level.FINE, "Re-setting the surrogate covariance, trace: {0}", trace);
+                reset_covar();
+            }
+            m_res_var = (1.0 - RES_ALPHA) * m_res_var + RES_ALPHA * error * error;
+            m_sum_abs_err += Math.abs(error);
+            ++m_num_trained;
+        }
+    }
+
+    /**
+     * Allows to get the number of pre-screened children
+     *
+     * @return the number of screened children
+     */
+    public long get_num_screened() {
+        return m_num_screened.get();
+    }
+
+    /**
+     * Allows to get the number of children rejected without evaluation
+     *
+     * @return the number of rejected children
+     */
+    public long get_num_rejected() {
+        return m_num_rejected.get();
+    }
+
+    /**
+     * Allows to get the fraction of the screened children which were not
+     * evaluated
+     *
+     * @return the fraction of saved evaluations
+     */
+    public double get_saved_fraction() {
+        final long num_screened = get_num_screened();
+        return (num_screened > 0) ? ((double) get_num_rejected()) / num_screened : 0.0;
+    }
+
+    /**
+     * Allows to get the number of children predicted to lose but evaluated
+     *
+     * @return the number of audited children
+     */
+    public long get_num_audited() {
+        return m_num_audited.get();
+    }
+
+    /**
+     * Allows to get the estimated false-reject rate, the fraction of the
+     * audited children that would have won
+     *
+     * @return the estimated false-reject rate
+     */
+    public double get_false_reject_rate() {
+        final long num_audited = get_num_audited();
+        return (num_audited > 0) ? ((double) m_num_false_rej.get()) / num_audited : 0.0;
+    }
+
+    /**
+     * Allows to get the mean absolute prediction error over the training
+     * samples, measured before training on them
+     *
+     * @return the mean absolute prediction error
+     */
+    public synchronized double get_mean_abs_error() {
+        return (m_num_trained > 0) ? m_sum_abs_err / m_num_trained : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return "[screened: " + get_num_screened() + ", rejected: " + get_num_rejected()
+                + ", saved: " + get_saved_fraction() + ", audited: " + get_num_audited()
+                + ", false-reject rate: " + get_false_reject_rate()
+                + ", mean abs error: " + get_mean_abs_error() + "]";
+    }
+}
@@ -37,7 +37,6 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -144,6 +143,8 @@ public class Grammar implements GrammarProvider {
 
     //Stores the maximum allowed tree size
     private final int m_max_ts;
+    //Stores the current tree size limit, at most the maximum tree size
+    private volatile int m_ts_limit;
     //Stores the number of variables
     private final int m_num_vars;
     //Stores the change versus replace ratio
@@ -170,6 +171,7 @@ public class Grammar implements GrammarProvider {
     private Grammar(final GrammarConfig cfg) {
         //Initialize parameters
         this.m_max_ts = cfg.m_max_ts;
+        this.m_ts_limit = cfg.m_max_ts;
         this.m_num_vars = cfg.m_num_vars;
         this.m_ch_vs_rep = cfg.m_ch_vs_rep;
 
@@ -357,6 +359,37 @@ public class Grammar implements GrammarProvider {
         m_tree_size_bound = Math.max(m_min_tree_size, m_max_ts) + 1;
     }
 
+    /**
+     * Allows to get the maximum allowed tree size, as configured
+     *
+     * @return the maximum allowed tree size
+     */
+    public int get_max_ts() {
+        return m_max_ts;
+    }
+
+    /**
+     * Allows to get the current tree size limit
+     *
+     * @return the tree size limit
+     */
+    public int get_ts_limit() {
+        return m_ts_limit;
+    }
+
+    /**
+     * Allows to tighten or relax the tree size limit of the newly generated
+     * and mutated trees, the existing trees are not changed. The limit is
+     * kept within the minimum tree size and the maximum allowed tree size.
+     *
+     * @param ts_limit the new tree size limit
+     * @return the tree size limit set
+     */
+    public int set_ts_limit(final int ts_limit) {
+        m_ts_limit = Math.max(Math.max(1, m_min_tree_size), Math.min(m_max_ts, ts_limit));
+        return m_ts_limit;
+    }
+
     @Override
     public int compute_max_size(final String arg_type) {
         GrammarEntry entry = m_entries.get(arg_type);
@@ -451,6 +484,8 @@ public class Grammar implements GrammarProvider {
             //Numeric/boolean constant, the change then boils down to a simple
             //node re-materialization.
             tmn.materialize(1);
+            //The node is changed in place so the cached values are to be reset
+            mutant.invalidate_node(tmn);
         }
 
         return mutant;
@@ -473,9 +508,9 @@ public class Grammar implements GrammarProvider {
         final int max_size = Math.max(min_size,
                 (int) Math.ceil(old_node_size * m_max_node_grow));
         final int grow_range = Math.max(0, max_size - min_size) + 1;
-        final int rem_size = m_max_ts - (tree_size - old_node_size);
+        final int rem_size = Math.max(1, m_ts_limit - (tree_size - old_node_size));
         final int new_node_size = Math.min(rem_size,
-                min_size + ThreadLocalRandom.current().nextInt(grow_range));
+                min_size + RandomSource.next_int(grow_range));
         LOGGER.log(Level.FINE, "The old node size: {0}, the new node size: {1},"
                 + " the new size range is [{2}, {3})", new Object[]{old_node_size,
                     new_node_size, min_size, min_size + grow_range});
@@ -497,8 +532,10 @@ public class Grammar implements GrammarProvider {
         LOGGER.log(Level.FINE, "The old/new nodes are: {0}/{1}",
                 new Object[]{tmn, exchange_node});
         exchange_node.materialize(new_node_size);
-        LOGGER.log(Level.FINE, "The the new node {0} has actual size: {1}",
-                new Object[]{exchange_node.serialize(), exchange_node.get_size()});
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "The the new node {0} has actual size: {1}",
+                    new Object[]{exchange_node.serialize(), exchange_node.get_size()});
+        }
         //Set the new node in place of the old one, the root node is special
         if (mutant == tmn) {
             LOGGER.log(Level.FINE, "Replacing the root node");
@@ -523,15 +560,15 @@ public class Grammar implements GrammarProvider {
         final List<Expression> term = new ArrayList<>();
         mutant.get_nodes(nterm, term);
         //Give a certain chance for terminan v.s. non-temrinal nodes
-        if ((ThreadLocalRandom.current().nextFloat() < m_tm_vs_ntm) || nterm.isEmpty()) {
+        if ((RandomSource.next_float() < m_tm_vs_ntm) || nterm.isEmpty()) {
             LOGGER.log(Level.FINE, "The number of mutant {0} terminal nodes is: {1}",
                     new Object[]{mutant, term.size()});
-            final int idx = ThreadLocalRandom.current().nextInt(term.size());
+            final int idx = RandomSource.next_int(term.size());
             return (Expression) term.get(idx);
         } else {
             LOGGER.log(Level.FINE, "The number of mutant {0} non-terminal nodes is: {1}",
                     new Object[]{mutant, nterm.size()});
-            final int idx = ThreadLocalRandom.current().nextInt(nterm.size());
+            final int idx = RandomSource.next_int(nterm.size());
             return (Expression) nterm.get(idx);
         }
     }
@@ -546,16 +583,20 @@ public class Grammar implements GrammarProvider {
     public Expression mutate(final Expression expr) {
         Expression mutant = expr.duplicate();
 
-        LOGGER.log(Level.FINE, "Mutating size: {0} expression: {1}",
-                new Object[]{mutant.get_size(), mutant.serialize()});
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Mutating size: {0} expression: {1}",
+                    new Object[]{mutant.get_size(), mutant.serialize()});
+        }
 
         //Pick up a node at random
         final Expression tmn = pick_up_node(mutant);
 
-        LOGGER.log(Level.FINE, "Got node to mutate: {0}", tmn.serialize());
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Got node to mutate: {0}", tmn.serialize());
+        }
 
         //Choose change or replace
-        final boolean is_change = (ThreadLocalRandom.current().nextDouble() < m_ch_vs_rep)
+        final boolean is_change = (RandomSource.next_double() < m_ch_vs_rep)
                 && ((tmn instanceof TermExpr)
                 || m_entries.get(tmn.get_expr_type()).has_many(tmn.get_signature()));
 
@@ -568,8 +609,10 @@ public class Grammar implements GrammarProvider {
             //assert_unique("replace", mutant);
         }
 
-        LOGGER.log(Level.FINE, "Obtained size: {0} expression: {1}",
-                new Object[]{mutant.get_size(), mutant.serialize()});
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Obtained size: {0} expression: {1}",
+                    new Object[]{mutant.get_size(), mutant.serialize()});
+        }
         return mutant;
     }
 
@@ -580,7 +623,9 @@ public class Grammar implements GrammarProvider {
      */
     public Expression generate_numeric() {
         //Generate the maximum tree size to be used
-        int max_size = ThreadLocalRandom.current().nextInt(m_min_tree_size, m_tree_size_bound);
+        final int size_bound = Math.min(m_tree_size_bound,
+                Math.max(m_min_tree_size, m_ts_limit) + 1);
+        int max_size = RandomSource.next_int(m_min_tree_size, size_bound);
         //Get the first numeric node
         Expression result = choose_expr(NUM_ENTRY_TYPE_STR, max_size);
         //Populate the rest recursively
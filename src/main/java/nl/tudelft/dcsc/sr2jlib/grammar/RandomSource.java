@@ -0,0 +1,125 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grammar;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The source of random values used for generating and mutating individuals.
+ * By default the values come from the thread's ThreadLocalRandom, a thread can
+ * however plug in its own generator, e.g. seeded per grid cell, to make the
+ * reproduction deterministic.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class RandomSource {
+
+    //Stores the per-thread plugged-in generator
+    private static final ThreadLocal<Random> SOURCE = new ThreadLocal<>();
+
+    private RandomSource() {
+    }
+
+    /**
+     * Allows to plug in the generator for the current thread
+     *
+     * @param rnd the generator or null to use the ThreadLocalRandom
+     */
+    public static void set(final Random rnd) {
+        if (rnd == null) {
+            SOURCE.remove();
+        } else {
+            SOURCE.set(rnd);
+        }
+    }
+
+    /**
+     * Allows to get the generator of the current thread
+     *
+     * @return the plugged-in generator or the ThreadLocalRandom
+     */
+    public static Random current() {
+        final Random rnd = SOURCE.get();
+        return (rnd == null) ? ThreadLocalRandom.current() : rnd;
+    }
+
+    /**
+     * Allows to get a random integer from [0, bound)
+     *
+     * @param bound the upper bound, exclusive
+     * @return the random value
+     */
+    public static int next_int(final int bound) {
+        return current().nextInt(bound);
+    }
+
+    /**
+     * Allows to get a random integer from [origin, bound)
+     *
+     * @param origin the lower bound, inclusive
+     * @param bound the upper bound, exclusive
+     * @return the random value
+     */
+    public static int next_int(final int origin, final int bound) {
+        return origin + current().nextInt(bound - origin);
+    }
+
+    /**
+     * Allows to get a random double from [0, 1)
+     *
+     * @return the random value
+     */
+    public static double next_double() {
+        return current().nextDouble();
+    }
+
+    /**
+     * Allows to get a random double from [0, bound)
+     *
+     * @param bound the upper bound, exclusive
+     * @return the random value
+     */
+    public static double next_double(final double bound) {
+        final double value = current().nextDouble() * bound;
+        //Guard against rounding up to the bound
+        return (value < bound) ? value : Math.nextDown(bound);
+    }
+
+    /**
+     * Allows to get a random float from [0, 1)
+     *
+     * @return the random value
+     */
+    public static float next_float() {
+        return current().nextFloat();
+    }
+
+    /**
+     * Allows to get a random boolean
+     *
+     * @return the random value
+     */
+    public static boolean next_boolean() {
+        return current().nextBoolean();
+    }
+}
@@ -24,7 +24,6 @@ package nl.tudelft.dcsc.sr2jlib.grammar;
 import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,7 +92,7 @@ class Randomizer {
             LOGGER.log(Level.FINE, "The found, expression is: {0}!", elem.get_exp());
             return elem.get_exp().duplicate();
         } else {
-            final double value = ThreadLocalRandom.current().nextDouble(m_upper_bound);
+            final double value = RandomSource.next_double(m_upper_bound);
             LOGGER.log(Level.FINE, "Choosing a value from [0..{0}) gave: {1}",
                     new Object[]{m_upper_bound, value});
             for (int idx = 0; idx < m_rand_ivls.size(); ++idx) {
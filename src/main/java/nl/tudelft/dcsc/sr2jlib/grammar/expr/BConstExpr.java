@@ -21,7 +21,8 @@
  */
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
-import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 
 /**
  * Boolean constant expression
@@ -69,7 +70,7 @@ public class BConstExpr extends ConstExpr<Boolean> {
 
     @Override
     public void materialize(int max_size) {
-        m_value = ThreadLocalRandom.current().nextBoolean();
+        m_value = RandomSource.next_boolean();
     }
 
     @Override
@@ -82,6 +83,16 @@ public class BConstExpr extends ConstExpr<Boolean> {
         return Boolean.toString(m_value);
     }
 
+    @Override
+    public double evaluate(final double[] args) {
+        return m_value ? 1.0 : 0.0;
+    }
+
+    @Override
+    public Interval evaluate(final Interval[] args) {
+        return m_value ? Interval.TRUE : Interval.FALSE;
+    }
+
     @Override
     public String toString() {
         return ENTRY_CBOOL_STR;
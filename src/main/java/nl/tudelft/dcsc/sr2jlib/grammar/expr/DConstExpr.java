@@ -21,7 +21,8 @@
  */
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
-import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 
 /**
  * Double constant expression
@@ -69,10 +70,10 @@ public class DConstExpr extends ConstExpr<Double> {
 
     @Override
     public void materialize(int max_size) {
-        m_value = (ThreadLocalRandom.current().nextBoolean() ? 1.0d : -1.0d)
-                * (ThreadLocalRandom.current().nextDouble()
+        m_value = (RandomSource.next_boolean() ? 1.0d : -1.0d)
+                * (RandomSource.next_double()
                 //Add the minimum value some times in order to get value >=1
-                + (ThreadLocalRandom.current().nextBoolean() ? 0.0d : Double.MIN_VALUE));
+                + (RandomSource.next_boolean() ? 0.0d : Double.MIN_VALUE));
     }
 
     @Override
@@ -91,6 +92,28 @@ public class DConstExpr extends ConstExpr<Double> {
         return Double.toString((m_value == 0.0) ? 0.0 : m_value);
     }
 
+    @Override
+    protected int get_value_hash() {
+        //Prevent -0.0 from being different from 0.0
+        return Double.hashCode((m_value == 0.0) ? 0.0 : m_value);
+    }
+
+    @Override
+    protected boolean is_equal_value(final TermExpr<?> other) {
+        //The other terminal is of the same class
+        return m_value.doubleValue() == ((Double) other.m_value).doubleValue();
+    }
+
+    @Override
+    public double evaluate(final double[] args) {
+        return m_value;
+    }
+
+    @Override
+    public Interval evaluate(final Interval[] args) {
+        return Interval.point(m_value);
+    }
+
     @Override
     public String toString() {
         return ENTRY_CDOUBLE_STR;
@@ -22,6 +22,7 @@
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
 import java.util.List;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 
 /**
  * Represents and expression class, both boolean and numeric
@@ -30,6 +31,13 @@ import java.util.List;
  */
 public abstract class Expression {
 
+    //Stores the estimated size of an object header in bytes
+    protected static final long OBJECT_BYTES = 16;
+    //Stores the estimated size of a reference or an int field in bytes
+    protected static final long FIELD_BYTES = 4;
+    //Stores the estimated size of an empty string in bytes
+    protected static final long STRING_BYTES = 40;
+
     //Stores the expression type
     private String m_expr_type;
 
@@ -244,4 +252,93 @@ public abstract class Expression {
      * object with optimized sub-nodes
      */
     public abstract Expression optimize();
+
+    /**
+     * Allows to get the structural hash of the expression tree. The hash is
+     * maintained incrementally: it is cached per node and only re-computed
+     * for the nodes on the path to a changed sub-tree. The argument order of
+     * the functions marked as commutative in the grammar does not matter.
+     *
+     * NOTE: Is only valid after node materialization.
+     *
+     * @return the structural hash
+     */
+    public abstract int get_struct_hash();
+
+    /**
+     * Allows to check if the two expression trees are structurally equal, up
+     * to the argument order of the commutative functions.
+     *
+     * @param other the other expression
+     * @return true if the expression trees are structurally equal
+     */
+    public abstract boolean is_struct_equal(final Expression other);
+
+    /**
+     * Allows to invalidate the cached hashes and string representations on
+     * the path from this node to the given one. Must be called if the given
+     * node has been changed in place, e.g. re-materialized.
+     *
+     * @param node the changed node
+     * @return true if the node is found, otherwise false
+     */
+    public abstract boolean invalidate_node(final Expression node);
+
+    /**
+     * Allows to check if the expression can be evaluated without compiling it,
+     * i.e. all of its functions are supported by the template interpreter.
+     *
+     * NOTE: Is only valid after node materialization.
+     *
+     * @return true if the expression can be interpreted
+     */
+    public abstract boolean is_interpretable();
+
+    /**
+     * Allows to evaluate the expression for the given argument values without
+     * compiling it. The boolean values are represented by 1.0 and 0.0.
+     *
+     * NOTE: Is only valid for interpretable expressions.
+     *
+     * @param args the argument values
+     * @return the expression value
+     */
+    public abstract double evaluate(final double[] args);
+
+    /**
+     * Allows to evaluate the expression for the given argument intervals
+     * without compiling it. The resulting interval contains all the values the
+     * compiled expression can produce for the arguments from the intervals.
+     *
+     * NOTE: Is only valid for interpretable expressions.
+     *
+     * @param args the argument intervals
+     * @return the expression value interval
+     */
+    public abstract Interval evaluate(final Interval[] args);
+
+    /**
+     * Allows to estimate the memory footprint of the expression tree in
+     * bytes, including the cached string representations. The data shared
+     * with the grammar, e.g. function templates, is not counted.
+     *
+     * @return the estimated footprint in bytes
+     */
+    public abstract long get_footprint();
+
+    /**
+     * Allows to drop the cached string representations of the expression
+     * tree, they are re-computed on demand.
+     */
+    public abstract void evict_caches();
+
+    /**
+     * Allows to estimate the memory footprint of a string
+     *
+     * @param str the string or null
+     * @return the estimated footprint in bytes, zero for null
+     */
+    protected static long get_footprint(final String str) {
+        return (str == null) ? 0 : STRING_BYTES + str.length();
+    }
 }
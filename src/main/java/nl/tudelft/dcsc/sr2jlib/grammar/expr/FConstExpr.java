@@ -21,7 +21,8 @@
  */
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
-import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 
 /**
  * Float constant expression
@@ -69,10 +70,10 @@ public class FConstExpr extends ConstExpr<Float> {
 
     @Override
     public void materialize(int max_size) {
-        m_value = (ThreadLocalRandom.current().nextBoolean() ? 1.0f : -1.0f)
-                * (ThreadLocalRandom.current().nextFloat()
+        m_value = (RandomSource.next_boolean() ? 1.0f : -1.0f)
+                * (RandomSource.next_float()
                 //Add the minimum value some times in order to get value >=1
-                + (ThreadLocalRandom.current().nextBoolean() ? 0.0f : Float.MIN_VALUE));
+                + (RandomSource.next_boolean() ? 0.0f : Float.MIN_VALUE));
     }
 
     @Override
@@ -91,6 +92,28 @@ public class FConstExpr extends ConstExpr<Float> {
         return Float.toString((m_value == 0.0f) ? 0.0f : m_value);
     }
 
+    @Override
+    protected int get_value_hash() {
+        //Prevent -0.0 from being different from 0.0
+        return Float.hashCode((m_value == 0.0f) ? 0.0f : m_value);
+    }
+
+    @Override
+    protected boolean is_equal_value(final TermExpr<?> other) {
+        //The other terminal is of the same class
+        return m_value.floatValue() == ((Float) other.m_value).floatValue();
+    }
+
+    @Override
+    public double evaluate(final double[] args) {
+        return m_value;
+    }
+
+    @Override
+    public Interval evaluate(final Interval[] args) {
+        return Interval.point(m_value);
+    }
+
     @Override
     public String toString() {
         return ENTRY_CFLOAT_STR;
@@ -22,6 +22,7 @@
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,6 +33,8 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
 import nl.tudelft.dcsc.sr2jlib.grammar.GrammarProvider;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.FunctTemplate;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 
 /**
  * Represents a functional expression of any type
@@ -54,6 +57,7 @@ public class FunctExpr extends Expression {
     private static final char CLOSE_FUNC_CHAR = ']';
     private static final char OPEN_SIGN_CHAR = '(';
     private static final char CLOSE_SIGN_CHAR = ')';
+    private static final String COMM_MARK_STR = "~";
     private static final int NODE_SIZE_1 = 1;
     private static final int FIRST_VAR_IDX = 1;
     private static final String FIRST_VAR_NAM_STR = VAR_NAME_PREF_STR + FIRST_VAR_IDX;
@@ -143,6 +147,16 @@ public class FunctExpr extends Expression {
     private final boolean m_is_b_plc;
     //Stores the node size;
     private int m_node_size;
+    //Stores the interpretable function template or null if not supported
+    private final FunctTemplate m_tmpl;
+    //Stores the flag indicating if the function is commutative in its arguments
+    private final boolean m_is_comm;
+    //Stores the structural hash, zero if not computed
+    private int m_hash;
+    //Stores the serialized string, null if not computed
+    private String m_ser_str;
+    //Stores the textual representation, null if not computed
+    private String m_txt_str;
 
     /**
      * The basic constructor
@@ -166,6 +180,10 @@ public class FunctExpr extends Expression {
         }
         this.m_func = add_math(strip(desc.substring(fs_idx + 1, fe_idx)));
         this.m_sign = strip(desc.substring(ss_idx + 1, se_idx));
+        this.m_is_comm = strip(desc.substring(se_idx + 1)).equals(COMM_MARK_STR);
+        this.m_hash = 0;
+        this.m_ser_str = null;
+        this.m_txt_str = null;
         this.m_min_size = 0;
         this.m_max_size = 0;
         this.m_node_size = 0;
@@ -174,6 +192,12 @@ public class FunctExpr extends Expression {
         //then just make a zero length array to keep things rolling. (ToDo: make a separate type?)
         this.m_arg_types = (m_sign.isEmpty() ? new String[0] : m_sign.split(SIGN_ARG_DELIM_REG));
         this.m_arg_occ = new int[m_arg_types.length];
+        //The commutative functions must have arguments of the same type
+        if (m_is_comm && (m_arg_types.length > 0)
+                && !Arrays.stream(m_arg_types).allMatch(m_arg_types[0]::equals)) {
+            throw new IllegalArgumentException("Illegal function '" + desc
+                    + "' the commutative function arguments must be of the same type");
+        }
         for (int idx = 0; idx < m_arg_types.length; ++idx) {
             final String var_str = VAR_NAME_PREF_STR + (idx + 1);
             final Pattern p = Pattern.compile(var_str);
@@ -192,6 +216,10 @@ public class FunctExpr extends Expression {
         m_is_plc = m_func.equals(FIRST_VAR_NAM_STR);
         //The basic placement node is a placement node for a terminal node
         m_is_b_plc = m_is_plc && TermExpr.is_term_type(m_sign);
+
+        //Parse the function template, it must not refer to missing arguments
+        final FunctTemplate tmpl = FunctTemplate.get(m_func);
+        m_tmpl = ((tmpl != null) && (tmpl.get_num_vars() <= m_arg_types.length)) ? tmpl : null;
     }
 
     /**
@@ -304,6 +332,113 @@ public class FunctExpr extends Expression {
         this.m_is_b_plc = other.m_is_b_plc;
         this.m_mm_sizes = other.m_mm_sizes;
         this.m_node_size = other.m_node_size;
+        this.m_tmpl = other.m_tmpl;
+        this.m_is_comm = other.m_is_comm;
+        //The copy is structurally equal so the cached values stay valid
+        this.m_hash = other.m_hash;
+        this.m_ser_str = other.m_ser_str;
+        this.m_txt_str = other.m_txt_str;
+    }
+
+    /**
+     * Invalidates the cached structural hash and string representations of
+     * this node, must be called each time the sub-tree changes.
+     */
+    private void invalidate() {
+        m_hash = 0;
+        m_ser_str = null;
+        m_txt_str = null;
+    }
+
+    @Override
+    public boolean invalidate_node(final Expression node) {
+        boolean is_found = (this == node);
+        for (int idx = 0; (idx < m_children.size()) && !is_found; ++idx) {
+            is_found = m_children.get(idx).invalidate_node(node);
+        }
+        if (is_found) {
+            invalidate();
+        }
+        return is_found;
+    }
+
+    @Override
+    public long get_footprint() {
+        //The node with its fields and the children list
+        long footprint = 3 * OBJECT_BYTES + 20 * FIELD_BYTES
+                + m_children.size() * FIELD_BYTES
+                + get_footprint(m_ser_str) + get_footprint(m_txt_str);
+        for (Expression child : m_children) {
+            footprint += child.get_footprint();
+        }
+        return footprint;
+    }
+
+    @Override
+    public void evict_caches() {
+        m_ser_str = null;
+        m_txt_str = null;
+        for (Expression child : m_children) {
+            child.evict_caches();
+        }
+    }
+
+    @Override
+    public int get_struct_hash() {
+        int hash = m_hash;
+        if (hash == 0) {
+            hash = 31 * m_func.hashCode() + m_sign.hashCode();
+            final int[] ch_hashes = new int[m_children.size()];
+            for (int idx = 0; idx < ch_hashes.length; ++idx) {
+                ch_hashes[idx] = m_children.get(idx).get_struct_hash();
+            }
+            //The order of the commutative function arguments does not matter
+            if (m_is_comm) {
+                Arrays.sort(ch_hashes);
+            }
+            for (int ch_hash : ch_hashes) {
+                hash = 31 * hash + ch_hash;
+            }
+            m_hash = hash;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean is_struct_equal(final Expression other) {
+        if (this == other) {
+            return true;
+        }
+        if (!is_equal_funct(other) || (get_struct_hash() != other.get_struct_hash())) {
+            return false;
+        }
+        final List<Expression> o_children = ((FunctExpr) other).m_children;
+        if (m_children.size() != o_children.size()) {
+            return false;
+        }
+        if (m_is_comm) {
+            //Match the children as multi-sets
+            final boolean[] is_used = new boolean[o_children.size()];
+            for (Expression child : m_children) {
+                boolean is_match = false;
+                for (int idx = 0; (idx < is_used.length) && !is_match; ++idx) {
+                    if (!is_used[idx] && child.is_struct_equal(o_children.get(idx))) {
+                        is_used[idx] = true;
+                        is_match = true;
+                    }
+                }
+                if (!is_match) {
+                    return false;
+                }
+            }
+        } else {
+            for (int idx = 0; idx < m_children.size(); ++idx) {
+                if (!m_children.get(idx).is_struct_equal(o_children.get(idx))) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     @Override
@@ -326,10 +461,12 @@ public class FunctExpr extends Expression {
             if (child == from) {
                 LOGGER.log(Level.FINE, "The node is found!", child);
                 m_children.set(idx, to);
+                invalidate();
                 return true;
             } else {
                 if (child instanceof FunctExpr) {
                     if (child.replace_node(from, to)) {
+                        invalidate();
                         return true;
                     }
                 }
@@ -346,6 +483,7 @@ public class FunctExpr extends Expression {
     public void move_children(FunctExpr donor) {
         this.m_children = donor.m_children;
         donor.m_children = null;
+        invalidate();
     }
 
     @Override
@@ -359,10 +497,13 @@ public class FunctExpr extends Expression {
                 //Copy the children
                 ((FunctExpr) to).m_children = ((FunctExpr) from).m_children;
                 ((FunctExpr) from).m_children = null;
+                ((FunctExpr) to).invalidate();
+                invalidate();
                 return true;
             } else {
                 if (child instanceof FunctExpr) {
                     if (child.emplace_funct(from, to)) {
+                        invalidate();
                         return true;
                     }
                 }
@@ -484,11 +625,13 @@ public class FunctExpr extends Expression {
             //Add the expression into the list of children
             m_children.add(exp);
         }
+        invalidate();
     }
 
     /**
      * Allows to get the children nodes of this expression node if the node is
-     * materialized.
+     * materialized. The list must not be modified as the cached structural hash
+     * and string representations are then not invalidated.
      *
      * @return the children nodes of this expression
      */
@@ -529,16 +672,22 @@ public class FunctExpr extends Expression {
 
     @Override
     public String serialize() {
-        return to_string(m_func,
-                (child) -> {
-                    return child.serialize();
-                });
+        String ser_str = m_ser_str;
+        if (ser_str == null) {
+            ser_str = to_string(m_func,
+                    (child) -> {
+                        return child.serialize();
+                    });
+            m_ser_str = ser_str;
+        }
+        return ser_str;
     }
 
     @Override
     public String toString() {
         return OPEN_FUNC_CHAR + m_func + CLOSE_FUNC_CHAR
-                + OPEN_SIGN_CHAR + m_sign + CLOSE_SIGN_CHAR;
+                + OPEN_SIGN_CHAR + m_sign + CLOSE_SIGN_CHAR
+                + (m_is_comm ? COMM_MARK_STR : "");
     }
 
     @Override
@@ -597,10 +746,46 @@ public class FunctExpr extends Expression {
 
     @Override
     public String to_text() {
-        return to_string(m_func.replaceAll(MATH_DOT_PREFIX_REG, ""),
-                (child) -> {
-                    return child.to_text();
-                });
+        String txt_str = m_txt_str;
+        if (txt_str == null) {
+            txt_str = to_string(m_func.replaceAll(MATH_DOT_PREFIX_REG, ""),
+                    (child) -> {
+                        return child.to_text();
+                    });
+            m_txt_str = txt_str;
+        }
+        return txt_str;
+    }
+
+    @Override
+    public boolean is_interpretable() {
+        if (m_tmpl == null) {
+            return false;
+        }
+        for (Expression child : m_children) {
+            if (!child.is_interpretable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double evaluate(final double[] args) {
+        final double[] xs = new double[m_children.size()];
+        for (int idx = 0; idx < xs.length; ++idx) {
+            xs[idx] = m_children.get(idx).evaluate(args);
+        }
+        return m_tmpl.evaluate(xs);
+    }
+
+    @Override
+    public Interval evaluate(final Interval[] args) {
+        final Interval[] xs = new Interval[m_children.size()];
+        for (int idx = 0; idx < xs.length; ++idx) {
+            xs[idx] = m_children.get(idx).evaluate(args);
+        }
+        return m_tmpl.evaluate(xs);
     }
 
     /**
@@ -667,6 +852,7 @@ public class FunctExpr extends Expression {
                     final Expression opt_child = orig_child.optimize();
                     if (opt_child != orig_child) {
                         m_children.set(idx, opt_child);
+                        invalidate();
                     }
                 }
             } else {
@@ -674,8 +860,10 @@ public class FunctExpr extends Expression {
             }
         }
 
-        LOGGER.log(Level.FINE, "Optimized: {0}\n---into---\n{1}",
-                new Object[]{this.to_text(), result.to_text()});
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Optimized: {0}\n---into---\n{1}",
+                    new Object[]{this.to_text(), result.to_text()});
+        }
 
         //If this node does not change return it
         return result;
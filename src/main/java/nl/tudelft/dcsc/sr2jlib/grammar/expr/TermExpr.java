@@ -23,6 +23,7 @@ package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -200,4 +201,58 @@ public abstract class TermExpr<ValueType> extends Expression {
         return this.getClass().isInstance(expr);
     }
 
+    @Override
+    public boolean is_interpretable() {
+        return true;
+    }
+
+    @Override
+    public boolean invalidate_node(final Expression node) {
+        //Nothing is cached in terminal nodes
+        return (this == node);
+    }
+
+    @Override
+    public long get_footprint() {
+        //The node with the boxed value
+        return 2 * OBJECT_BYTES + 4 * FIELD_BYTES;
+    }
+
+    @Override
+    public void evict_caches() {
+        //Nothing is cached in terminal nodes
+    }
+
+    /**
+     * Allows to compute the hash code of the terminal's value
+     *
+     * @return the value hash code
+     */
+    protected int get_value_hash() {
+        return Objects.hashCode(m_value);
+    }
+
+    /**
+     * Allows to check if the values of the two terminals of the same class are
+     * equal
+     *
+     * @param other the other terminal of the same class
+     * @return true if the values are equal
+     */
+    protected boolean is_equal_value(final TermExpr<?> other) {
+        return Objects.equals(m_value, other.m_value);
+    }
+
+    @Override
+    public int get_struct_hash() {
+        return 31 * this.toString().hashCode() + get_value_hash();
+    }
+
+    @Override
+    public boolean is_struct_equal(final Expression other) {
+        return (this == other) || ((other != null)
+                && (this.getClass() == other.getClass())
+                && is_equal_value((TermExpr<?>) other));
+    }
+
 }
@@ -21,7 +21,8 @@
  */
 package nl.tudelft.dcsc.sr2jlib.grammar.expr;
 
-import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+import nl.tudelft.dcsc.sr2jlib.grammar.interp.Interval;
 import nl.tudelft.dcsc.sr2jlib.instance.Creator;
 
 /**
@@ -74,7 +75,7 @@ public class VarExpr extends TermExpr<Integer> {
 
     @Override
     public void materialize(int max_size) {
-        m_value = ThreadLocalRandom.current().nextInt(MIN_VAR_IDX, MIN_VAR_IDX + m_num_vars);
+        m_value = RandomSource.next_int(MIN_VAR_IDX, MIN_VAR_IDX + m_num_vars);
     }
 
     @Override
@@ -92,6 +93,17 @@ public class VarExpr extends TermExpr<Integer> {
         return ARG_NAME_PREF_STR + m_value;
     }
 
+    @Override
+    public double evaluate(final double[] args) {
+        return (m_value < args.length) ? args[m_value] : Double.NaN;
+    }
+
+    @Override
+    public Interval evaluate(final Interval[] args) {
+        //The unknown variable range can take any value
+        return (m_value < args.length) ? args[m_value] : Interval.ENTIRE;
+    }
+
     @Override
     public String toString() {
         return ENTRY_VAR_STR;
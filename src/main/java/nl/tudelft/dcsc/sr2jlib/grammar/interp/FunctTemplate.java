@@ -0,0 +1,995 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grammar.interp;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a parsed grammar function template, such as "Math.sin(x1)+x2",
+ * that can be interpreted without compiling it. The supported subset covers
+ * the Java arithmetic, comparison, logical and conditional operators, the
+ * numeric casts, the numeric and boolean literals and the most common
+ * java.lang.Math functions and constants. The template variables x1, x2, ...
+ * are treated as double values, booleans are represented by 1.0 and 0.0.
+ *
+ * The templates are parsed once and cached, the templates that can not be
+ * parsed or produce an integral result type are not interpretable.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class FunctTemplate {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(FunctTemplate.class.getName());
+
+    //Stores the parsed templates per function string
+    private static final Map<String, FunctTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    //Stores the marker for the function strings that can not be interpreted
+    private static final FunctTemplate UNSUPPORTED = new FunctTemplate(null, 0);
+
+    private static final String VAR_NAME_PREF_STR = "x";
+    private static final String MATH_DOT_PREFIX_STR = "Math.";
+
+    /**
+     * The value kinds of the template nodes
+     */
+    private enum Kind {
+        REAL, INTEGRAL, BOOL
+    }
+
+    /**
+     * The unary and binary operators
+     */
+    private enum Op {
+        NEG, NOT, TO_DOUBLE, TO_FLOAT, TO_INT, TO_LONG,
+        MUL, DIV, REM, ADD, SUB, LT, LE, GT, GE, EQ, NE, AND, OR, XOR
+    }
+
+    /**
+     * The supported java.lang.Math functions
+     */
+    private enum Funct {
+        ABS(1), SIN(1), COS(1), TAN(1), ASIN(1), ACOS(1), ATAN(1),
+        SINH(1), COSH(1), TANH(1), EXP(1), EXPM1(1), LOG(1), LOG10(1),
+        LOG1P(1), SQRT(1), CBRT(1), FLOOR(1), CEIL(1), RINT(1), ROUND(1),
+        SIGNUM(1), TODEGREES(1), TORADIANS(1),
+        ATAN2(2), POW(2), MAX(2), MIN(2), HYPOT(2);
+
+        //Stores the number of function arguments
+        final int m_arity;
+
+        /**
+         * The basic constructor
+         *
+         * @param arity the number of function arguments
+         */
+        Funct(final int arity) {
+            this.m_arity = arity;
+        }
+    }
+
+    /**
+     * The base class for the template nodes
+     */
+    private static abstract class Node {
+
+        //Stores the node value kind
+        final Kind m_kind;
+
+        /**
+         * The basic constructor
+         *
+         * @param kind the node value kind
+         */
+        Node(final Kind kind) {
+            this.m_kind = kind;
+        }
+
+        /**
+         * Allows to check if the node value is integral
+         *
+         * @return true if the node value is integral
+         */
+        boolean is_int() {
+            return m_kind == Kind.INTEGRAL;
+        }
+
+        /**
+         * Evaluates the node on the given variable values
+         *
+         * @param xs the variable values
+         * @return the node value
+         */
+        abstract double eval(final double[] xs);
+
+        /**
+         * Evaluates the node on the given variable intervals
+         *
+         * @param xs the variable intervals
+         * @return the node value interval
+         */
+        abstract Interval eval(final Interval[] xs);
+    }
+
+    /**
+     * The constant node
+     */
+    private static final class ConstNode extends Node {
+
+        //Stores the constant value
+        private final double m_value;
+        //Stores the constant interval
+        private final Interval m_ivl;
+
+        ConstNode(final Kind kind, final double value) {
+            super(kind);
+            this.m_value = value;
+            this.m_ivl = Interval.point(value);
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            return m_value;
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            return m_ivl;
+        }
+    }
+
+    /**
+     * The variable node
+     */
+    private static final class VarNode extends Node {
+
+        //Stores the variable index
+        private final int m_idx;
+
+        VarNode(final int idx) {
+            super(Kind.REAL);
+            this.m_idx = idx;
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            return xs[m_idx];
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            return xs[m_idx];
+        }
+    }
+
+    /**
+     * The unary operator node
+     */
+    private static final class UnaryNode extends Node {
+
+        //Stores the operator
+        private final Op m_op;
+        //Stores the argument
+        private final Node m_arg;
+
+        UnaryNode(final Kind kind, final Op op, final Node arg) {
+            super(kind);
+            this.m_op = op;
+            this.m_arg = arg;
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            final double value = m_arg.eval(xs);
+            switch (m_op) {
+                case NEG:
+                    return -value;
+                case NOT:
+                    return (value == 0.0) ? 1.0 : 0.0;
+                case TO_FLOAT:
+                    return (float) value;
+                case TO_INT:
+                    return (int) value;
+                case TO_LONG:
+                    return (long) value;
+                default:
+                    return value;
+            }
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            final Interval value = m_arg.eval(xs);
+            switch (m_op) {
+                case NEG:
+                    return IntervalMath.neg(value);
+                case NOT:
+                    return IntervalMath.not(value);
+                case TO_FLOAT:
+                    return IntervalMath.monotone(value, Double.NEGATIVE_INFINITY,
+                            Double.POSITIVE_INFINITY, (arg) -> (float) arg, true);
+                case TO_INT:
+                    return IntervalMath.cast_integral(value, false);
+                case TO_LONG:
+                    return IntervalMath.cast_integral(value, true);
+                default:
+                    return value;
+            }
+        }
+    }
+
+    /**
+     * The binary operator node
+     */
+    private static final class BinaryNode extends Node {
+
+        //Stores the operator
+        private final Op m_op;
+        //Stores the left argument
+        private final Node m_left;
+        //Stores the right argument
+        private final Node m_right;
+
+        BinaryNode(final Kind kind, final Op op, final Node left, final Node right) {
+            super(kind);
+            this.m_op = op;
+            this.m_left = left;
+            this.m_right = right;
+        }
+
+        /**
+         * Allows to convert a boolean into its double representation
+         *
+         * @param value the boolean value
+         * @return 1.0 for true and 0.0 for false
+         */
+        private static double bool(final boolean value) {
+            return value ? 1.0 : 0.0;
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            final double lv = m_left.eval(xs);
+            //Keep the short-circuit semantics of the logical operators
+            if ((m_op == Op.AND) && (lv == 0.0)) {
+                return 0.0;
+            }
+            if ((m_op == Op.OR) && (lv != 0.0)) {
+                return 1.0;
+            }
+            final double rv = m_right.eval(xs);
+            switch (m_op) {
+                case MUL:
+                    return lv * rv;
+                case DIV:
+                    if (is_int()) {
+                        //The integer division by zero throws in Java
+                        return ((long) rv == 0L) ? Double.NaN : (double) ((long) lv / (long) rv);
+                    } else {
+                        return lv / rv;
+                    }
+                case REM:
+                    if (is_int()) {
+                        return ((long) rv == 0L) ? Double.NaN : (double) ((long) lv % (long) rv);
+                    } else {
+                        return lv % rv;
+                    }
+                case ADD:
+                    return lv + rv;
+                case SUB:
+                    return lv - rv;
+                case LT:
+                    return bool(lv < rv);
+                case LE:
+                    return bool(lv <= rv);
+                case GT:
+                    return bool(lv > rv);
+                case GE:
+                    return bool(lv >= rv);
+                case EQ:
+                    return bool(lv == rv);
+                case NE:
+                    return bool(lv != rv);
+                case XOR:
+                    return bool((lv != 0.0) ^ (rv != 0.0));
+                default:
+                    return bool(rv != 0.0);
+            }
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            final Interval lv = m_left.eval(xs);
+            final Interval rv = m_right.eval(xs);
+            switch (m_op) {
+                case MUL:
+                    return IntervalMath.mul(lv, rv);
+                case DIV:
+                    if (is_int()) {
+                        if (rv.contains(0.0)) {
+                            return (rv.get_lo() == rv.get_hi()) ? Interval.NAN
+                                    : IntervalMath.cast_integral(Interval.ENTIRE, true).with_nan();
+                        } else {
+                            return IntervalMath.cast_integral(IntervalMath.div(lv, rv), true);
+                        }
+                    } else {
+                        return IntervalMath.div(lv, rv);
+                    }
+                case REM:
+                    return IntervalMath.rem(lv, rv);
+                case ADD:
+                    return IntervalMath.add(lv, rv);
+                case SUB:
+                    return IntervalMath.sub(lv, rv);
+                case LT:
+                    return IntervalMath.less(lv, rv, true);
+                case LE:
+                    return IntervalMath.less(lv, rv, false);
+                case GT:
+                    return IntervalMath.less(rv, lv, true);
+                case GE:
+                    return IntervalMath.less(rv, lv, false);
+                case EQ:
+                    return IntervalMath.equal(lv, rv);
+                case NE:
+                    return IntervalMath.not(IntervalMath.equal(lv, rv));
+                case AND:
+                    return IntervalMath.and(lv, rv);
+                case OR:
+                    return IntervalMath.or(lv, rv);
+                default:
+                    return IntervalMath.xor(lv, rv);
+            }
+        }
+    }
+
+    /**
+     * The conditional operator node
+     */
+    private static final class CondNode extends Node {
+
+        //Stores the condition
+        private final Node m_cond;
+        //Stores the value if true
+        private final Node m_then;
+        //Stores the value if false
+        private final Node m_else;
+
+        CondNode(final Kind kind, final Node cond, final Node then_val, final Node else_val) {
+            super(kind);
+            this.m_cond = cond;
+            this.m_then = then_val;
+            this.m_else = else_val;
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            return (m_cond.eval(xs) != 0.0) ? m_then.eval(xs) : m_else.eval(xs);
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            final Interval cond = m_cond.eval(xs);
+            if (cond.is_nan()) {
+                //Can not happen for a well typed template, be conservative
+                return Interval.ENTIRE;
+            } else {
+                return IntervalMath.cond(cond, cond.may_true() ? m_then.eval(xs) : null,
+                        cond.may_false() ? m_else.eval(xs) : null);
+            }
+        }
+    }
+
+    /**
+     * The java.lang.Math function call node
+     */
+    private static final class CallNode extends Node {
+
+        //Stores the function
+        private final Funct m_funct;
+        //Stores the first argument
+        private final Node m_first;
+        //Stores the second argument, or null
+        private final Node m_second;
+
+        CallNode(final Kind kind, final Funct funct, final Node first, final Node second) {
+            super(kind);
+            this.m_funct = funct;
+            this.m_first = first;
+            this.m_second = second;
+        }
+
+        @Override
+        double eval(final double[] xs) {
+            final double av = m_first.eval(xs);
+            final double bv = (m_second == null) ? 0.0 : m_second.eval(xs);
+            switch (m_funct) {
+                case ABS:
+                    return Math.abs(av);
+                case SIN:
+                    return Math.sin(av);
+                case COS:
+                    return Math.cos(av);
+                case TAN:
+                    return Math.tan(av);
+                case ASIN:
+                    return Math.asin(av);
+                case ACOS:
+                    return Math.acos(av);
+                case ATAN:
+                    return Math.atan(av);
+                case SINH:
+                    return Math.sinh(av);
+                case COSH:
+                    return Math.cosh(av);
+                case TANH:
+                    return Math.tanh(av);
+                case EXP:
+                    return Math.exp(av);
+                case EXPM1:
+                    return Math.expm1(av);
+                case LOG:
+                    return Math.log(av);
+                case LOG10:
+                    return Math.log10(av);
+                case LOG1P:
+                    return Math.log1p(av);
+                case SQRT:
+                    return Math.sqrt(av);
+                case CBRT:
+                    return Math.cbrt(av);
+                case FLOOR:
+                    return Math.floor(av);
+                case CEIL:
+                    return Math.ceil(av);
+                case RINT:
+                    return Math.rint(av);
+                case ROUND:
+                    return Math.round(av);
+                case SIGNUM:
+                    return Math.signum(av);
+                case TODEGREES:
+                    return Math.toDegrees(av);
+                case TORADIANS:
+                    return Math.toRadians(av);
+                case ATAN2:
+                    return Math.atan2(av, bv);
+                case POW:
+                    return Math.pow(av, bv);
+                case MAX:
+                    return Math.max(av, bv);
+                case MIN:
+                    return Math.min(av, bv);
+                default:
+                    return Math.hypot(av, bv);
+            }
+        }
+
+        @Override
+        Interval eval(final Interval[] xs) {
+            final double inf = Double.POSITIVE_INFINITY;
+            final Interval av = m_first.eval(xs);
+            final Interval bv = (m_second == null) ? null : m_second.eval(xs);
+            switch (m_funct) {
+                case ABS:
+                    return IntervalMath.abs(av);
+                case SIN:
+                    return IntervalMath.sin(av);
+                case COS:
+                    return IntervalMath.cos(av);
+                case TAN:
+                    return IntervalMath.tan(av);
+                case ASIN:
+                    return IntervalMath.monotone(av, -1.0, 1.0, Math::asin, true);
+                case ACOS:
+                    return IntervalMath.monotone(av, -1.0, 1.0, Math::acos, false);
+                case ATAN:
+                    return IntervalMath.monotone(av, -inf, inf, Math::atan, true);
+                case SINH:
+                    return IntervalMath.monotone(av, -inf, inf, Math::sinh, true);
+                case COSH:
+                    return IntervalMath.cosh(av);
+                case TANH:
+                    return IntervalMath.monotone(av, -inf, inf, Math::tanh, true);
+                case EXP:
+                    return IntervalMath.monotone(av, -inf, inf, Math::exp, true);
+                case EXPM1:
+                    return IntervalMath.monotone(av, -inf, inf, Math::expm1, true);
+                case LOG:
+                    return IntervalMath.monotone(av, 0.0, inf, Math::log, true);
+                case LOG10:
+                    return IntervalMath.monotone(av, 0.0, inf, Math::log10, true);
+                case LOG1P:
+                    return IntervalMath.monotone(av, -1.0, inf, Math::log1p, true);
+                case SQRT:
+                    return IntervalMath.monotone(av, 0.0, inf, Math::sqrt, true);
+                case CBRT:
+                    return IntervalMath.monotone(av, -inf, inf, Math::cbrt, true);
+                case FLOOR:
+                    return IntervalMath.monotone(av, -inf, inf, Math::floor, true);
+                case CEIL:
+                    return IntervalMath.monotone(av, -inf, inf, Math::ceil, true);
+                case RINT:
+                    return IntervalMath.monotone(av, -inf, inf, Math::rint, true);
+                case ROUND:
+                    return IntervalMath.round(av);
+                case SIGNUM:
+                    return IntervalMath.monotone(av, -inf, inf, Math::signum, true);
+                case TODEGREES:
+                    return IntervalMath.monotone(av, -inf, inf, Math::toDegrees, true);
+                case TORADIANS:
+                    return IntervalMath.monotone(av, -inf, inf, Math::toRadians, true);
+                case ATAN2:
+                    return IntervalMath.atan2(av, bv);
+                case POW:
+                    return IntervalMath.pow(av, bv);
+                case MAX:
+                    return IntervalMath.max(av, bv);
+                case MIN:
+                    return IntervalMath.min(av, bv);
+                default:
+                    return IntervalMath.hypot(av, bv);
+            }
+        }
+    }
+
+    /**
+     * The recursive descent parser of the template strings, follows the Java
+     * operator precedence.
+     */
+    private static final class Parser {
+
+        //Stores the string to parse
+        private final String m_str;
+        //Stores the current position
+        private int m_pos;
+        //Stores the maximum variable number found
+        private int m_num_vars;
+
+        Parser(final String str) {
+            this.m_str = str;
+            this.m_pos = 0;
+            this.m_num_vars = 0;
+        }
+
+        /**
+         * Parses the entire string
+         *
+         * @return the root node
+         * @throws IllegalArgumentException if the string can not be parsed
+         */
+        Node parse() throws IllegalArgumentException {
+            final Node root = parse_cond();
+            if (m_pos != m_str.length()) {
+                throw error("Unexpected symbol");
+            }
+            return root;
+        }
+
+        private IllegalArgumentException error(final String msg) {
+            return new IllegalArgumentException(msg + " at position "
+                    + m_pos + " of '" + m_str + "'");
+        }
+
+        private boolean is_at(final String token) {
+            return m_str.startsWith(token, m_pos);
+        }
+
+        /**
+         * Consumes the token if present and not followed by the given symbol
+         *
+         * @param token the token to consume
+         * @param not_next the symbol that must not follow the token, or null
+         * @return true if the token was consumed
+         */
+        private boolean take(final String token, final String not_next) {
+            if (is_at(token) && ((not_next == null)
+                    || !m_str.startsWith(not_next, m_pos + token.length()))) {
+                m_pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(final String token) {
+            if (!take(token, null)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        /**
+         * Allows to get the numeric kind resulting from two arguments
+         */
+        private static Kind num_kind(final Node left, final Node right) {
+            return (left.is_int() && right.is_int()) ? Kind.INTEGRAL : Kind.REAL;
+        }
+
+        private Node parse_cond() {
+            final Node cond = parse_or();
+            if (take("?", null)) {
+                final Node then_val = parse_cond();
+                expect(":");
+                final Node else_val = parse_cond();
+                return new CondNode(num_kind(then_val, else_val), cond, then_val, else_val);
+            }
+            return cond;
+        }
+
+        private Node parse_or() {
+            Node left = parse_and();
+            while (take("||", null)) {
+                left = new BinaryNode(Kind.BOOL, Op.OR, left, parse_and());
+            }
+            return left;
+        }
+
+        private Node parse_and() {
+            Node left = parse_bor();
+            while (take("&&", null)) {
+                left = new BinaryNode(Kind.BOOL, Op.AND, left, parse_bor());
+            }
+            return left;
+        }
+
+        /**
+         * Creates the non short-circuit logical operator node, the bitwise
+         * integer operators are not supported
+         */
+        private Node make_logical(final Op op, final Node left, final Node right) {
+            if (left.is_int() || right.is_int()) {
+                throw error("Bitwise operators are not supported");
+            }
+            return new BinaryNode(Kind.BOOL, op, left, right);
+        }
+
+        private Node parse_bor() {
+            Node left = parse_bxor();
+            while (take("|", "|")) {
+                left = make_logical(Op.OR, left, parse_bxor());
+            }
+            return left;
+        }
+
+        private Node parse_bxor() {
+            Node left = parse_band();
+            while (take("^", null)) {
+                left = make_logical(Op.XOR, left, parse_band());
+            }
+            return left;
+        }
+
+        private Node parse_band() {
+            Node left = parse_eq();
+            while (take("&", "&")) {
+                left = make_logical(Op.AND, left, parse_eq());
+            }
+            return left;
+        }
+
+        private Node parse_eq() {
+            Node left = parse_rel();
+            while (true) {
+                if (take("==", null)) {
+                    left = new BinaryNode(Kind.BOOL, Op.EQ, left, parse_rel());
+                } else {
+                    if (take("!=", null)) {
+                        left = new BinaryNode(Kind.BOOL, Op.NE, left, parse_rel());
+                    } else {
+                        return left;
+                    }
+                }
+            }
+        }
+
+        private Node parse_rel() {
+            Node left = parse_add();
+            while (true) {
+                final Op op;
+                if (take("<=", null)) {
+                    op = Op.LE;
+                } else if (take(">=", null)) {
+                    op = Op.GE;
+                } else if (take("<", null)) {
+                    op = Op.LT;
+                } else if (take(">", null)) {
+                    op = Op.GT;
+                } else {
+                    return left;
+                }
+                left = new BinaryNode(Kind.BOOL, op, left, parse_add());
+            }
+        }
+
+        private Node parse_add() {
+            Node left = parse_mul();
+            while (true) {
+                final Op op;
+                if (take("+", null)) {
+                    op = Op.ADD;
+                } else if (take("-", null)) {
+                    op = Op.SUB;
+                } else {
+                    return left;
+                }
+                final Node right = parse_mul();
+                left = new BinaryNode(num_kind(left, right), op, left, right);
+            }
+        }
+
+        private Node parse_mul() {
+            Node left = parse_unary();
+            while (true) {
+                final Op op;
+                if (take("*", null)) {
+                    op = Op.MUL;
+                } else if (take("/", null)) {
+                    op = Op.DIV;
+                } else if (take("%", null)) {
+                    op = Op.REM;
+                } else {
+                    return left;
+                }
+                final Node right = parse_unary();
+                left = new BinaryNode(num_kind(left, right), op, left, right);
+            }
+        }
+
+        private Node parse_unary() {
+            if (take("-", null)) {
+                final Node arg = parse_unary();
+                return new UnaryNode(arg.m_kind, Op.NEG, arg);
+            }
+            if (take("+", null)) {
+                return parse_unary();
+            }
+            if (take("!", "=")) {
+                return new UnaryNode(Kind.BOOL, Op.NOT, parse_unary());
+            }
+            if (take("(double)", null)) {
+                return new UnaryNode(Kind.REAL, Op.TO_DOUBLE, parse_unary());
+            }
+            if (take("(float)", null)) {
+                return new UnaryNode(Kind.REAL, Op.TO_FLOAT, parse_unary());
+            }
+            if (take("(int)", null)) {
+                return new UnaryNode(Kind.INTEGRAL, Op.TO_INT, parse_unary());
+            }
+            if (take("(long)", null)) {
+                return new UnaryNode(Kind.INTEGRAL, Op.TO_LONG, parse_unary());
+            }
+            return parse_primary();
+        }
+
+        private Node parse_primary() {
+            if (take("(", null)) {
+                final Node node = parse_cond();
+                expect(")");
+                return node;
+            }
+            if (m_pos >= m_str.length()) {
+                throw error("Unexpected end");
+            }
+            final char chr = m_str.charAt(m_pos);
+            if (Character.isDigit(chr) || (chr == '.')) {
+                return parse_number();
+            }
+            if (Character.isJavaIdentifierStart(chr)) {
+                return parse_name();
+            }
+            throw error("Unexpected symbol");
+        }
+
+        private Node parse_number() {
+            final int start = m_pos;
+            boolean is_real = false;
+            while ((m_pos < m_str.length()) && (Character.isDigit(m_str.charAt(m_pos))
+                    || (m_str.charAt(m_pos) == '.'))) {
+                is_real |= (m_str.charAt(m_pos) == '.');
+                ++m_pos;
+            }
+            if ((m_pos < m_str.length()) && (Character.toLowerCase(m_str.charAt(m_pos)) == 'e')) {
+                is_real = true;
+                ++m_pos;
+                if ((m_pos < m_str.length()) && ((m_str.charAt(m_pos) == '-')
+                        || (m_str.charAt(m_pos) == '+'))) {
+                    ++m_pos;
+                }
+                while ((m_pos < m_str.length()) && Character.isDigit(m_str.charAt(m_pos))) {
+                    ++m_pos;
+                }
+            }
+            final String num = m_str.substring(start, m_pos);
+            final char sfx = (m_pos < m_str.length())
+                    ? Character.toLowerCase(m_str.charAt(m_pos)) : ' ';
+            try {
+                switch (sfx) {
+                    case 'f':
+                        ++m_pos;
+                        return new ConstNode(Kind.REAL, Float.parseFloat(num));
+                    case 'd':
+                        ++m_pos;
+                        return new ConstNode(Kind.REAL, Double.parseDouble(num));
+                    case 'l':
+                        ++m_pos;
+                        return new ConstNode(Kind.INTEGRAL, Long.parseLong(num));
+                    default:
+                        return is_real ? new ConstNode(Kind.REAL, Double.parseDouble(num))
+                                : new ConstNode(Kind.INTEGRAL, Integer.parseInt(num));
+                }
+            } catch (NumberFormatException ex) {
+                throw error("Bad number '" + num + "'");
+            }
+        }
+
+        private Node parse_name() {
+            final int start = m_pos;
+            while ((m_pos < m_str.length())
+                    && (Character.isJavaIdentifierPart(m_str.charAt(m_pos))
+                    || ((m_str.charAt(m_pos) == '.') && (m_pos + 1 < m_str.length())
+                    && Character.isJavaIdentifierStart(m_str.charAt(m_pos + 1))))) {
+                ++m_pos;
+            }
+            final String name = m_str.substring(start, m_pos);
+            switch (name) {
+                case "true":
+                    return new ConstNode(Kind.BOOL, 1.0);
+                case "false":
+                    return new ConstNode(Kind.BOOL, 0.0);
+                case "Math.PI":
+                    return new ConstNode(Kind.REAL, Math.PI);
+                case "Math.E":
+                    return new ConstNode(Kind.REAL, Math.E);
+                default:
+                    break;
+            }
+            if (name.startsWith(VAR_NAME_PREF_STR)) {
+                return parse_var(name);
+            }
+            if (name.startsWith(MATH_DOT_PREFIX_STR)) {
+                return parse_call(name.substring(MATH_DOT_PREFIX_STR.length()));
+            }
+            throw error("Unsupported name '" + name + "'");
+        }
+
+        private Node parse_var(final String name) {
+            try {
+                final int num = Integer.parseInt(name.substring(VAR_NAME_PREF_STR.length()));
+                if (num < 1) {
+                    throw error("Bad variable '" + name + "'");
+                }
+                m_num_vars = Math.max(m_num_vars, num);
+                return new VarNode(num - 1);
+            } catch (NumberFormatException ex) {
+                throw error("Unsupported name '" + name + "'");
+            }
+        }
+
+        private Node parse_call(final String name) {
+            final Funct funct;
+            try {
+                funct = Funct.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw error("Unsupported function '" + name + "'");
+            }
+            expect("(");
+            final Node first = parse_cond();
+            Node second = null;
+            if (funct.m_arity == 2) {
+                expect(",");
+                second = parse_cond();
+            }
+            expect(")");
+            final Kind kind;
+            switch (funct) {
+                case ROUND:
+                    kind = Kind.INTEGRAL;
+                    break;
+                case ABS:
+                    kind = first.m_kind;
+                    break;
+                case MAX:
+                case MIN:
+                    kind = num_kind(first, second);
+                    break;
+                default:
+                    kind = Kind.REAL;
+            }
+            return new CallNode(kind, funct, first, second);
+        }
+    }
+
+    //Stores the root node, null if not supported
+    private final Node m_root;
+    //Stores the number of template variables
+    private final int m_num_vars;
+
+    /**
+     * The basic constructor
+     *
+     * @param root the root node
+     * @param num_vars the number of template variables
+     */
+    private FunctTemplate(final Node root, final int num_vars) {
+        this.m_root = root;
+        this.m_num_vars = num_vars;
+    }
+
+    /**
+     * Allows to get the template for the given function string, the string is
+     * expected to have no white spaces and the Math class prefixes.
+     *
+     * @param func the function string
+     * @return the template or null if the function can not be interpreted
+     */
+    public static FunctTemplate get(final String func) {
+        final FunctTemplate tmpl = TEMPLATES.computeIfAbsent(func, (str) -> {
+            try {
+                final Parser parser = new Parser(str);
+                final Node root = parser.parse();
+                //The integral results would change the types of parent expressions
+                if (root.is_int()) {
+                    LOGGER.log(Level.FINE, "The function {0} has an integral type", str);
+                    return UNSUPPORTED;
+                }
+                return new FunctTemplate(root, parser.m_num_vars);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.log(Level.FINE, "The function can not be interpreted: {0}", ex.getMessage());
+                return UNSUPPORTED;
+            }
+        });
+        return (tmpl == UNSUPPORTED) ? null : tmpl;
+    }
+
+    /**
+     * Allows to get the number of template variables, i.e. the maximum index
+     * of the used variables x1, x2, ...
+     *
+     * @return the number of template variables
+     */
+    public int get_num_vars() {
+        return m_num_vars;
+    }
+
+    /**
+     * Evaluates the template on the given variable values
+     *
+     * @param xs the variable values, the value of x1 is at index 0
+     * @return the resulting value
+     */
+    public double evaluate(final double[] xs) {
+        return m_root.eval(xs);
+    }
+
+    /**
+     * Evaluates the template on the given variable intervals
+     *
+     * @param xs the variable intervals, the interval of x1 is at index 0
+     * @return the resulting interval
+     */
+    public Interval evaluate(final Interval[] xs) {
+        return m_root.eval(xs);
+    }
+}
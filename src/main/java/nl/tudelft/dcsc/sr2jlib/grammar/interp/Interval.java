@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grammar.interp;
+
+/**
+ * Represents an immutable interval of double values used for the static
+ * interval-arithmetic analysis of expression trees. The interval stores the
+ * hull [lo, hi] of all non-NaN values, which may include infinities, and two
+ * flags telling whether NaN values are possible and whether finite values are
+ * possible at all. An interval without any finite values corresponds to an
+ * expression that is guaranteed to be invalid.
+ *
+ * Boolean values are represented by the [0,0] (false), [1,1] (true) and [0,1]
+ * (unknown) intervals.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public final class Interval {
+
+    /**
+     * The interval containing NaN values only
+     */
+    public static final Interval NAN = new Interval(
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, true, false);
+
+    /**
+     * The interval containing all double values
+     */
+    public static final Interval ENTIRE = new Interval(
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, true);
+
+    /**
+     * The boolean false interval
+     */
+    public static final Interval FALSE = new Interval(0.0, 0.0, false, true);
+
+    /**
+     * The boolean true interval
+     */
+    public static final Interval TRUE = new Interval(1.0, 1.0, false, true);
+
+    /**
+     * The boolean unknown interval
+     */
+    public static final Interval BOOL = new Interval(0.0, 1.0, false, true);
+
+    //Stores the lower bound of the non-NaN values
+    private final double m_lo;
+    //Stores the upper bound of the non-NaN values
+    private final double m_hi;
+    //Stores the flag indicating that NaN values are possible
+    private final boolean m_may_nan;
+    //Stores the flag indicating that finite values are possible
+    private final boolean m_may_finite;
+
+    /**
+     * The basic constructor, the signed zero bounds are normalized to the
+     * positive zero so that the sign checks of the bounds and the corner
+     * values, e.g. of pow, do not depend on the sign of zero
+     *
+     * @param lo the lower bound
+     * @param hi the upper bound
+     * @param may_nan true if the NaN values are possible
+     * @param may_finite true if the finite values are possible
+     */
+    private Interval(final double lo, final double hi,
+            final boolean may_nan, final boolean may_finite) {
+        this.m_lo = lo + 0.0;
+        this.m_hi = hi + 0.0;
+        this.m_may_nan = may_nan;
+        this.m_may_finite = may_finite;
+    }
+
+    /**
+     * Allows to create an interval with the given bounds. If any of the bounds
+     * is NaN then the interval containing all values is returned. If the lower
+     * bound is larger than the upper one then the NaN interval is returned.
+     *
+     * @param lo the lower bound
+     * @param hi the upper bound
+     * @param may_nan true if the NaN values are possible
+     * @return the interval
+     */
+    public static Interval make(final double lo, final double hi,
+            final boolean may_nan) {
+        return make(lo, hi, may_nan, true);
+    }
+
+    /**
+     * Allows to create an interval with the given bounds. If any of the bounds
+     * is NaN then the interval containing all values is returned. If the lower
+     * bound is larger than the upper one then the NaN interval is returned.
+     *
+     * @param lo the lower bound
+     * @param hi the upper bound
+     * @param may_nan true if the NaN values are possible
+     * @param may_finite false if only infinite values are possible
+     * @return the interval
+     */
+    public static Interval make(final double lo, final double hi,
+            final boolean may_nan, final boolean may_finite) {
+        if (Double.isNaN(lo) || Double.isNaN(hi)) {
+            return ENTIRE;
+        }
+        if (lo > hi) {
+            return NAN;
+        }
+        //Only infinite values are possible if both bounds are the same infinity
+        return new Interval(lo, hi, may_nan, may_finite
+                && (lo != Double.POSITIVE_INFINITY)
+                && (hi != Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * Allows to create a point interval, the NaN value results in the NaN
+     * interval.
+     *
+     * @param value the value
+     * @return the point interval
+     */
+    public static Interval point(final double value) {
+        return Double.isNaN(value) ? NAN : make(value, value, false);
+    }
+
+    /**
+     * Allows to create a boolean interval
+     *
+     * @param may_false true if the false value is possible
+     * @param may_true true if the true value is possible
+     * @return the boolean interval
+     */
+    public static Interval bool(final boolean may_false, final boolean may_true) {
+        if (may_false && may_true) {
+            return BOOL;
+        } else {
+            return may_true ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * Allows to compute the interval spanning the given samples
+     *
+     * @param samples the samples array, the first index is the sample index
+     * and the second is the variable index
+     * @param var_idx the variable index
+     * @return the interval spanning all the variable values
+     */
+    public static Interval of_samples(final double[][] samples, final int var_idx) {
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        boolean may_nan = false;
+        for (double[] sample : samples) {
+            final double value = sample[var_idx];
+            if (Double.isNaN(value)) {
+                may_nan = true;
+            } else {
+                lo = Math.min(lo, value);
+                hi = Math.max(hi, value);
+            }
+        }
+        if (lo > hi) {
+            return may_nan ? NAN : ENTIRE;
+        } else {
+            return make(lo, hi, may_nan);
+        }
+    }
+
+    /**
+     * Get the lower bound of non-NaN values
+     *
+     * @return the lower bound
+     */
+    public double get_lo() {
+        return m_lo;
+    }
+
+    /**
+     * Get the upper bound of non-NaN values
+     *
+     * @return the upper bound
+     */
+    public double get_hi() {
+        return m_hi;
+    }
+
+    /**
+     * Allows to check if NaN values are possible
+     *
+     * @return true if NaN values are possible
+     */
+    public boolean is_may_nan() {
+        return m_may_nan;
+    }
+
+    /**
+     * Allows to check if finite values are possible
+     *
+     * @return true if finite values are possible
+     */
+    public boolean is_may_finite() {
+        return m_may_finite;
+    }
+
+    /**
+     * Allows to check if the interval has no non-NaN values
+     *
+     * @return true if the only possible value is NaN
+     */
+    public boolean is_nan() {
+        return m_lo > m_hi;
+    }
+
+    /**
+     * Allows to check if the interval is guaranteed to be invalid, i.e. it can
+     * only contain NaN or infinite values.
+     *
+     * @return true if the interval values are guaranteed invalid
+     */
+    public boolean is_invalid() {
+        return !m_may_finite;
+    }
+
+    /**
+     * Allows to check if the interval is a finite constant.
+     *
+     * @return true if the only possible finite value is a single constant
+     */
+    public boolean is_const() {
+        return m_may_finite && (m_lo == m_hi);
+    }
+
+    /**
+     * Allows to check if the interval contains the given value
+     *
+     * @param value the value to check
+     * @return true if the value is within the interval bounds
+     */
+    public boolean contains(final double value) {
+        return (m_lo <= value) && (value <= m_hi);
+    }
+
+    /**
+     * Allows to check if this boolean interval may be true
+     *
+     * @return true if the true value is possible
+     */
+    public boolean may_true() {
+        return !is_nan() && ((m_lo != 0.0) || (m_hi != 0.0));
+    }
+
+    /**
+     * Allows to check if this boolean interval may be false
+     *
+     * @return true if the false value is possible
+     */
+    public boolean may_false() {
+        return contains(0.0);
+    }
+
+    /**
+     * Allows to get an interval with the NaN values added
+     *
+     * @return the interval that may contain NaN values
+     */
+    public Interval with_nan() {
+        return m_may_nan ? this : new Interval(m_lo, m_hi, true, m_may_finite);
+    }
+
+    /**
+     * Computes the hull of two intervals
+     *
+     * @param other the other interval
+     * @return the hull of the intervals
+     */
+    public Interval hull(final Interval other) {
+        if (this.is_nan()) {
+            return other.with_nan();
+        }
+        if (other.is_nan()) {
+            return this.with_nan();
+        }
+        return new Interval(Math.min(m_lo, other.m_lo), Math.max(m_hi, other.m_hi),
+                m_may_nan || other.m_may_nan, m_may_finite || other.m_may_finite);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + m_lo + ", " + m_hi + "]" + (m_may_nan ? "~NaN" : "")
+                + (m_may_finite ? "" : "~Inf");
+    }
+}
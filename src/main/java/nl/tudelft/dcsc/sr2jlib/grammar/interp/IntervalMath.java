@@ -0,0 +1,681 @@
+/*
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grammar.interp;
+
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * The interval arithmetic operations mirroring the semantics of the Java
+ * operators and the java.lang.Math functions. All the operations are
+ * conservative: the resulting interval contains all the values the
+ * corresponding Java expression can produce, up to the floating point rounding
+ * of the interval bounds.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+final class IntervalMath {
+
+    private static final double PI = Math.PI;
+    private static final double TWO_PI = 2.0 * Math.PI;
+    private static final double HALF_PI = 0.5 * Math.PI;
+    private static final double NEG_INF = Double.NEGATIVE_INFINITY;
+    private static final double POS_INF = Double.POSITIVE_INFINITY;
+
+    /**
+     * The basic constructor
+     */
+    private IntervalMath() {
+    }
+
+    /**
+     * Computes the hull of the given corner values, if all of them are NaN and
+     * the arguments are points then the result is NaN, if some of them are NaN
+     * then the result is conservatively the entire interval.
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @param may_finite false if only infinite values are possible
+     * @param corners the corner values
+     * @return the resulting interval
+     */
+    private static Interval corners(final Interval a, final Interval b,
+            final boolean may_finite, final double... corners) {
+        double lo = POS_INF;
+        double hi = NEG_INF;
+        int nan_cnt = 0;
+        for (double value : corners) {
+            if (Double.isNaN(value)) {
+                ++nan_cnt;
+            } else {
+                lo = Math.min(lo, value);
+                hi = Math.max(hi, value);
+            }
+        }
+        if (nan_cnt == corners.length) {
+            return is_point(a) && is_point(b) ? Interval.NAN : Interval.ENTIRE;
+        } else {
+            if (nan_cnt > 0) {
+                return Interval.ENTIRE;
+            } else {
+                return Interval.make(lo, hi,
+                        a.is_may_nan() || b.is_may_nan(), may_finite);
+            }
+        }
+    }
+
+    /**
+     * Allows to check if the interval is a single point
+     *
+     * @param a the interval
+     * @return true if the interval is a single point
+     */
+    private static boolean is_point(final Interval a) {
+        return a.get_lo() == a.get_hi();
+    }
+
+    /**
+     * Allows to check if the interval is the zero point
+     *
+     * @param a the interval
+     * @return true if the only non-NaN value is zero
+     */
+    private static boolean is_zero(final Interval a) {
+        return (a.get_lo() == 0.0) && (a.get_hi() == 0.0);
+    }
+
+    /**
+     * Computes the result of the unary function for an interval with
+     * infinite values only.
+     *
+     * @param a the argument with infinite values only
+     * @param f the function
+     * @return the resulting interval
+     */
+    private static Interval inf_only(final Interval a, final DoubleUnaryOperator f) {
+        Interval result = null;
+        if (a.get_lo() == NEG_INF) {
+            result = Interval.point(f.applyAsDouble(NEG_INF));
+        }
+        if (a.get_hi() == POS_INF) {
+            final Interval pos = Interval.point(f.applyAsDouble(POS_INF));
+            result = (result == null) ? pos : result.hull(pos);
+        }
+        if (result == null) {
+            return Interval.NAN;
+        } else {
+            return a.is_may_nan() ? result.with_nan() : result;
+        }
+    }
+
+    /**
+     * Applies the unary function, handles the special NaN and infinite value
+     * only cases before delegating to the interval function.
+     *
+     * @param a the argument
+     * @param f the point function
+     * @param ivl_f the interval function for arguments with finite values
+     * @return the resulting interval
+     */
+    private static Interval unary(final Interval a, final DoubleUnaryOperator f,
+            final UnaryOperator<Interval> ivl_f) {
+        if (a.is_nan()) {
+            return Interval.NAN;
+        } else {
+            if (a.is_may_finite()) {
+                return ivl_f.apply(a);
+            } else {
+                return inf_only(a, f);
+            }
+        }
+    }
+
+    /**
+     * Applies a monotone function defined on the closed domain [dlo, dhi], the
+     * values outside of the domain result in NaN.
+     *
+     * @param a the argument
+     * @param dlo the domain lower bound
+     * @param dhi the domain upper bound
+     * @param f the function
+     * @param is_inc true if the function is increasing, false if decreasing
+     * @return the resulting interval
+     */
+    static Interval monotone(final Interval a, final double dlo,
+            final double dhi, final DoubleUnaryOperator f, final boolean is_inc) {
+        return unary(a, f, (arg) -> {
+            final double lo = Math.max(arg.get_lo(), dlo);
+            final double hi = Math.min(arg.get_hi(), dhi);
+            final boolean may_nan = arg.is_may_nan()
+                    || (arg.get_lo() < dlo) || (arg.get_hi() > dhi);
+            if (lo > hi) {
+                return Interval.NAN;
+            } else {
+                final double f_lo = f.applyAsDouble(lo);
+                final double f_hi = f.applyAsDouble(hi);
+                return is_inc ? Interval.make(f_lo, f_hi, may_nan)
+                        : Interval.make(f_hi, f_lo, may_nan);
+            }
+        });
+    }
+
+    /**
+     * Unary minus
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval neg(final Interval a) {
+        if (a.is_nan()) {
+            return Interval.NAN;
+        } else {
+            return Interval.make(-a.get_hi(), -a.get_lo(),
+                    a.is_may_nan(), a.is_may_finite());
+        }
+    }
+
+    /**
+     * Addition
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval add(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        } else {
+            return corners(a, b, a.is_may_finite() && b.is_may_finite(),
+                    a.get_lo() + b.get_lo(), a.get_hi() + b.get_hi());
+        }
+    }
+
+    /**
+     * Subtraction
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval sub(final Interval a, final Interval b) {
+        return add(a, neg(b));
+    }
+
+    /**
+     * Multiplication
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval mul(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        } else {
+            return corners(a, b, a.is_may_finite() && b.is_may_finite(),
+                    a.get_lo() * b.get_lo(), a.get_lo() * b.get_hi(),
+                    a.get_hi() * b.get_lo(), a.get_hi() * b.get_hi());
+        }
+    }
+
+    /**
+     * Floating point division
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval div(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        } else {
+            if (is_zero(b)) {
+                //Division by zero gives infinities or NaN for a zero numerator
+                if (is_zero(a)) {
+                    return Interval.NAN;
+                } else {
+                    return Interval.make(NEG_INF, POS_INF, a.contains(0.0)
+                            || a.is_may_nan() || b.is_may_nan(), false);
+                }
+            } else {
+                if (b.contains(0.0)) {
+                    return Interval.make(NEG_INF, POS_INF, true, a.is_may_finite());
+                } else {
+                    return corners(a, b, a.is_may_finite(),
+                            a.get_lo() / b.get_lo(), a.get_lo() / b.get_hi(),
+                            a.get_hi() / b.get_lo(), a.get_hi() / b.get_hi());
+                }
+            }
+        }
+    }
+
+    /**
+     * Floating point remainder, as the Java % operator
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval rem(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan() || is_zero(b)) {
+            return Interval.NAN;
+        } else {
+            final double b_mag = Math.max(Math.abs(b.get_lo()), Math.abs(b.get_hi()));
+            final double a_mag = Math.max(Math.abs(a.get_lo()), Math.abs(a.get_hi()));
+            final double mag = Math.min(b_mag, a_mag);
+            final boolean may_nan = a.is_may_nan() || b.is_may_nan()
+                    || b.contains(0.0) || Double.isInfinite(a_mag);
+            return Interval.make((a.get_lo() >= 0.0) ? 0.0 : -mag,
+                    (a.get_hi() <= 0.0) ? 0.0 : mag, may_nan, a.is_may_finite());
+        }
+    }
+
+    /**
+     * The absolute value
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval abs(final Interval a) {
+        return unary(a, Math::abs, (arg) -> {
+            if (arg.get_lo() >= 0.0) {
+                return arg;
+            } else {
+                if (arg.get_hi() <= 0.0) {
+                    return neg(arg);
+                } else {
+                    return Interval.make(0.0, Math.max(-arg.get_lo(),
+                            arg.get_hi()), arg.is_may_nan());
+                }
+            }
+        });
+    }
+
+    /**
+     * The hyperbolic cosine
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval cosh(final Interval a) {
+        return monotone(abs(a), NEG_INF, POS_INF, Math::cosh, true);
+    }
+
+    /**
+     * Allows to check if the interval contains a point offset + k * period for
+     * some integer k
+     *
+     * @param a the interval
+     * @param offset the offset
+     * @param period the period
+     * @return true if such a point is contained
+     */
+    private static boolean has_point(final Interval a,
+            final double offset, final double period) {
+        final double k = Math.ceil((a.get_lo() - offset) / period);
+        return (offset + k * period) <= a.get_hi();
+    }
+
+    /**
+     * The periodic function with the range [-1,1], for sin and cos
+     *
+     * @param a the argument
+     * @param f the function
+     * @param max_offset the offset of the maximum points
+     * @return the result
+     */
+    private static Interval periodic(final Interval a,
+            final DoubleUnaryOperator f, final double max_offset) {
+        return unary(a, f, (arg) -> {
+            final boolean may_nan = arg.is_may_nan()
+                    || Double.isInfinite(arg.get_lo())
+                    || Double.isInfinite(arg.get_hi());
+            if (may_nan || (arg.get_hi() - arg.get_lo() >= TWO_PI)) {
+                return Interval.make(-1.0, 1.0, may_nan);
+            } else {
+                final double f_lo = f.applyAsDouble(arg.get_lo());
+                final double f_hi = f.applyAsDouble(arg.get_hi());
+                final double lo = has_point(arg, max_offset + PI, TWO_PI)
+                        ? -1.0 : Math.min(f_lo, f_hi);
+                final double hi = has_point(arg, max_offset, TWO_PI)
+                        ? 1.0 : Math.max(f_lo, f_hi);
+                return Interval.make(lo, hi, false);
+            }
+        });
+    }
+
+    /**
+     * The sine function
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval sin(final Interval a) {
+        return periodic(a, Math::sin, HALF_PI);
+    }
+
+    /**
+     * The cosine function
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval cos(final Interval a) {
+        return periodic(a, Math::cos, 0.0);
+    }
+
+    /**
+     * The tangent function
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval tan(final Interval a) {
+        return unary(a, Math::tan, (arg) -> {
+            final boolean may_nan = arg.is_may_nan()
+                    || Double.isInfinite(arg.get_lo())
+                    || Double.isInfinite(arg.get_hi());
+            if (may_nan || has_point(arg, HALF_PI, PI)) {
+                return Interval.make(NEG_INF, POS_INF, may_nan);
+            } else {
+                return Interval.make(Math.tan(arg.get_lo()),
+                        Math.tan(arg.get_hi()), false);
+            }
+        });
+    }
+
+    /**
+     * The power function
+     *
+     * @param a the base
+     * @param b the exponent
+     * @return the result
+     */
+    static Interval pow(final Interval a, final Interval b) {
+        //Anything to the power of zero is one
+        if (is_zero(b) && !b.is_may_nan()) {
+            return Interval.TRUE;
+        }
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        }
+        if (!a.is_may_finite() || !b.is_may_finite()) {
+            return Interval.ENTIRE;
+        }
+        final boolean may_nan = a.is_may_nan() || b.is_may_nan();
+        if (a.get_lo() >= 0.0) {
+            //Monotone in each argument, the extremes are in the corners
+            return corners(a, b, true,
+                    Math.pow(a.get_lo(), b.get_lo()), Math.pow(a.get_lo(), b.get_hi()),
+                    Math.pow(a.get_hi(), b.get_lo()), Math.pow(a.get_hi(), b.get_hi()));
+        }
+        final double n = b.get_lo();
+        if (is_point(b) && (n == Math.rint(n)) && !Double.isInfinite(n)) {
+            //The integer exponent is well defined for negative bases
+            final boolean is_even = (Math.abs(n) % 2.0 == 0.0);
+            if (n > 0.0) {
+                if (is_even) {
+                    final Interval mag = abs(a);
+                    return Interval.make(Math.pow(mag.get_lo(), n),
+                            Math.pow(mag.get_hi(), n), may_nan);
+                } else {
+                    return Interval.make(Math.pow(a.get_lo(), n),
+                            Math.pow(a.get_hi(), n), may_nan);
+                }
+            } else {
+                if (a.contains(0.0)) {
+                    return Interval.make(NEG_INF, POS_INF, may_nan, !is_zero(a));
+                } else {
+                    final Interval result = Interval.point(Math.pow(a.get_lo(), n))
+                            .hull(Interval.point(Math.pow(a.get_hi(), n)));
+                    return may_nan ? result.with_nan() : result;
+                }
+            }
+        }
+        //Check if the exponent may take integer values
+        final boolean has_int = Math.floor(b.get_hi()) >= b.get_lo();
+        if (has_int) {
+            return Interval.ENTIRE;
+        } else {
+            if (a.get_hi() < 0.0) {
+                //A negative base with a non-integer exponent gives NaN
+                return Interval.NAN;
+            } else {
+                return pow(Interval.make(0.0, a.get_hi(), true), b).with_nan();
+            }
+        }
+    }
+
+    /**
+     * The maximum function
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval max(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        } else {
+            return Interval.make(Math.max(a.get_lo(), b.get_lo()),
+                    Math.max(a.get_hi(), b.get_hi()),
+                    a.is_may_nan() || b.is_may_nan(),
+                    a.is_may_finite() || b.is_may_finite());
+        }
+    }
+
+    /**
+     * The minimum function
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval min(final Interval a, final Interval b) {
+        return neg(max(neg(a), neg(b)));
+    }
+
+    /**
+     * The atan2 function
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval atan2(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.NAN;
+        } else {
+            return Interval.make(-PI, PI, a.is_may_nan() || b.is_may_nan());
+        }
+    }
+
+    /**
+     * The hypot function
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval hypot(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.ENTIRE;
+        } else {
+            final Interval a_mag = abs(a);
+            final Interval b_mag = abs(b);
+            return Interval.make(Math.hypot(a_mag.get_lo(), b_mag.get_lo()),
+                    Math.hypot(a_mag.get_hi(), b_mag.get_hi()),
+                    a.is_may_nan() || b.is_may_nan(),
+                    a.is_may_finite() && b.is_may_finite());
+        }
+    }
+
+    /**
+     * The rounding to the closest long, NaN becomes zero.
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval round(final Interval a) {
+        return to_integral(a, (value) -> (double) Math.round(value));
+    }
+
+    /**
+     * The cast to an integral type, NaN becomes zero
+     *
+     * @param a the argument
+     * @param is_long true for the long type, false for the int type
+     * @return the result
+     */
+    static Interval cast_integral(final Interval a, final boolean is_long) {
+        return to_integral(a, is_long
+                ? (value) -> (double) ((long) value)
+                : (value) -> (double) ((int) value));
+    }
+
+    /**
+     * Conversion to an integral type, NaN becomes zero, the result is always
+     * finite.
+     *
+     * @param a the argument
+     * @param f the monotone conversion function
+     * @return the result
+     */
+    private static Interval to_integral(final Interval a, final DoubleUnaryOperator f) {
+        if (a.is_nan()) {
+            return Interval.FALSE;
+        } else {
+            final Interval result = Interval.make(f.applyAsDouble(a.get_lo()),
+                    f.applyAsDouble(a.get_hi()), false);
+            return a.is_may_nan() ? result.hull(Interval.FALSE) : result;
+        }
+    }
+
+    /**
+     * The less than comparison
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @param is_strict true for the strict comparison
+     * @return the result
+     */
+    static Interval less(final Interval a, final Interval b, final boolean is_strict) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.FALSE;
+        } else {
+            final boolean may_nan = a.is_may_nan() || b.is_may_nan();
+            if (is_strict) {
+                return Interval.bool((a.get_hi() >= b.get_lo()) || may_nan,
+                        a.get_lo() < b.get_hi());
+            } else {
+                return Interval.bool((a.get_hi() > b.get_lo()) || may_nan,
+                        a.get_lo() <= b.get_hi());
+            }
+        }
+    }
+
+    /**
+     * The equality comparison
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval equal(final Interval a, final Interval b) {
+        if (a.is_nan() || b.is_nan()) {
+            return Interval.FALSE;
+        } else {
+            final boolean is_same = is_point(a) && is_point(b)
+                    && (a.get_lo() == b.get_lo());
+            return Interval.bool(!is_same || a.is_may_nan() || b.is_may_nan(),
+                    (a.get_lo() <= b.get_hi()) && (b.get_lo() <= a.get_hi()));
+        }
+    }
+
+    /**
+     * The logical negation
+     *
+     * @param a the argument
+     * @return the result
+     */
+    static Interval not(final Interval a) {
+        return Interval.bool(a.may_true(), a.may_false());
+    }
+
+    /**
+     * The logical and
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval and(final Interval a, final Interval b) {
+        return Interval.bool(a.may_false() || b.may_false(),
+                a.may_true() && b.may_true());
+    }
+
+    /**
+     * The logical or
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval or(final Interval a, final Interval b) {
+        return Interval.bool(a.may_false() && b.may_false(),
+                a.may_true() || b.may_true());
+    }
+
+    /**
+     * The logical exclusive or
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the result
+     */
+    static Interval xor(final Interval a, final Interval b) {
+        return Interval.bool(
+                (a.may_true() && b.may_true()) || (a.may_false() && b.may_false()),
+                (a.may_true() && b.may_false()) || (a.may_false() && b.may_true()));
+    }
+
+    /**
+     * The conditional operator
+     *
+     * @param cond the condition
+     * @param then_val the value if true
+     * @param else_val the value if false
+     * @return the result
+     */
+    static Interval cond(final Interval cond, final Interval then_val,
+            final Interval else_val) {
+        if (!cond.may_false()) {
+            return then_val;
+        } else {
+            if (!cond.may_true()) {
+                return else_val;
+            } else {
+                return then_val.hull(else_val);
+            }
+        }
+    }
+}
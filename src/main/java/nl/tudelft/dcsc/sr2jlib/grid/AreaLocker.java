@@ -24,7 +24,7 @@ package nl.tudelft.dcsc.sr2jlib.grid;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,13 +73,49 @@ public class AreaLocker {
             return m_elems_x * m_elems_y;
         }
 
+        /**
+         * Returns the minimum x position of the area
+         *
+         * @return the minimum x position
+         */
+        public int get_min_x() {
+            return m_min_x;
+        }
+
+        /**
+         * Returns the number of area elements in x
+         *
+         * @return the number of area elements in x
+         */
+        public int get_elems_x() {
+            return m_elems_x;
+        }
+
+        /**
+         * Returns the minimum y position of the area
+         *
+         * @return the minimum y position
+         */
+        public int get_min_y() {
+            return m_min_y;
+        }
+
+        /**
+         * Returns the number of area elements in y
+         *
+         * @return the number of area elements in y
+         */
+        public int get_elems_y() {
+            return m_elems_y;
+        }
+
         /**
          * Gets a random position in the area around the individual
          *
          * @return a random x position
          */
         public int get_rnd_x_pos() {
-            return m_min_x + ThreadLocalRandom.current().nextInt(m_elems_x);
+            return m_min_x + RandomSource.next_int(m_elems_x);
         }
 
         /**
@@ -88,7 +124,7 @@ public class AreaLocker {
          * @return a random y position
          */
         public int get_rnd_y_pos() {
-            return m_min_y + ThreadLocalRandom.current().nextInt(m_elems_y);
+            return m_min_y + RandomSource.next_int(m_elems_y);
         }
     };
 
@@ -48,6 +48,12 @@ public class AreaLockerConfig {
      */
     public final int m_ch_sp_y;
 
+    /**
+     * If true then the @see CellAreaLocker is used, claiming the area cells
+     * without a global lock, false by default
+     */
+    public boolean m_is_cell_locker = false;
+
     /**
      * The basic constructor
      *
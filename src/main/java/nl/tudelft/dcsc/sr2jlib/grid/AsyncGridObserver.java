@@ -0,0 +1,425 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Is the grid observer delivering the grid events to another observer
+ * asynchronously and in batches. The events are published by the workers into
+ * a bounded lock-free ring buffer and are delivered by a dispatcher thread,
+ * the consecutive events of the same kind via set_batch or remove_batch. Once
+ * the ring buffer is full the overflow policy applies. The events of one cell
+ * are published under the area lock so they are delivered in order. The
+ * events published after the observation is stopped are delivered directly,
+ * after the ones still in the ring buffer.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class AsyncGridObserver implements GridObserver {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncGridObserver.class.getName());
+
+    //Stores the dispatcher idle wait time in nanoseconds
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    //Stores the wait time of a blocked worker in nanoseconds
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    //The observer states
+    private static final int STATE_NEW = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_STOPPED = 2;
+
+    //Stores the observer to deliver the events to
+    private final GridObserver m_observer;
+    //Stores the grid size in y
+    private final int m_size_y;
+    //Stores the overflow policy
+    private final OverflowPolicy m_policy;
+    //Stores the maximum batch size
+    private final int m_batch_size;
+    //Stores the ring buffer index mask
+    private final int m_mask;
+    //Stores the ring buffer slot sequences
+    private final AtomicLongArray m_seqs;
+    //Stores the ring buffer event individuals
+    private final AtomicReferenceArray<Individual> m_inds;
+    //Stores the ring buffer event cell indexes
+    private final int[] m_cells;
+    //Stores the ring buffer event kinds, true for set
+    private final boolean[] m_is_set;
+    //Stores the next slot to publish into
+    private final AtomicLong m_tail;
+    //Stores the next slot to deliver, is used under the monitor only
+    private long m_head;
+    //Stores the latest individual per cell, as published
+    private final AtomicReferenceArray<Individual> m_latest;
+    //Stores the flags of the cells changed on overflow
+    private final AtomicIntegerArray m_dirty;
+    //Stores the flag indicating that some cells are changed on overflow
+    private final AtomicBoolean m_is_dirty;
+    //Stores the cells taken from the changed ones by the current drain, is
+    //used under the monitor only
+    private final int[] m_drained;
+    //Stores the individual per cell as seen by the observer, is used under
+    //the monitor only
+    private final Individual[] m_delivered;
+    //Stores the batch to be delivered and its kind
+    private final List<Individual> m_batch;
+    private boolean m_is_set_batch;
+    //Stores the observer state
+    private volatile int m_state;
+    //Stores the dispatcher thread
+    private Thread m_dispatcher;
+    //Stores the statistics
+    private final AtomicLong m_num_dropped;
+    private final AtomicLong m_num_coalesced;
+    private volatile long m_num_batches;
+
+    /**
+     * The basic constructor
+     *
+     * @param observer the observer to deliver the events to
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     * @param capacity the ring buffer capacity, is rounded up to a power of
+     * two
+     * @param batch_size the maximum number of events delivered at once
+     * @param policy the overflow policy
+     */
+    public AsyncGridObserver(final GridObserver observer, final int size_x,
+            final int size_y, final int capacity, final int batch_size,
+            final OverflowPolicy policy) {
+        if ((capacity <= 0) || (capacity > (1 << 30))) {
+            throw new IllegalArgumentException("Improper ring buffer capacity: " + capacity);
+        }
+        final int num_slots = (capacity == 1) ? 1
+                : Integer.highestOneBit(capacity - 1) << 1;
+        this.m_observer = observer;
+        this.m_size_y = size_y;
+        this.m_policy = policy;
+        this.m_batch_size = Math.max(1, batch_size);
+        this.m_mask = num_slots - 1;
+        this.m_seqs = new AtomicLongArray(num_slots);
+        for (int idx = 0; idx < num_slots; ++idx) {
+            m_seqs.set(idx, idx);
+        }
+        this.m_inds = new AtomicReferenceArray<>(num_slots);
+        this.m_cells = new int[num_slots];
+        this.m_is_set = new boolean[num_slots];
+        this.m_tail = new AtomicLong(0);
+        this.m_head = 0;
+        this.m_latest = new AtomicReferenceArray<>(size_x * size_y);
+        this.m_dirty = new AtomicIntegerArray(size_x * size_y);
+        this.m_is_dirty = new AtomicBoolean(false);
+        this.m_drained = new int[size_x * size_y];
+        this.m_delivered = new Individual[size_x * size_y];
+        this.m_batch = new ArrayList<>(m_batch_size);
+        this.m_is_set_batch = false;
+        this.m_state = STATE_NEW;
+        this.m_dispatcher = null;
+        this.m_num_dropped = new AtomicLong(0);
+        this.m_num_coalesced = new AtomicLong(0);
+        this.m_num_batches = 0;
+    }
+
+    @Override
+    public synchronized void start_observing() {
+        if (m_state != STATE_RUNNING) {
+            m_observer.start_observing();
+            m_state = STATE_RUNNING;
+            m_dispatcher = new Thread(this::dispatch);
+            m_dispatcher.setName("SR-Grid-Dispatcher");
+            m_dispatcher.setDaemon(true);
+            m_dispatcher.start();
+        }
+    }
+
+    @Override
+    public void stop_observing() {
+        final Thread dispatcher;
+        synchronized (this) {
+            dispatcher = m_dispatcher;
+            m_dispatcher = null;
+            m_state = STATE_STOPPED;
+        }
+        if (dispatcher != null) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.WARNING, "Interrupted while waiting for the grid dispatcher");
+            }
+        }
+        //Deliver the events of the workers that have not yet seen the stop
+        synchronized (this) {
+            drain();
+        }
+        m_observer.stop_observing();
+    }
+
+    @Override
+    public void set(final Individual ind) {
+        publish(ind, true);
+    }
+
+    @Override
+    public void remove(final Individual ind) {
+        publish(ind, false);
+    }
+
+    @Override
+    public List<Individual> get_best_fit_ind() {
+        return m_observer.get_best_fit_ind();
+    }
+
+    /**
+     * Allows to publish the grid event, is called under the area lock of the
+     * individual's cell
+     *
+     * @param ind the individual
+     * @param is_set true for the set event, false for the remove event
+     */
+    private void publish(final Individual ind, final boolean is_set) {
+        final int cell = ind.get_pos_x() * m_size_y + ind.get_pos_y();
+        //Keep the latest state of the cell for coalescing
+        if (is_set) {
+            m_latest.set(cell, ind);
+        } else {
+            m_latest.compareAndSet(cell, ind, null);
+        }
+        if (m_state == STATE_STOPPED) {
+            deliver_now(cell, ind, is_set);
+            return;
+        } else if ((m_dirty.get(cell) != 0) || !offer(cell, ind, is_set)) {
+            switch (m_policy) {
+                case COALESCE:
+                    //The cell is delivered later by its latest state
+                    m_num_coalesced.incrementAndGet();
+                    if (m_dirty.getAndSet(cell, 1) == 0) {
+                        m_is_dirty.set(true);
+                    }
+                    break;
+                case BLOCK:
+                    while (!offer(cell, ind, is_set)) {
+                        if (m_state != STATE_RUNNING) {
+                            deliver_now(cell, ind, is_set);
+                            return;
+                        }
+                        LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+                    }
+                    break;
+                default:
+                    m_num_dropped.incrementAndGet();
+                    break;
+            }
+        }
+        //The stop may have come after the dispatcher's last drain
+        if (m_state == STATE_STOPPED) {
+            synchronized (this) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Allows to deliver the event directly, once the dispatcher is stopped,
+     * after the events still in the ring buffer
+     *
+     * @param cell the cell index
+     * @param ind the individual
+     * @param is_set true for the set event, false for the remove event
+     */
+    private synchronized void deliver_now(final int cell, final Individual ind,
+            final boolean is_set) {
+        drain();
+        deliver(cell, ind, is_set);
+        flush();
+    }
+
+    /**
+     * Allows to try putting the event into the ring buffer
+     *
+     * @param cell the cell index
+     * @param ind the individual
+     * @param is_set true for the set event, false for the remove event
+     * @return true if the event is published, false if the buffer is full
+     */
+    private boolean offer(final int cell, final Individual ind, final boolean is_set) {
+        while (true) {
+            final long pos = m_tail.get();
+            final int slot = (int) (pos & m_mask);
+            final long seq = m_seqs.get(slot);
+            if (seq < pos) {
+                return false;
+            } else if ((seq == pos) && m_tail.compareAndSet(pos, pos + 1)) {
+                m_cells[slot] = cell;
+                m_is_set[slot] = is_set;
+                m_inds.set(slot, ind);
+                m_seqs.set(slot, pos + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Is the dispatcher thread loop, drains the events after the stop
+     */
+    private void dispatch() {
+        while (true) {
+            final boolean is_stop = (m_state != STATE_RUNNING);
+            try {
+                final boolean is_events;
+                synchronized (this) {
+                    is_events = drain();
+                }
+                if (is_stop) {
+                    break;
+                } else if (!is_events) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+            } catch (Throwable ex) {
+                LOGGER.log(Level.SEVERE, "Exception in the grid observer!", ex);
+            }
+        }
+    }
+
+    /**
+     * Delivers the published events, is called under the monitor. First the
+     * cells changed on overflow are taken, then the ring buffer is delivered
+     * up to the tail read after that and then the taken cells by their latest
+     * state. No events are put into the ring buffer for a marked cell, so all
+     * its events in the ring buffer are older than its latest state and are
+     * delivered before it.
+     *
+     * @return true if there were events
+     */
+    private boolean drain() {
+        int num_drained = 0;
+        if (m_is_dirty.getAndSet(false)) {
+            for (int cell = 0; cell < m_drained.length; ++cell) {
+                if ((m_dirty.get(cell) != 0) && (m_dirty.getAndSet(cell, 0) != 0)) {
+                    m_drained[num_drained++] = cell;
+                }
+            }
+        }
+        final long tail = m_tail.get();
+        final boolean is_events = (num_drained > 0) || (m_head < tail);
+        while (m_head < tail) {
+            final int slot = (int) (m_head & m_mask);
+            //Wait for the claimed slot to be published
+            while (m_seqs.get(slot) != m_head + 1) {
+                Thread.yield();
+            }
+            final Individual ind = m_inds.get(slot);
+            deliver(m_cells[slot], ind, m_is_set[slot]);
+            m_inds.set(slot, null);
+            m_seqs.set(slot, m_head + m_mask + 1);
+            ++m_head;
+        }
+        for (int idx = 0; idx < num_drained; ++idx) {
+            final int cell = m_drained[idx];
+            final Individual ind = m_latest.get(cell);
+            if (ind != null) {
+                deliver(cell, ind, true);
+            } else if (m_delivered[cell] != null) {
+                deliver(cell, m_delivered[cell], false);
+            }
+        }
+        flush();
+        return is_events;
+    }
+
+    /**
+     * Adds the event to the batch, skipping the events that do not change the
+     * observer's view of the grid
+     *
+     * @param cell the cell index
+     * @param ind the individual
+     * @param is_set true for the set event, false for the remove event
+     */
+    private void deliver(final int cell, final Individual ind, final boolean is_set) {
+        if (is_set ? (m_delivered[cell] == ind) : (m_delivered[cell] != ind)) {
+            return;
+        }
+        m_delivered[cell] = is_set ? ind : null;
+        if ((m_is_set_batch != is_set) || (m_batch.size() >= m_batch_size)) {
+            flush();
+        }
+        m_is_set_batch = is_set;
+        m_batch.add(ind);
+    }
+
+    /**
+     * Delivers the current batch to the observer
+     */
+    private void flush() {
+        if (!m_batch.isEmpty()) {
+            try {
+                if (m_is_set_batch) {
+                    m_observer.set_batch(m_batch);
+                } else {
+                    m_observer.remove_batch(m_batch);
+                }
+            } finally {
+                m_batch.clear();
+                ++m_num_batches;
+            }
+        }
+    }
+
+    /**
+     * Allows to get the number of events dropped on overflow
+     *
+     * @return the number of dropped events
+     */
+    public long get_num_dropped() {
+        return m_num_dropped.get();
+    }
+
+    /**
+     * Allows to get the number of events coalesced on overflow
+     *
+     * @return the number of coalesced events
+     */
+    public long get_num_coalesced() {
+        return m_num_coalesced.get();
+    }
+
+    /**
+     * Allows to get the number of batches delivered to the observer
+     *
+     * @return the number of batches
+     */
+    public long get_num_batches() {
+        return m_num_batches;
+    }
+}
@@ -0,0 +1,174 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The area locker backed by a per-cell ownership array. Locking an area claims
+ * all of its cells by compare-and-set, in a fixed order, and rolls the claimed
+ * cells back if any of them is owned by another individual. The lock and
+ * unlock operations therefore take the time proportional to the area size and
+ * the workers reproducing in the distant regions of the grid never contend.
+ * Two areas are conflicting if and only if they share a cell, which is the
+ * same as for the base class.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class CellAreaLocker extends AreaLocker {
+
+    //Stores the reference to the logger
+    private static final Logger LOGGER = Logger.getLogger(CellAreaLocker.class.getName());
+
+    //Stores the number of grid cells in y
+    private final int m_size_y;
+    //Stores the cell owners, the cell index is x * size_y + y
+    private final AtomicReferenceArray<Individual> m_owners;
+    //Stores the locked areas per locked individual
+    private final Map<Individual, Area> m_areas;
+    //Stores the number of lock holders and lock attempts in progress
+    private final AtomicInteger m_num_locked;
+    //Stores the monitor used to wait for the pause
+    private final Object m_pause_mon;
+    //Stores the pause flag
+    private volatile boolean m_is_paused;
+
+    /**
+     * The area locker constructor
+     *
+     * @param conf the configuration object
+     */
+    public CellAreaLocker(final AreaLockerConfig conf) {
+        super(conf);
+        m_size_y = conf.m_size_y;
+        m_owners = new AtomicReferenceArray<>(conf.m_size_x * conf.m_size_y);
+        m_areas = new ConcurrentHashMap<>();
+        m_num_locked = new AtomicInteger(0);
+        m_pause_mon = new Object();
+        m_is_paused = false;
+    }
+
+    /**
+     * Allows to release the cells of the area claimed by the individual
+     *
+     * @param ind the owner individual
+     * @param area the area
+     * @param num_cells the number of cells, in the claiming order, to release
+     */
+    private void release_cells(final Individual ind, final Area area, int num_cells) {
+        for (int pos_x = area.get_min_x(); pos_x < area.get_min_x() + area.get_elems_x(); ++pos_x) {
+            for (int pos_y = area.get_min_y(); pos_y < area.get_min_y() + area.get_elems_y(); ++pos_y) {
+                if (num_cells-- == 0) {
+                    return;
+                }
+                m_owners.compareAndSet(pos_x * m_size_y + pos_y, ind, null);
+            }
+        }
+    }
+
+    /**
+     * Allows to decrement the number of lock holders and to notify the
+     * threads waiting for the pause
+     */
+    private void leave() {
+        if ((m_num_locked.decrementAndGet() == 0) && m_is_paused) {
+            synchronized (m_pause_mon) {
+                m_pause_mon.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public Individual lock_area(final Individual ind) {
+        if (ind != null) {
+            //Register first so that a concurrent pause waits for this attempt
+            m_num_locked.incrementAndGet();
+            if (!m_is_paused) {
+                final Area area = get_area(ind);
+                int num_cells = 0;
+                for (int pos_x = area.get_min_x(); pos_x < area.get_min_x() + area.get_elems_x(); ++pos_x) {
+                    for (int pos_y = area.get_min_y(); pos_y < area.get_min_y() + area.get_elems_y(); ++pos_y) {
+                        if (m_owners.compareAndSet(pos_x * m_size_y + pos_y, null, ind)) {
+                            ++num_cells;
+                        } else {
+                            LOGGER.log(Level.FINE, "{0} -> Failed to lock individual {1}",
+                                    new Object[]{Thread.currentThread().getName(), ind});
+                            release_cells(ind, area, num_cells);
+                            leave();
+                            return null;
+                        }
+                    }
+                }
+                m_areas.put(ind, area);
+                LOGGER.log(Level.FINE, "Locked Individual {0}", ind);
+                return ind;
+            }
+            leave();
+        }
+        return null;
+    }
+
+    @Override
+    public void pause() {
+        m_is_paused = true;
+    }
+
+    @Override
+    public boolean wait_paused(final long timeout) {
+        while (m_is_paused) {
+            try {
+                synchronized (m_pause_mon) {
+                    if (m_num_locked.get() == 0) {
+                        return true;
+                    } else {
+                        m_pause_mon.wait(timeout);
+                    }
+                }
+            } catch (InterruptedException ex) {
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void resume() {
+        synchronized (m_pause_mon) {
+            m_is_paused = false;
+            m_pause_mon.notifyAll();
+        }
+    }
+
+    @Override
+    public void unlock_area(final Individual ind) {
+        final Area area = m_areas.remove(ind);
+        if (area != null) {
+            release_cells(ind, area, area.get_area_size());
+            LOGGER.log(Level.FINE, "Unlocked Individual {0}", ind);
+            leave();
+        }
+    }
+}
@@ -21,11 +21,22 @@
  */
 package nl.tudelft.dcsc.sr2jlib.grid;
 
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
 
 /**
  *
- * Is the population grid class that stores the current population
+ * Is the population grid class that stores the current population. The cells
+ * are stored in a flat atomic array so that reading is lock-free. The fitness
+ * values and sizes of the individuals are also stored in parallel primitive
+ * arrays, allowing to compare individuals without de-referencing them. The
+ * primitive values of a cell are written before its individual and the cell
+ * stamp, so they are up to date once the stamp or the individual is read.
+ * The cells are to be changed under the area lock, the observer notifications
+ * are serialized, unless the observer is asynchronous and so does not block
+ * the workers. Optionally, the grid maintains the index of the weakest
+ * individuals allowing to find the weakest cell of an area directly.
  *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
@@ -33,8 +44,14 @@ public class GridManager {
 
     private final int m_size_x;
     private final int m_size_y;
-    private final Individual[][] m_pop_grid;
+    private final AtomicReferenceArray<Individual> m_cells;
+    private final double[] m_ftns;
+    private final int[] m_sizes;
+    private final boolean[] m_is_val_ord;
+    private final AtomicLongArray m_stamps;
     private final GridObserver m_observer;
+    private final boolean m_is_async_obs;
+    private final WeakestIndex m_weakest;
 
     /**
      * The basic constructor
@@ -44,13 +61,31 @@ public class GridManager {
      * @param size_y the grid size in y
      */
     public GridManager(final GridObserver observer, final int size_x, final int size_y) {
+        this(observer, size_x, size_y, false);
+    }
+
+    /**
+     * The basic constructor
+     *
+     * @param observer the observer to monitor the grid changes
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     * @param is_weakest_idx true if the index of the weakest individuals is to
+     * be maintained
+     */
+    public GridManager(final GridObserver observer, final int size_x,
+            final int size_y, final boolean is_weakest_idx) {
         this.m_size_x = size_x;
         this.m_size_y = size_y;
-        this.m_pop_grid = new Individual[size_x][];
-        IntStream.range(0, size_x).forEachOrdered(idx -> {
-            this.m_pop_grid[idx] = new Individual[size_y];
-        });
+        this.m_cells = new AtomicReferenceArray<>(size_x * size_y);
+        this.m_ftns = new double[size_x * size_y];
+        this.m_sizes = new int[size_x * size_y];
+        this.m_is_val_ord = new boolean[size_x * size_y];
+        this.m_stamps = new AtomicLongArray(size_x * size_y);
         this.m_observer = observer;
+        this.m_is_async_obs = (observer instanceof AsyncGridObserver);
+        this.m_weakest = is_weakest_idx
+                ? new WeakestIndex(size_x, size_y, m_ftns, m_sizes) : null;
     }
 
     /**
@@ -71,14 +106,25 @@ public class GridManager {
         return m_size_y;
     }
 
+    /**
+     * Allows to get the flat cell index
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return the cell index
+     */
+    private int get_idx(final int pos_x, final int pos_y) {
+        return pos_x * m_size_y + pos_y;
+    }
+
     /**
      * Allows to check if the individual is present on the grid
      *
      * @param ind the individual with properly set x,y coordinates
      * @return true if the individual is present by the given coordinates
      */
-    public synchronized boolean has(final Individual ind) {
-        return (m_pop_grid[ind.get_pos_x()][ind.get_pos_y()] == ind);
+    public boolean has(final Individual ind) {
+        return (m_cells.get(get_idx(ind.get_pos_x(), ind.get_pos_y())) == ind);
     }
 
     /**
@@ -88,8 +134,110 @@ public class GridManager {
      * @param pos_y the y coordinate
      * @return the individual
      */
-    public synchronized Individual get(final int pos_x, final int pos_y) {
-        return m_pop_grid[pos_x][pos_y];
+    public Individual get(final int pos_x, final int pos_y) {
+        return m_cells.get(get_idx(pos_x, pos_y));
+    }
+
+    /**
+     * Allows to check if the cell is empty, without reading the individual
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return true if the cell is empty
+     */
+    public boolean is_empty(final int pos_x, final int pos_y) {
+        return (m_sizes[get_idx(pos_x, pos_y)] == 0);
+    }
+
+    /**
+     * Allows to retrieve the fitness value of the cell's individual
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return the fitness value, undefined for an empty cell
+     */
+    public double get_fitness(final int pos_x, final int pos_y) {
+        return m_ftns[get_idx(pos_x, pos_y)];
+    }
+
+    /**
+     * Allows to retrieve the size of the cell's individual
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return the size, zero for an empty cell
+     */
+    public int get_size(final int pos_x, final int pos_y) {
+        return m_sizes[get_idx(pos_x, pos_y)];
+    }
+
+    /**
+     * Allows to check if the cell's individual fitness is compared by value,
+     * see Fitness.is_value_ordered
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return true if the fitness is compared by value, undefined for an
+     * empty cell
+     */
+    public boolean is_value_ordered(final int pos_x, final int pos_y) {
+        return m_is_val_ord[get_idx(pos_x, pos_y)];
+    }
+
+    /**
+     * Allows to retrieve the cell stamp, the number of changes of the cell.
+     * Reading the stamp before the individual allows to detect, by comparing
+     * the stamps, if the cell has been changed since.
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     * @return the cell stamp
+     */
+    public long get_stamp(final int pos_x, final int pos_y) {
+        return m_stamps.get(get_idx(pos_x, pos_y));
+    }
+
+    /**
+     * Allows to check if the index of the weakest individuals is maintained
+     *
+     * @return true if the weakest individuals are indexed
+     */
+    public boolean is_weakest_indexed() {
+        return (m_weakest != null);
+    }
+
+    /**
+     * Allows to find the weakest cell of the area, an empty cell is the
+     * weakest, then the lowest fitness value and then the largest size. The
+     * area is to be locked for the result to be exact. Requires the index of
+     * the weakest individuals to be maintained.
+     *
+     * @param area the area
+     * @param start_x the area row to start with, the first of the equally
+     * weak cells is returned
+     * @return the flat cell index, x * size_y + y
+     */
+    public int find_weakest(final AreaLocker.Area area, final int start_x) {
+        return m_weakest.find_weakest(area, start_x);
+    }
+
+    /**
+     * Allows to get the best fitness value on the grid, scans the primitive
+     * arrays without locking so the result is approximate during breeding
+     *
+     * @return the best fitness value or NaN if the grid is empty
+     */
+    public double get_best_fitness() {
+        double best_ftn = Double.NaN;
+        for (int idx = 0; idx < m_sizes.length; ++idx) {
+            if (m_sizes[idx] != 0) {
+                final double ftn = m_ftns[idx];
+                if (Double.isNaN(best_ftn) || (ftn > best_ftn)) {
+                    best_ftn = ftn;
+                }
+            }
+        }
+        return best_ftn;
     }
 
     /**
@@ -97,11 +245,23 @@ public class GridManager {
      *
      * @param old_ind an old individual to be removed
      */
-    public synchronized void remove(final Individual old_ind) {
+    public void remove(final Individual old_ind) {
+        final int idx = get_idx(old_ind.get_pos_x(), old_ind.get_pos_y());
         //Remove an old individual from the grid
-        m_pop_grid[old_ind.get_pos_x()][old_ind.get_pos_y()] = null;
+        m_sizes[idx] = 0;
+        m_cells.set(idx, null);
+        m_stamps.incrementAndGet(idx);
+        if (m_weakest != null) {
+            m_weakest.update(old_ind.get_pos_x(), old_ind.get_pos_y());
+        }
         //Notify the observer
-        m_observer.remove(old_ind);
+        if (m_is_async_obs) {
+            m_observer.remove(old_ind);
+        } else {
+            synchronized (this) {
+                m_observer.remove(old_ind);
+            }
+        }
     }
 
     /**
@@ -109,10 +269,25 @@ public class GridManager {
      *
      * @param new_ind the new individual to be put in place of the old one
      */
-    public synchronized void set(final Individual new_ind) {
+    public void set(final Individual new_ind) {
+        final int idx = get_idx(new_ind.get_pos_x(), new_ind.get_pos_y());
+        final Fitness ftn = new_ind.get_fitness();
         //Add new individual to the grid
-        m_pop_grid[new_ind.get_pos_x()][new_ind.get_pos_y()] = new_ind;
+        m_ftns[idx] = ftn.get_fitness();
+        m_sizes[idx] = Math.max(1, new_ind.get_size());
+        m_is_val_ord[idx] = Fitness.is_value_ordered(ftn);
+        m_cells.set(idx, new_ind);
+        m_stamps.incrementAndGet(idx);
+        if (m_weakest != null) {
+            m_weakest.update(new_ind.get_pos_x(), new_ind.get_pos_y());
+        }
         //Notify the observer
-        m_observer.set(new_ind);
+        if (m_is_async_obs) {
+            m_observer.set(new_ind);
+        } else {
+            synchronized (this) {
+                m_observer.set(new_ind);
+            }
+        }
     }
 }
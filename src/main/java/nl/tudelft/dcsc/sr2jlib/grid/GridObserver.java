@@ -51,6 +51,32 @@ public interface GridObserver {
      */
     public void remove(final Individual ind);
 
+    /**
+     * Will be called with the individuals becoming a population part, in the
+     * order of their settling, when the events are dispatched in batches, see
+     * AsyncGridObserver. The list is only valid during the call.
+     *
+     * @param inds the individuals set into the grid
+     */
+    public default void set_batch(final List<Individual> inds) {
+        for (Individual ind : inds) {
+            set(ind);
+        }
+    }
+
+    /**
+     * Will be called with the individuals removed from the population, in
+     * the order of their removal, when the events are dispatched in batches,
+     * see AsyncGridObserver. The list is only valid during the call.
+     *
+     * @param inds the individuals removed from the grid
+     */
+    public default void remove_batch(final List<Individual> inds) {
+        for (Individual ind : inds) {
+            remove(ind);
+        }
+    }
+
     /**
      * Allows to get the best fit individuals.
      *
@@ -22,12 +22,21 @@
 package nl.tudelft.dcsc.sr2jlib.grid;
 
 import java.util.ArrayList;
+import nl.tudelft.dcsc.sr2jlib.fitness.CostTable;
 import nl.tudelft.dcsc.sr2jlib.fitness.Fitness;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
+import nl.tudelft.dcsc.sr2jlib.fitness.Fingerprint;
+import nl.tudelft.dcsc.sr2jlib.fitness.FingerprintHolder;
+import nl.tudelft.dcsc.sr2jlib.fitness.FingerprintScreen;
 import nl.tudelft.dcsc.sr2jlib.fitness.FitnessManager;
+import nl.tudelft.dcsc.sr2jlib.fitness.SurrogateModel;
 import nl.tudelft.dcsc.sr2jlib.grammar.Grammar;
 import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
 
@@ -36,7 +45,7 @@ import nl.tudelft.dcsc.sr2jlib.grammar.expr.Expression;
  *
  * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
  */
-public class Individual {
+public class Individual implements FingerprintHolder {
 
     @FunctionalInterface
     public interface ExpressionUpdater {
@@ -72,8 +81,88 @@ public class Individual {
         MAX_CHILDREN_CNT = max_chld_cnt;
     }
 
+    /**
+     * Stores the dofs to be mutated of a population manager
+     */
+    private static final class MutDofs {
+
+        //Stores the indexes of dofs allowed to be mutated, null for all dofs
+        private final int[] m_dofs;
+        //Stores the number of dofs mutated per child, zero for all allowed dofs
+        private final int m_num;
+
+        MutDofs(final int[] dofs, final int num) {
+            this.m_dofs = (dofs == null) ? null : dofs.clone();
+            this.m_num = num;
+        }
+    }
+
+    //Stores the dofs to be mutated per population manager id, none for all
+    private static final Map<Integer, MutDofs> MUT_DOFS = new ConcurrentHashMap<>();
+
+    /**
+     * Set the dofs to be mutated when producing a child of the population
+     * manager. The given number of dofs is chosen at random from the allowed
+     * ones, the other dofs are copied from the parent unchanged.
+     *
+     * @param mgr_id the population manager id
+     * @param mut_dofs the indexes of dofs allowed to be mutated, null for all
+     * @param num_mut_dofs the number of dofs mutated per child, zero for all
+     * allowed dofs
+     */
+    public static void set_mut_dofs(final int mgr_id, final int[] mut_dofs,
+            final int num_mut_dofs) {
+        if ((mut_dofs == null) && (num_mut_dofs <= 0)) {
+            MUT_DOFS.remove(mgr_id);
+        } else {
+            MUT_DOFS.put(mgr_id, new MutDofs(mut_dofs, num_mut_dofs));
+        }
+    }
+
+    //Stores the cost tables per population manager id, none for the
+    //measured evaluation time
+    private static final Map<Integer, CostTable> COST_TABLES = new ConcurrentHashMap<>();
+    //Stores the ids of the population managers needing the measured costs
+    private static final Set<Integer> COST_MEASURED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Set the cost table used to estimate the evaluation cost of the
+     * population manager's individuals. If no table is set then the cost is
+     * the measured fitness computation time in nanoseconds.
+     *
+     * @param mgr_id the population manager id
+     * @param cost_table the cost table or null for the measured time
+     */
+    public static void set_cost_table(final int mgr_id, final CostTable cost_table) {
+        if (cost_table == null) {
+            COST_TABLES.remove(mgr_id);
+        } else {
+            COST_TABLES.put(mgr_id, cost_table);
+        }
+    }
+
+    /**
+     * Set if the population manager needs the measured evaluation costs. If
+     * so then the fitness of the individuals is computed one by one, instead
+     * of in one batch, so that each individual gets its own time.
+     *
+     * @param mgr_id the population manager id
+     * @param is_measured true if the measured costs are needed
+     */
+    public static void set_cost_measured(final int mgr_id, final boolean is_measured) {
+        if (is_measured) {
+            COST_MEASURED.add(mgr_id);
+        } else {
+            COST_MEASURED.remove(mgr_id);
+        }
+    }
+
     //Stores the individual's fitness
     private Fitness m_fitness;
+    //Stores the individual's measured evaluation cost, NaN if unknown
+    private double m_cost;
+    //Stores the individual's estimated evaluation cost, NaN if not estimated
+    private double m_est_cost;
     //Stores the total size of expressions
     private int m_size;
     //Stores the individual's expression
@@ -87,6 +176,10 @@ public class Individual {
     //Stores the reproduction count, the number
     //of times to reproduce before death;
     private int m_max_child_cnt;
+    //Stores the semantic fingerprint, once computed
+    private Fingerprint m_fprint;
+    //Stores the screen the fingerprint is computed by, null if not computed
+    private volatile FingerprintScreen m_fprint_screen;
 
     /**
      * Constructor for an individual
@@ -98,6 +191,24 @@ public class Individual {
      */
     private Individual(final Expression[] exps, final int pos_x,
             final int pos_y, final int mgr_id) {
+        this(exps, pos_x, pos_y, mgr_id, null);
+        //Computethe individual's fitness
+        compute_fitness();
+    }
+
+    /**
+     * Constructor for an individual, the fitness, if unknown, is to be
+     * computed separately.
+     *
+     * @param exprs an array of dof expressions
+     * @param pos_x its x coordinate
+     * @param pos_y its y coordinate
+     * @param mgr_id the id of the population manager
+     * @param fitness the known individual's fitness or null if it is to be
+     * computed
+     */
+    private Individual(final Expression[] exps, final int pos_x,
+            final int pos_y, final int mgr_id, final Fitness fitness) {
         this.m_fitness = null;
         this.m_exps = exps;
         this.m_size = 0;
@@ -105,27 +216,42 @@ public class Individual {
         this.m_pos_y = pos_y;
         this.m_mgr_id = mgr_id;
         this.m_max_child_cnt = -1;
-        //Computethe individual's fitness
-        compute_fitness();
+        this.m_fprint = null;
+        this.m_fprint_screen = null;
+        this.m_cost = Double.NaN;
+        this.m_est_cost = Double.NaN;
+        if (fitness != null) {
+            set_fitness(fitness);
+        }
     }
 
     /**
-     * Supplies the id of the manager this individual was produced by.
+     * Constructor for a child individual, the fitness, if unknown, is to be
+     * computed separately.
      *
-     * @return the corresponding manager id.
+     * @param exprs an array of dof expressions
+     * @param parent the parent individual
+     * @param changed the flags indicating the dofs changed compared to the
+     * parent
      */
-    public int get_mgr_id() {
-        return m_mgr_id;
+    private Individual(final Expression[] exprs, final Individual parent,
+            final boolean[] changed) {
+        //Structurally equal child has the same fitness as its parent
+        this(exprs, UNDEF_POSITION, UNDEF_POSITION, parent.m_mgr_id,
+                is_any(changed) ? null : parent.m_fitness);
+        //The evaluation cost is then the same as well
+        if (m_fitness != null) {
+            m_cost = parent.m_cost;
+        }
     }
 
     /**
-     * Constructor for an individual
+     * Supplies the id of the manager this individual was produced by.
      *
-     * @param exprs an array of dof expressions
-     * @param input_dof_id the corresponding dof id
+     * @return the corresponding manager id.
      */
-    private Individual(final Expression[] exprs, final int input_dof_id) {
-        this(exprs, UNDEF_POSITION, UNDEF_POSITION, input_dof_id);
+    public int get_mgr_id() {
+        return m_mgr_id;
     }
 
     /**
@@ -141,6 +267,24 @@ public class Individual {
         this(generate_exprs(mgr_id, num_dofs), pos_x, pos_y, mgr_id);
     }
 
+    /**
+     * Allows to generate a number of random individuals with some default
+     * position, their fitness is computed in one batch.
+     *
+     * @param mgr_id the id of the population manager
+     * @param num_dofs the number of dimensions for the vector function
+     * @param count the number of individuals to generate
+     * @param list the container for the individuals
+     */
+    public static void generate(final int mgr_id, final int num_dofs,
+            final int count, final List<Individual> list) {
+        list.clear();
+        for (int idx = 0; idx < count; ++idx) {
+            list.add(new Individual(generate_exprs(mgr_id, num_dofs), 0, 0, mgr_id, null));
+        }
+        compute_fitness_batch(mgr_id, list, null, null);
+    }
+
     /**
      * Allows to generate a random vector function
      *
@@ -204,39 +348,156 @@ public class Individual {
 
     /**
      * Produces individual's children based on the individual's fitness The
-     * resulting list if ordered by fitness values
+     * resulting list if ordered by fitness values. The children's fitness is
+     * computed in one batch.
      *
      * @param area_size the area size around
      *
      * @param list the container for children
      */
     public void reproduce(final int area_size, final List<Individual> list) {
+        reproduce(area_size, list, null, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Produces individual's children based on the individual's fitness. The
+     * children predicted by the surrogate model to lose against all the
+     * individuals of the area are dropped without computing their fitness.
+     * The fitness of the remaining children is computed in one batch and the
+     * surrogate model is trained on it.
+     *
+     * @param area_size the area size around
+     * @param list the container for children
+     * @param surrogate the surrogate model or null for none
+     * @param win_ftn the fitness a child has to reach in order to win against
+     * some individual in the area
+     */
+    public void reproduce(final int area_size, final List<Individual> list,
+            final SurrogateModel surrogate, final double win_ftn) {
         //Generate children
         list.clear();
+        final List<boolean[]> changed = new ArrayList<>();
         IntStream.range(0, area_size).forEachOrdered(idx -> {
             if (m_max_child_cnt > 0) {
                 //Create a new individual and add it to the result list
-                list.add(new Individual(mutate_expressions(m_exps), m_mgr_id));
+                final Expression[] exps = mutate_expressions(m_exps);
+                final boolean[] chg = get_changed(exps);
+                list.add(new Individual(exps, this, chg));
+                changed.add(chg);
                 //Decrement the number of children left
                 m_max_child_cnt--;
             }
         });
+        if (surrogate == null) {
+            //Compute the children's fitness in one batch
+            compute_fitness_batch(m_mgr_id, list, m_fitness, changed);
+        } else {
+            //Pre-screen the children with unknown fitness
+            final List<double[]> feats = new ArrayList<>();
+            final List<SurrogateModel.Decision> decisions = new ArrayList<>();
+            int idx = 0;
+            while (idx < list.size()) {
+                final Individual child = list.get(idx);
+                double[] feat = null;
+                SurrogateModel.Decision decision = null;
+                if (child.m_fitness == null) {
+                    feat = surrogate.features(m_mgr_id, child.m_exps, m_exps, m_fitness);
+                    decision = surrogate.decide(feat, win_ftn);
+                }
+                if (decision == SurrogateModel.Decision.REJECT) {
+                    list.remove(idx);
+                    changed.remove(idx);
+                } else {
+                    feats.add(feat);
+                    decisions.add(decision);
+                    ++idx;
+                }
+            }
+            //Compute the children's fitness in one batch
+            compute_fitness_batch(m_mgr_id, list, m_fitness, changed);
+            //Train the surrogate on the computed fitness
+            for (idx = 0; idx < list.size(); ++idx) {
+                if (feats.get(idx) != null) {
+                    surrogate.train(feats.get(idx), list.get(idx).m_fitness,
+                            decisions.get(idx), win_ftn);
+                }
+            }
+        }
     }
 
     /**
-     * Mutates the vector function
+     * Mutates the vector function, the dofs that are not chosen for mutation
+     * are copied.
      *
      * @param exps the old vector function expressions
      * @return the new vector function expressions
      */
     private Expression[] mutate_expressions(Expression[] exps) {
         Expression[] new_exps = new Expression[exps.length];
+        final boolean[] is_mutate = choose_mut_dofs(m_mgr_id, exps.length);
         for (int idx = 0; idx < exps.length; ++idx) {
-            new_exps[idx] = Grammar.inst(m_mgr_id, idx).mutate(exps[idx]);
+            new_exps[idx] = is_mutate[idx]
+                    ? Grammar.inst(m_mgr_id, idx).mutate(exps[idx])
+                    : exps[idx].duplicate();
         }
         return new_exps;
     }
 
+    /**
+     * Allows to choose the dofs to be mutated for a child
+     *
+     * @param mgr_id the population manager id
+     * @param num_dofs the number of dofs
+     * @return the flags indicating the dofs to be mutated
+     */
+    private static boolean[] choose_mut_dofs(final int mgr_id, final int num_dofs) {
+        final boolean[] is_mutate = new boolean[num_dofs];
+        final MutDofs mut_dofs = MUT_DOFS.get(mgr_id);
+        final int[] cands = ((mut_dofs == null) || (mut_dofs.m_dofs == null))
+                ? IntStream.range(0, num_dofs).toArray() : mut_dofs.m_dofs.clone();
+        final int num_mut = ((mut_dofs != null) && (mut_dofs.m_num > 0))
+                ? Math.min(mut_dofs.m_num, cands.length) : cands.length;
+        //Partial Fisher-Yates shuffle placing the chosen dofs first
+        for (int idx = 0; idx < num_mut; ++idx) {
+            final int jdx = idx + RandomSource.next_int(cands.length - idx);
+            final int dof = cands[jdx];
+            cands[jdx] = cands[idx];
+            cands[idx] = dof;
+            is_mutate[dof] = true;
+        }
+        return is_mutate;
+    }
+
+    /**
+     * Allows to get the dofs of the given vector function that are changed
+     * compared to the vector function of this individual.
+     *
+     * @param exps the vector function expressions
+     * @return the flags indicating structurally different dofs
+     */
+    private boolean[] get_changed(final Expression[] exps) {
+        final boolean[] changed = new boolean[exps.length];
+        for (int idx = 0; idx < exps.length; ++idx) {
+            changed[idx] = !m_exps[idx].is_struct_equal(exps[idx]);
+        }
+        return changed;
+    }
+
+    /**
+     * Allows to check if any of the flags is set
+     *
+     * @param flags the flags
+     * @return true if any of the flags is set
+     */
+    private static boolean is_any(final boolean[] flags) {
+        for (boolean flag : flags) {
+            if (flag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Allows to get expressions representing this individual
      *
@@ -272,6 +533,8 @@ public class Individual {
         for (int idx = 0; idx < m_exps.length; ++idx) {
             m_exps[idx] = updater.update(m_exps[idx], idx);
         }
+        m_fprint_screen = null;
+        m_est_cost = Double.NaN;
     }
 
     /**
@@ -281,6 +544,8 @@ public class Individual {
         for (int idx = 0; idx < m_exps.length; ++idx) {
             m_exps[idx] = m_exps[idx].optimize();
         }
+        m_fprint_screen = null;
+        m_est_cost = Double.NaN;
     }
 
     /**
@@ -310,13 +575,102 @@ public class Individual {
         return m_size;
     }
 
+    /**
+     * Allows to estimate the memory footprint of the individual in bytes: the
+     * expression trees with their cached strings, the fitness and the
+     * fingerprint, roughly.
+     *
+     * @return the estimated footprint in bytes
+     */
+    public long get_footprint() {
+        //The object, the fitness and the fingerprint
+        long footprint = 256 + 8 * m_exps.length;
+        for (int idx = 0; idx < m_exps.length; ++idx) {
+            footprint += m_exps[idx].get_footprint();
+        }
+        return footprint;
+    }
+
+    /**
+     * Allows to drop the cached string representations of the expressions,
+     * they are re-computed on demand
+     */
+    public void evict_caches() {
+        for (int idx = 0; idx < m_exps.length; ++idx) {
+            m_exps[idx].evict_caches();
+        }
+    }
+
     /**
      * Computes the individual's fitness value from the range [0,1]
      */
     private void compute_fitness() {
-        //Try compiling and computing fitness
-        m_fitness = FitnessManager.inst().compute_fitness(m_mgr_id, m_exps);
+        //Try compiling and computing fitness, unless it is already known
+        if (m_fitness == null) {
+            final long start = System.nanoTime();
+            set_fitness(FitnessManager.compute_fitness(
+                    m_mgr_id, m_exps, this, null, null));
+            m_cost = System.nanoTime() - start;
+        }
+    }
 
+    /**
+     * Computes the fitness values of the individuals which do not have it yet
+     * in one batch, or one by one if the manager needs the measured costs.
+     *
+     * @param mgr_id the id of the population manager of the individuals
+     * @param inds the individuals
+     * @param parent_ftn the fitness of the individuals' common parent or null
+     * if none
+     * @param changed the per individual flags indicating the dofs changed
+     * compared to the parent or null if none
+     */
+    private static void compute_fitness_batch(final int mgr_id,
+            final List<Individual> inds, final Fitness parent_ftn,
+            final List<boolean[]> changed) {
+        final List<Integer> idxs = new ArrayList<>();
+        for (int idx = 0; idx < inds.size(); ++idx) {
+            if (inds.get(idx).m_fitness == null) {
+                idxs.add(idx);
+            }
+        }
+        if (!idxs.isEmpty() && COST_MEASURED.contains(mgr_id)) {
+            //Time each individual separately
+            for (int idx : idxs) {
+                final Individual ind = inds.get(idx);
+                final long start = System.nanoTime();
+                ind.set_fitness(FitnessManager.compute_fitness(mgr_id, ind.m_exps,
+                        ind, parent_ftn, (changed == null) ? null : changed.get(idx)));
+                ind.m_cost = System.nanoTime() - start;
+            }
+        } else if (!idxs.isEmpty()) {
+            final Expression[][] exps = new Expression[idxs.size()][];
+            final Individual[] holders = new Individual[idxs.size()];
+            final boolean[][] chg = (changed == null) ? null : new boolean[idxs.size()][];
+            for (int bidx = 0; bidx < exps.length; ++bidx) {
+                exps[bidx] = inds.get(idxs.get(bidx)).m_exps;
+                holders[bidx] = inds.get(idxs.get(bidx));
+                if (chg != null) {
+                    chg[bidx] = changed.get(idxs.get(bidx));
+                }
+            }
+            final Fitness[] ftns = FitnessManager.compute_fitness_batch(
+                    mgr_id, exps, holders, parent_ftn, chg);
+            //The batch time says nothing of the individual costs
+            for (int bidx = 0; bidx < exps.length; ++bidx) {
+                inds.get(idxs.get(bidx)).set_fitness(ftns[bidx]);
+            }
+        }
+    }
+
+    /**
+     * Sets the computed individual's fitness and defines the reproduction
+     * count based on it.
+     *
+     * @param fitness the computed fitness, null if failed
+     */
+    private void set_fitness(final Fitness fitness) {
+        m_fitness = fitness;
         if (m_fitness == null) {
             LOGGER.log(Level.SEVERE, "Failed computing fitness!");
             m_fitness = new Fitness(0.0);
@@ -327,6 +681,85 @@ public class Individual {
                 (int) (m_fitness.get_fitness() * MAX_CHILDREN_CNT));
     }
 
+    /**
+     * Allows to get the individual's evaluation cost, estimated with the cost
+     * table if set, or the measured fitness computation time in nanoseconds
+     * otherwise.
+     *
+     * @return the evaluation cost, NaN if unknown
+     */
+    public double get_cost() {
+        final CostTable table = COST_TABLES.get(m_mgr_id);
+        if (table != null) {
+            if (Double.isNaN(m_est_cost)) {
+                m_est_cost = table.estimate(m_exps);
+            }
+            return m_est_cost;
+        }
+        return m_cost;
+    }
+
+    /**
+     * Allows to get the structural hash of the individual's vector function
+     *
+     * @return the structural hash
+     */
+    public int get_struct_hash() {
+        int hash = m_mgr_id;
+        for (Expression exp : m_exps) {
+            hash = 31 * hash + exp.get_struct_hash();
+        }
+        return hash;
+    }
+
+    /**
+     * Allows to check if the given vector function is structurally equal to
+     * the one of this individual
+     *
+     * @param exps the vector function expressions
+     * @return true if the vector functions are structurally equal
+     */
+    private boolean is_struct_equal(final Expression[] exps) {
+        if (m_exps.length != exps.length) {
+            return false;
+        }
+        for (int idx = 0; idx < exps.length; ++idx) {
+            if (!m_exps[idx].is_struct_equal(exps[idx])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allows to check if the two individuals are structurally equal, i.e.
+     * have the same vector function expression trees up to the argument order
+     * of the commutative functions.
+     *
+     * @param other the other individual to compare with
+     * @return true if the individuals are structurally equal
+     */
+    public boolean is_struct_equal(final Individual other) {
+        return (this.m_mgr_id == other.m_mgr_id) && is_struct_equal(other.m_exps);
+    }
+
+    /**
+     * Allows to get the individual's semantic fingerprint, computed once on
+     * the first request and re-computed once the expressions change.
+     *
+     * @param screen the fingerprint screen to compute the fingerprint with
+     * @return the fingerprint or null if the individual can not be
+     * fingerprinted
+     */
+    @Override
+    public Fingerprint get_fingerprint(final FingerprintScreen screen) {
+        if (m_fprint_screen != screen) {
+            m_fprint = screen.fingerprint(m_mgr_id, m_exps);
+            m_fprint_screen = screen;
+        }
+        return m_fprint;
+    }
+
     /**
      * Gets/computes the individual's fitness value from the range [0,1]
      *
@@ -0,0 +1,71 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+/**
+ * Defines what happens to a grid event once the ring buffer of the
+ * asynchronous observer is full, see AsyncGridObserver
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The cell of the event is marked as changed and the observer later gets
+     * its latest state only, the intermediate events of the cell are lost.
+     * The observer view of the grid stays consistent.
+     */
+    COALESCE(0, "Coalesce"),
+    /**
+     * The event is dropped, the observer view of the grid may become
+     * inconsistent. A removal of an individual the observer has not seen
+     * is not delivered.
+     */
+    DROP(1, "Drop"),
+    /**
+     * The worker waits for a free slot, a slow observer then slows down the
+     * workers but gets all the events.
+     */
+    BLOCK(2, "Block");
+
+    private final int m_idx;
+    private final String m_name;
+
+    OverflowPolicy(final int idx, final String name) {
+        this.m_idx = idx;
+        this.m_name = name;
+    }
+
+    /**
+     * Allows to get the overflow policy unique index
+     *
+     * @return the overflow policy unique index
+     */
+    public int get_idx() {
+        return m_idx;
+    }
+
+    @Override
+    public String toString() {
+        return m_name;
+    }
+}
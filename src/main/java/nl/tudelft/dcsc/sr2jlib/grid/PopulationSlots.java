@@ -0,0 +1,217 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+
+/**
+ * The scheduling structure of the individuals available for reproduction. It
+ * is a slot array indexed by the grid position: an individual is available if
+ * it is in the slot of its grid cell. Taking, returning, replacing and removing
+ * an individual are single atomic operations on its slot. An occupancy bitmap,
+ * with a bit per slot, allows polling to skip the empty slots a word at a
+ * time. A slot's bit is set after the slot is filled and is cleared before
+ * the slot is re-checked, so an occupied slot always has its bit set. Polling
+ * visits the slots round-robin from a per-thread cursor, starting at a random
+ * slot, so that the workers do not contend on a shared cursor and each of them
+ * schedules the individuals in turns as with a queue.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class PopulationSlots {
+
+    //Stores the number of grid cells in y
+    private final int m_size_y;
+    //Stores the available individuals per grid cell
+    private final AtomicReferenceArray<Individual> m_slots;
+    //Stores the number of slots per occupancy word
+    private static final int WORD_BITS = Long.SIZE;
+
+    //Stores the occupancy bits, the bit of a free slot may be set
+    private final AtomicLongArray m_occupied;
+    //Stores the per-thread polling cursor
+    private final ThreadLocal<int[]> m_cursor;
+    //Stores the number of available individuals
+    private final AtomicInteger m_size;
+
+    /**
+     * The basic constructor
+     *
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     */
+    public PopulationSlots(final int size_x, final int size_y) {
+        this.m_size_y = size_y;
+        this.m_slots = new AtomicReferenceArray<>(size_x * size_y);
+        this.m_occupied = new AtomicLongArray(
+                (size_x * size_y + WORD_BITS - 1) / WORD_BITS);
+        final int num_slots = size_x * size_y;
+        this.m_cursor = ThreadLocal.withInitial(
+                () -> new int[]{RandomSource.next_int(num_slots)});
+        this.m_size = new AtomicInteger(0);
+    }
+
+    /**
+     * Allows to get the slot index of the individual
+     *
+     * @param ind the individual with properly set x,y coordinates
+     * @return the slot index
+     */
+    private int get_slot(final Individual ind) {
+        return ind.get_pos_x() * m_size_y + ind.get_pos_y();
+    }
+
+    /**
+     * Allows to set the occupancy bit of the slot
+     *
+     * @param slot the slot index
+     */
+    private void mark(final int slot) {
+        final int word = slot / WORD_BITS;
+        final long mask = 1L << (slot % WORD_BITS);
+        long bits = m_occupied.get(word);
+        while (((bits & mask) == 0)
+                && !m_occupied.compareAndSet(word, bits, bits | mask)) {
+            bits = m_occupied.get(word);
+        }
+    }
+
+    /**
+     * Allows to clear the occupancy bit of the slot, the bit is set back if
+     * the slot has been filled in the meantime
+     *
+     * @param slot the slot index
+     */
+    private void unmark(final int slot) {
+        final int word = slot / WORD_BITS;
+        final long mask = 1L << (slot % WORD_BITS);
+        long bits = m_occupied.get(word);
+        while (((bits & mask) != 0)
+                && !m_occupied.compareAndSet(word, bits, bits & ~mask)) {
+            bits = m_occupied.get(word);
+        }
+        if (m_slots.get(slot) != null) {
+            mark(slot);
+        }
+    }
+
+    /**
+     * Allows to get the number of available individuals
+     *
+     * @return the number of available individuals
+     */
+    public int size() {
+        return m_size.get();
+    }
+
+    /**
+     * Makes the individual available replacing the one in its cell, if any
+     *
+     * @param ind the individual with properly set x,y coordinates
+     */
+    public void put(final Individual ind) {
+        final int slot = get_slot(ind);
+        if (m_slots.getAndSet(slot, ind) == null) {
+            m_size.incrementAndGet();
+            mark(slot);
+        }
+    }
+
+    /**
+     * Makes the individual available if no other individual is available in
+     * its cell
+     *
+     * @param ind the individual with properly set x,y coordinates
+     * @return true if the individual has been made available
+     */
+    public boolean offer(final Individual ind) {
+        final int slot = get_slot(ind);
+        if (m_slots.compareAndSet(slot, null, ind)) {
+            m_size.incrementAndGet();
+            mark(slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes the individual unavailable
+     *
+     * @param ind the individual with properly set x,y coordinates
+     * @return true if the individual was available
+     */
+    public boolean remove(final Individual ind) {
+        final int slot = get_slot(ind);
+        if (m_slots.compareAndSet(slot, ind, null)) {
+            m_size.decrementAndGet();
+            unmark(slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the next available individual, making it unavailable
+     *
+     * @return the individual or null if there are none
+     */
+    public Individual poll() {
+        final int num_slots = m_slots.length();
+        final int[] cursor = m_cursor.get();
+        int slot = cursor[0];
+        int left = num_slots;
+        while ((left > 0) && (m_size.get() > 0)) {
+            final int bit = slot % WORD_BITS;
+            //Get the occupancy bits from the current slot on
+            final long bits = m_occupied.get(slot / WORD_BITS) >>> bit;
+            final int step = (bits == 0)
+                    ? Math.min(WORD_BITS - bit, num_slots - slot)
+                    : Long.numberOfTrailingZeros(bits);
+            if (step >= left) {
+                break;
+            }
+            left -= step;
+            slot += step;
+            if (slot == num_slots) {
+                slot = 0;
+            } else if (bits != 0) {
+                //The slot's bit is set, try to take its individual
+                final Individual ind = m_slots.get(slot);
+                if (ind == null) {
+                    unmark(slot);
+                } else if (m_slots.compareAndSet(slot, ind, null)) {
+                    m_size.decrementAndGet();
+                    unmark(slot);
+                    cursor[0] = (slot + 1) % num_slots;
+                    return ind;
+                }
+                --left;
+                slot = (slot + 1) % num_slots;
+            }
+        }
+        cursor[0] = slot;
+        return null;
+    }
+}
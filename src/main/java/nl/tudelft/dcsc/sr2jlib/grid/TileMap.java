@@ -0,0 +1,247 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import nl.tudelft.dcsc.sr2jlib.grammar.RandomSource;
+
+/**
+ * The partitioning of the grid into tiles owned by workers. The tiles are the
+ * grid columns, each worker owns a contiguous range of columns. A parent whose
+ * area, extended by the child spread, lies within the columns of its worker is
+ * interior: no other worker can touch the cells of its area so it can be
+ * reproduced without locking. The other parents are on the border and their
+ * areas are to be locked. The ownership is re-balanced, by the number of
+ * individuals per column, when all the workers are stopped.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class TileMap {
+
+    //Stores the stride between the busy flags, to keep them on separate cache lines
+    private static final int BUSY_STRIDE = 16;
+
+    //Stores the number of workers
+    private final int m_num_workers;
+    //Stores the number of grid cells in x
+    private final int m_size_x;
+    //Stores the number of grid cells in y
+    private final int m_size_y;
+    //Stores the child spread in x
+    private final int m_ch_sp_x;
+    //Stores the owner worker per column
+    private final int[] m_owners;
+    //Stores the first column per worker
+    private final int[] m_min_x;
+    //Stores the number of columns per worker
+    private final int[] m_elems_x;
+    //Stores the flags of workers reproducing an interior parent
+    private final AtomicIntegerArray m_busy;
+    //Stores the monitor used to wait for the pause
+    private final Object m_pause_mon;
+    //Stores the pause flag
+    private volatile boolean m_is_paused;
+
+    /**
+     * The basic constructor, the columns are split evenly between the workers
+     *
+     * @param conf the area locker configuration
+     * @param num_workers the number of workers
+     */
+    public TileMap(final AreaLockerConfig conf, final int num_workers) {
+        this.m_num_workers = num_workers;
+        this.m_size_x = conf.m_size_x;
+        this.m_size_y = conf.m_size_y;
+        this.m_ch_sp_x = conf.m_ch_sp_x;
+        this.m_owners = new int[m_size_x];
+        this.m_min_x = new int[num_workers];
+        this.m_elems_x = new int[num_workers];
+        this.m_busy = new AtomicIntegerArray(num_workers * BUSY_STRIDE);
+        this.m_pause_mon = new Object();
+        this.m_is_paused = false;
+        final int[] loads = new int[m_size_x];
+        rebalance(loads);
+    }
+
+    /**
+     * Allows to get the number of workers
+     *
+     * @return the number of workers
+     */
+    public int get_num_workers() {
+        return m_num_workers;
+    }
+
+    /**
+     * Allows to re-balance the ownership so that the workers have about the
+     * same load. Must only be called when no worker is reproducing.
+     *
+     * @param loads the load per column, e.g. the number of individuals
+     */
+    public void rebalance(final int[] loads) {
+        //Every column has a unit load so that empty regions are shared as well
+        long total = 0;
+        for (int load : loads) {
+            total += load + 1;
+        }
+        int pos_x = 0;
+        long sum = 0;
+        for (int worker = 0; worker < m_num_workers; ++worker) {
+            m_min_x[worker] = pos_x;
+            final long target = (total * (worker + 1)) / m_num_workers;
+            //Leave at least one column for each of the remaining workers
+            final int max_x = m_size_x - (m_num_workers - worker - 1);
+            while ((pos_x < max_x) && ((sum < target) || (pos_x == m_min_x[worker]))) {
+                sum += loads[pos_x] + 1;
+                m_owners[pos_x] = worker;
+                ++pos_x;
+            }
+            if (worker == m_num_workers - 1) {
+                while (pos_x < m_size_x) {
+                    m_owners[pos_x++] = worker;
+                }
+            }
+            m_elems_x[worker] = pos_x - m_min_x[worker];
+        }
+    }
+
+    /**
+     * Gets a random x position in the columns owned by the worker
+     *
+     * @param worker the worker index
+     * @return the x position or -1 if the worker owns no columns
+     */
+    public int get_rnd_x_pos(final int worker) {
+        if (m_elems_x[worker] == 0) {
+            return -1;
+        }
+        return m_min_x[worker] + RandomSource.next_int(m_elems_x[worker]);
+    }
+
+    /**
+     * Gets a random y position
+     *
+     * @return the y position
+     */
+    public int get_rnd_y_pos() {
+        return RandomSource.next_int(m_size_y);
+    }
+
+    /**
+     * Allows to check if the area is interior for the worker, i.e. the area
+     * extended by the child spread is within the worker's columns.
+     *
+     * @param worker the worker index
+     * @param area the parent's area
+     * @return true if the area is interior
+     */
+    public boolean is_interior(final int worker, final AreaLocker.Area area) {
+        final int min_x = Math.max(0, area.get_min_x() - m_ch_sp_x);
+        final int max_x = Math.min(m_size_x - 1,
+                area.get_min_x() + area.get_elems_x() - 1 + m_ch_sp_x);
+        return (m_owners[min_x] == worker) && (m_owners[max_x] == worker);
+    }
+
+    /**
+     * Marks the worker as reproducing an interior parent
+     *
+     * @param worker the worker index
+     * @return true if marked, false if the tiles are paused
+     */
+    public boolean enter(final int worker) {
+        //Mark first so that a concurrent pause waits for this worker
+        m_busy.set(worker * BUSY_STRIDE, 1);
+        if (m_is_paused) {
+            leave(worker);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the worker as done reproducing an interior parent
+     *
+     * @param worker the worker index
+     */
+    public void leave(final int worker) {
+        m_busy.set(worker * BUSY_STRIDE, 0);
+        if (m_is_paused) {
+            synchronized (m_pause_mon) {
+                m_pause_mon.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Allows to request pausing of the interior reproduction.
+     */
+    public void pause() {
+        m_is_paused = true;
+    }
+
+    /**
+     * Waits until no worker reproduces an interior parent, must only be
+     * invoked after the pause is requested.
+     *
+     * @param timeout the timeout in milliseconds to wake up during waiting
+     * @return true if the tiles are paused, otherwise false
+     */
+    public boolean wait_paused(final long timeout) {
+        while (m_is_paused) {
+            try {
+                synchronized (m_pause_mon) {
+                    if (!is_any_busy()) {
+                        return true;
+                    } else {
+                        m_pause_mon.wait(timeout);
+                    }
+                }
+            } catch (InterruptedException ex) {
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allows to check if any worker reproduces an interior parent
+     *
+     * @return true if some worker is busy
+     */
+    private boolean is_any_busy() {
+        for (int worker = 0; worker < m_num_workers; ++worker) {
+            if (m_busy.get(worker * BUSY_STRIDE) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allows to resume the paused interior reproduction
+     */
+    public void resume() {
+        synchronized (m_pause_mon) {
+            m_is_paused = false;
+            m_pause_mon.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grid;
+
+/**
+ * The index of the weakest individuals on the grid, allowing to find the
+ * weakest cell of an area in O(rows * log(columns)). It consists of one
+ * segment tree per grid row x, over the cells y of the row, whose nodes store
+ * the weakest cell of their range. An empty cell is weaker than any
+ * individual, a lower fitness value is weaker and, for equal fitness values,
+ * a larger size is weaker. The index reads the packed fitness values and
+ * sizes of the grid.
+ *
+ * The updates of a row are serialized. A query only reads the nodes whose
+ * range lies within the queried area so, when the area is locked, it only
+ * sees the nodes written by the updates of the cells of the area.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class WeakestIndex {
+
+    //Stores the undefined cell value
+    private static final int NO_CELL = -1;
+
+    //Stores the number of grid cells in y
+    private final int m_size_y;
+    //Stores the number of segment tree leaves, the power of two
+    private final int m_num_leaves;
+    //Stores the segment trees per row, the nodes store the y positions
+    private final int[][] m_trees;
+    //Stores the packed fitness values of the grid
+    private final double[] m_ftns;
+    //Stores the packed sizes of the grid, zero for empty cells
+    private final int[] m_sizes;
+
+    /**
+     * The basic constructor, all the cells are considered empty
+     *
+     * @param size_x the grid size in x
+     * @param size_y the grid size in y
+     * @param ftns the packed fitness values of the grid
+     * @param sizes the packed sizes of the grid
+     */
+    public WeakestIndex(final int size_x, final int size_y,
+            final double[] ftns, final int[] sizes) {
+        this.m_size_y = size_y;
+        int num_leaves = 1;
+        while (num_leaves < size_y) {
+            num_leaves <<= 1;
+        }
+        this.m_num_leaves = num_leaves;
+        this.m_trees = new int[size_x][2 * num_leaves];
+        this.m_ftns = ftns;
+        this.m_sizes = sizes;
+        for (int[] tree : m_trees) {
+            for (int leaf = 0; leaf < num_leaves; ++leaf) {
+                tree[num_leaves + leaf] = (leaf < size_y) ? leaf : NO_CELL;
+            }
+            for (int node = num_leaves - 1; node > 0; --node) {
+                tree[node] = tree[2 * node];
+            }
+        }
+    }
+
+    /**
+     * Allows to choose the weaker cell of the row
+     *
+     * @param row_idx the flat index of the first cell of the row
+     * @param pos_a the first cell y position or NO_CELL
+     * @param pos_b the second cell y position or NO_CELL
+     * @return the weaker cell y position
+     */
+    private int weaker(final int row_idx, final int pos_a, final int pos_b) {
+        if (pos_b == NO_CELL) {
+            return pos_a;
+        }
+        if (pos_a == NO_CELL) {
+            return pos_b;
+        }
+        final int size_a = m_sizes[row_idx + pos_a];
+        final int size_b = m_sizes[row_idx + pos_b];
+        if ((size_a == 0) || (size_b == 0)) {
+            return (size_a == 0) ? pos_a : pos_b;
+        }
+        final double ftn_a = m_ftns[row_idx + pos_a];
+        final double ftn_b = m_ftns[row_idx + pos_b];
+        if (ftn_a != ftn_b) {
+            return (ftn_a < ftn_b) ? pos_a : pos_b;
+        }
+        return (size_a >= size_b) ? pos_a : pos_b;
+    }
+
+    /**
+     * Shall be called once the cell's packed values have changed
+     *
+     * @param pos_x the x coordinate
+     * @param pos_y the y coordinate
+     */
+    public void update(final int pos_x, final int pos_y) {
+        final int[] tree = m_trees[pos_x];
+        final int row_idx = pos_x * m_size_y;
+        synchronized (tree) {
+            for (int node = (m_num_leaves + pos_y) >> 1; node > 0; node >>= 1) {
+                tree[node] = weaker(row_idx, tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+
+    /**
+     * Allows to find the weakest cell of the area
+     *
+     * @param area the area
+     * @param start_x the row to start with, from the area, the first of the
+     * equally weak cells is returned
+     * @return the flat index of the weakest cell, x * size_y + y
+     */
+    public int find_weakest(final AreaLocker.Area area, final int start_x) {
+        final int min_x = area.get_min_x();
+        final int elems_x = area.get_elems_x();
+        final int min_y = area.get_min_y();
+        final int max_y = min_y + area.get_elems_y() - 1;
+        int best_idx = NO_CELL;
+        for (int off_x = 0; off_x < elems_x; ++off_x) {
+            final int pos_x = min_x + (start_x - min_x + off_x) % elems_x;
+            final int row_idx = pos_x * m_size_y;
+            final int pos_y = query(m_trees[pos_x], row_idx, min_y, max_y);
+            if (best_idx == NO_CELL) {
+                best_idx = row_idx + pos_y;
+            } else if (is_weaker(row_idx + pos_y, best_idx)) {
+                best_idx = row_idx + pos_y;
+            }
+        }
+        return best_idx;
+    }
+
+    /**
+     * Allows to check if one cell is strictly weaker than the other
+     *
+     * @param idx_a the first cell flat index
+     * @param idx_b the second cell flat index
+     * @return true if the first cell is strictly weaker
+     */
+    private boolean is_weaker(final int idx_a, final int idx_b) {
+        final int size_a = m_sizes[idx_a];
+        final int size_b = m_sizes[idx_b];
+        if ((size_a == 0) || (size_b == 0)) {
+            return (size_a == 0) && (size_b != 0);
+        }
+        final double ftn_a = m_ftns[idx_a];
+        final double ftn_b = m_ftns[idx_b];
+        return (ftn_a < ftn_b) || ((ftn_a == ftn_b) && (size_a > size_b));
+    }
+
+    /**
+     * Allows to find the weakest cell of the row in the range
+     *
+     * @param tree the row segment tree
+     * @param row_idx the flat index of the first cell of the row
+     * @param min_y the first y position, inclusive
+     * @param max_y the last y position, inclusive
+     * @return the weakest cell y position
+     */
+    private int query(final int[] tree, final int row_idx, final int min_y, final int max_y) {
+        int result = NO_CELL;
+        int left = min_y + m_num_leaves;
+        int right = max_y + m_num_leaves + 1;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                result = weaker(row_idx, result, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = weaker(row_idx, result, tree[--right]);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return result;
+    }
+}
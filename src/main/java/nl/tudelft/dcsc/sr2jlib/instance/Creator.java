@@ -23,7 +23,9 @@ package nl.tudelft.dcsc.sr2jlib.instance;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,6 +71,12 @@ public class Creator {
      */
     public static final String GET_NUM_DOFS = "get_num_dofs";
 
+    /**
+     * The name of the function for getting the individual's precision name,
+     * see {@link Precision}
+     */
+    public static final String GET_PRECISION = "get_precision";
+
     /**
      * The prefix of the single dof function of the individual
      */
@@ -156,24 +164,28 @@ public class Creator {
     }
 
     private static InMemoryJavaFileObject getJavaFileObject(final String class_name,
-            final String full_name, final String[] funct) {
+            final String full_name, final String[] funct, final Precision prec) {
+        final String type = prec.get_type_name();
         String contents = "package " + PACKAGE_NAME + ";\n"
                 + "public class " + class_name + " {\n"
                 + "  public static int " + GET_NUM_DOFS + "(){\n"
                 + "    return " + funct.length + ";\n"
+                + "}\n"
+                + "  public static String " + GET_PRECISION + "(){\n"
+                + "    return \"" + prec.name() + "\";\n"
                 + "}\n";
         for (int idx = 0; idx < funct.length; ++idx) {
-            contents += "public static double " + EVALUATE + idx + "\n"
+            contents += "public static " + type + " " + EVALUATE + idx + "\n"
                     + "(\n"
-                    + "double[] " + VAR_NAME + "\n"
+                    + type + "[] " + VAR_NAME + "\n"
                     + "){\n"
-                    + "return " + funct[idx] + ";\n"
+                    + "return " + prec.to_code(funct[idx]) + ";\n"
                     + "}\n";
         }
         contents += "public static void " + EVALUATE + "\n"
                 + "(\n"
-                + "double[] " + VAR_NAME + ",\n"
-                + "double[] " + RES_NAME + "\n"
+                + type + "[] " + VAR_NAME + ",\n"
+                + type + "[] " + RES_NAME + "\n"
                 + "){\n";
         for (int idx = 0; idx < funct.length; ++idx) {
             contents += RES_NAME + "[" + idx + "] = "
@@ -188,11 +200,12 @@ public class Creator {
     private static final JavaCompiler JAVAC = ToolProvider.getSystemJavaCompiler();
 
     /**
-     * Compile the individual
+     * Compile the individuals in one compiler call
      *
      * @throws IllegalArgumentException
      */
-    private static void compile(InMemoryJavaFileObject file) throws IllegalArgumentException {
+    private static void compile(final List<InMemoryJavaFileObject> files)
+            throws IllegalArgumentException {
 
         // for compilation diagnostic message processing on compilation WARNING/ERROR
         MyDiagnosticListener diag = new MyDiagnosticListener();
@@ -205,13 +218,18 @@ public class Creator {
         Iterable options = Arrays.asList("-XDuseUnsharedTable",
                 "-d", CLASS_OUTPUT_FOLDER);
         JavaCompiler.CompilationTask task = JAVAC.getTask(null, fileManager,
-                diag, options, null, Arrays.asList(file));
+                diag, options, null, files);
 
         if (!task.call()) {
-            final String class_name = file.get_class_name();
+            String class_names = "";
+            String contents = "";
+            for (InMemoryJavaFileObject file : files) {
+                class_names += " " + file.get_class_name();
+                contents += file.get_content() + "\n";
+            }
             throw new IllegalArgumentException("Failed compiling an Individual"
-                    + class_name + ", msg: \n" + diag.message
-                    + ", content: \n" + file.get_content());
+                    + class_names + ", msg: \n" + diag.message
+                    + ", content: \n" + contents);
         }
     }
 
@@ -230,7 +248,7 @@ public class Creator {
     /**
      * Allows to construct a person class name from the given function and
      * person id. The class is compiled and the class name is returned for
-     * further use.
+     * further use. The class is compiled in double precision.
      *
      * @param uid the person's class uid
      * @param function the vector function description of the person
@@ -238,14 +256,57 @@ public class Creator {
      * @throws IllegalArgumentException if the individual is failed to compile
      */
     public static String prepare(final long uid, final String[] function) {
+        return prepare(uid, function, Precision.DOUBLE);
+    }
+
+    /**
+     * Allows to construct a person class name from the given function and
+     * person id. The class is compiled in the given precision and the class
+     * name is returned for further use.
+     *
+     * @param uid the person's class uid
+     * @param function the vector function description of the person
+     * @param prec the precision of the compiled dof functions
+     * @return the prepared class name
+     * @throws IllegalArgumentException if the individual is failed to compile
+     */
+    public static String prepare(final long uid, final String[] function,
+            final Precision prec) {
         final String class_name = "Individual" + uid;
         final String full_name = PACKAGE_NAME + "." + class_name;
 
         //Get the file object
-        InMemoryJavaFileObject file = getJavaFileObject(class_name, full_name, function);
+        InMemoryJavaFileObject file = getJavaFileObject(class_name, full_name, function, prec);
         //Call the compiler
-        compile(file);
+        compile(Arrays.asList(file));
 
         return full_name.replaceAll("\\.", "/");
     }
+
+    /**
+     * Allows to construct and compile the classes of several persons in one
+     * compiler call, which is cheaper than compiling them one by one.
+     *
+     * @param uids the persons' class uids
+     * @param functions the vector function descriptions of the persons
+     * @param prec the precision of the compiled dof functions
+     * @return the prepared class names
+     * @throws IllegalArgumentException if any of the individuals is failed to
+     * compile
+     */
+    public static String[] prepare(final long[] uids, final String[][] functions,
+            final Precision prec) {
+        final String[] class_names = new String[uids.length];
+        final List<InMemoryJavaFileObject> files = new ArrayList<>();
+        for (int idx = 0; idx < uids.length; ++idx) {
+            final String class_name = "Individual" + uids[idx];
+            final String full_name = PACKAGE_NAME + "." + class_name;
+            files.add(getJavaFileObject(class_name, full_name, functions[idx], prec));
+            class_names[idx] = full_name.replaceAll("\\.", "/");
+        }
+        //Call the compiler
+        compile(files);
+
+        return class_names;
+    }
 }
@@ -0,0 +1,100 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.instance;
+
+import java.util.regex.Pattern;
+
+/**
+ * Represents the floating point precision of the generated individual classes.
+ * In the double precision mode the dof functions are compiled as they are
+ * serialized by the grammar. In the single precision mode the functions are
+ * compiled to take a float[] argument and return a float value, the double
+ * literals and the double-valued Math calls are cast to float so that the
+ * arithmetic is performed in single precision.
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public enum Precision {
+    DOUBLE("double", double[].class),
+    FLOAT("float", float[].class);
+
+    //Stores the pattern matching the unsuffixed floating point literals
+    private static final Pattern LITERAL_PATTERN = Pattern.compile(
+            "(?<![\\w.])((?:\\d+\\.\\d*|\\.\\d+)(?:[eE][+-]?\\d+)?|\\d+[eE][+-]?\\d+)(?![\\w.])");
+    //Stores the pattern matching the Math members that are always double
+    private static final Pattern MATH_PATTERN = Pattern.compile(
+            "(?<![\\w.])Math\\.(sin|cos|tan|asin|acos|atan|atan2|sinh|cosh|tanh"
+            + "|exp|expm1|log|log10|log1p|sqrt|cbrt|pow|hypot|floor|ceil|rint"
+            + "|toDegrees|toRadians|random|PI|E)\\b");
+
+    //Stores the primitive type name
+    private final String m_type_name;
+    //Stores the argument array class
+    private final Class<?> m_args_class;
+
+    /**
+     * The basic constructor
+     *
+     * @param type_name the primitive type name
+     * @param args_class the argument array class
+     */
+    private Precision(final String type_name, final Class<?> args_class) {
+        this.m_type_name = type_name;
+        this.m_args_class = args_class;
+    }
+
+    /**
+     * Allows to get the primitive type name used in the generated code
+     *
+     * @return the primitive type name
+     */
+    public String get_type_name() {
+        return m_type_name;
+    }
+
+    /**
+     * Allows to get the class of the arguments array of the dof functions
+     *
+     * @return the arguments array class
+     */
+    public Class<?> get_args_class() {
+        return m_args_class;
+    }
+
+    /**
+     * Allows to convert the serialized double precision dof function into the
+     * code of this precision. The returned code is always of the precision
+     * type.
+     *
+     * @param funct the serialized dof function
+     * @return the dof function code
+     */
+    public String to_code(final String funct) {
+        if (this == DOUBLE) {
+            return funct;
+        } else {
+            String code = LITERAL_PATTERN.matcher(funct).replaceAll("(float)$1");
+            code = MATH_PATTERN.matcher(code).replaceAll("(float)Math.$1");
+            return "(float)(" + code + ")";
+        }
+    }
+}
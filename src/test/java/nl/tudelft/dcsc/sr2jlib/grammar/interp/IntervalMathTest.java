@@ -0,0 +1,76 @@
+/* 
+ * Copyright (C) 2018 Dr. Ivan S. Zapreev <ivan.zapreev@gmail.com>
+ *
+ *  Visit my Linked-in profile:
+ *     https://nl.linkedin.com/in/zapreevis
+ *  Visit my GitHub:
+ *     https://github.com/ivan-zapreev
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tudelft.dcsc.sr2jlib.grammar.interp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * The interval arithmetic tests
+ *
+ * @author <a href="mailto:ivan.zapreev@gmail.com"> Dr. Ivan S. Zapreev </a>
+ */
+public class IntervalMathTest {
+
+    /**
+     * The negative zero sample must not turn the lower bound into a negative
+     * zero making pow of a negative exponent negative infinite
+     */
+    @Test
+    public void test_signed_zero_samples() {
+        final double[][] samples = new double[][]{{-0.0}, {0.5}, {0.9}};
+        final Interval x1 = Interval.of_samples(samples, 0);
+        assertEquals(Double.doubleToRawLongBits(x1.get_lo()),
+                Double.doubleToRawLongBits(0.0));
+
+        final Interval inv = IntervalMath.pow(x1, Interval.point(-1.0));
+        assertEquals(inv.get_lo(), 1.0 / 0.9, 1.0e-12);
+        assertEquals(inv.get_hi(), Double.POSITIVE_INFINITY);
+
+        final Interval root = IntervalMath.monotone(
+                IntervalMath.sub(inv, Interval.point(2.0)),
+                0.0, Double.POSITIVE_INFINITY, Math::sqrt, true);
+        assertFalse(root.is_invalid());
+        assertTrue(root.is_may_finite());
+    }
+
+    /**
+     * The negative zero bounds are normalized for all the intervals
+     */
+    @Test
+    public void test_signed_zero_bounds() {
+        final Interval zero = Interval.point(-0.0);
+        assertEquals(Double.doubleToRawLongBits(zero.get_lo()),
+                Double.doubleToRawLongBits(0.0));
+        assertEquals(Double.doubleToRawLongBits(zero.get_hi()),
+                Double.doubleToRawLongBits(0.0));
+        final Interval neg = Interval.make(-1.0, -0.0, false);
+        assertEquals(Double.doubleToRawLongBits(neg.get_hi()),
+                Double.doubleToRawLongBits(0.0));
+        final Interval hull = neg.hull(Interval.make(-0.0, 1.0, false));
+        assertEquals(hull.get_lo(), -1.0);
+        assertEquals(hull.get_hi(), 1.0);
+        assertEquals(IntervalMath.abs(Interval.make(-0.0, 2.0, false)).get_lo(), 0.0);
+    }
+}